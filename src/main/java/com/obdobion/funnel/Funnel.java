@@ -8,10 +8,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.obdobion.argument.type.WildFiles;
+import com.obdobion.funnel.parameters.CopyOrder;
+import com.obdobion.funnel.parameters.DuplicateDisposition;
 import com.obdobion.funnel.parameters.FunnelContext;
 import com.obdobion.funnel.provider.FunnelInternalNodeProvider;
+import com.obdobion.funnel.provider.GroupLimitProvider;
+import com.obdobion.funnel.provider.NaturalRunProvider;
+import com.obdobion.funnel.segment.RecordIndex;
+import com.obdobion.funnel.segment.SegmentManifest;
 import com.obdobion.funnel.segment.SegmentedPublisherAndProvider;
 import com.obdobion.funnel.segment.SourceProxyRecord;
+import com.obdobion.funnel.segment.TopRows;
 
 /**
  * This class provides the controller of the funnel (sort / merge) processing.
@@ -227,6 +234,48 @@ public class Funnel
         maxSorted = 1 << (_context.getDepth() - 1);
     }
 
+    /**
+     * Read the input only to see if it is already in order. Nothing is
+     * written. The first row that is out of order is logged and its record
+     * number is kept in the context, the input is not read past it.
+     *
+     * @throws Exception
+     */
+    void checkSorted() throws Exception
+    {
+        final FunnelItem item = new FunnelItem();
+        context.provider.attachTo(item);
+
+        SourceProxyRecord previous = null;
+        while (item.next(1))
+        {
+            final SourceProxyRecord row = item.getData();
+            item.reset();
+            if (previous != null)
+            {
+                /*
+                 * Duplicates are in order, whatever their record numbers.
+                 */
+                if (previous.compareTo(row, false) > 0)
+                {
+                    context.setUnsortedRecordNumber(Math.abs(row.getOriginalRecordNumber()));
+                    logger.warn("input is not sorted, record {} is out of order",
+                            context.getUnsortedRecordNumber());
+                    row.release();
+                    break;
+                }
+                previous.release();
+            }
+            previous = row;
+        }
+        if (previous != null)
+            previous.release();
+        if (context.getUnsortedRecordNumber() == 0)
+            logger.info("input is sorted");
+
+        context.provider.close();
+    }
+
     /**
      * Computes the left of two nodes that provide input for the provided node's
      * index.
@@ -258,6 +307,51 @@ public class Funnel
         return getItems()[c];
     }
 
+    /**
+     * Copy the input to the output without the funnel. In the original order
+     * each row is published as soon as it is read. In the reverse order the
+     * location of each row is kept in a {@link RecordIndex} and the rows are
+     * published from the last one to the first once the input has been read.
+     *
+     * @throws Exception
+     */
+    void copy() throws Exception
+    {
+        final long copyStartMS = System.currentTimeMillis();
+        final ProxyBatch batch = new ProxyBatch();
+
+        if (context.getCopyOrder() == CopyOrder.Original)
+        {
+            context.publisher.openInput();
+            while (context.provider.fill(batch, 1))
+                context.publisher.publishBatch(batch, 1);
+            batch.clear();
+            context.provider.close();
+            context.publisher.close();
+        } else
+        {
+            final RecordIndex index = new RecordIndex();
+            while (context.provider.fill(batch, 1))
+                for (int r = 0; r < batch.size(); r++)
+                {
+                    index.add(batch.get(r));
+                    batch.get(r).release();
+                }
+            batch.clear();
+            context.publisher.openInput();
+            for (int r = index.size() - 1; r >= 0; r--)
+            {
+                final SourceProxyRecord proxy = SourceProxyRecord.getInstance(context);
+                index.load(r, index.size() - r, proxy);
+                context.publisher.publish(proxy, 1);
+            }
+            context.provider.close();
+            context.publisher.close();
+        }
+        logger.debug("copy({}ms) rows({})", System.currentTimeMillis() - copyStartMS,
+                context.provider.actualNumberOfRows());
+    }
+
     /**
      * <p>
      * entryRowEnd.
@@ -307,6 +401,35 @@ public class Funnel
         }
     }
 
+    /**
+     * Keep only the --top or --bottom rows while the input is read and then
+     * publish them in order. The funnel and the work files are not used.
+     *
+     * @throws Exception
+     */
+    void limit() throws Exception
+    {
+        final long limitStartMS = System.currentTimeMillis();
+        final TopRows rows = new TopRows(context.getTop() > 0
+                ? context.getTop()
+                : context.getBottom(), context.getBottom() > 0);
+
+        final ProxyBatch batch = new ProxyBatch();
+        while (context.provider.fill(batch, 1))
+            for (int r = 0; r < batch.size(); r++)
+                rows.add(batch.get(r));
+        batch.clear();
+
+        context.publisher.openInput();
+        for (final SourceProxyRecord row : rows.sorted())
+            context.publisher.publish(row, 1);
+        context.provider.close();
+        context.publisher.close();
+
+        logger.debug("limit({}ms) rows({}) dropped({})", System.currentTimeMillis() - limitStartMS,
+                context.provider.actualNumberOfRows(), rows.getDroppedCount());
+    }
+
     /**
      * The maximum is the size of the entry row in the funnel. And this just
      * applies to the first pass.
@@ -391,12 +514,29 @@ public class Funnel
     void process() throws Exception
     {
         assert context.provider != null : "provider must not be null";
+
+        if (context.isCheckSorted())
+        {
+            checkSorted();
+            return;
+        }
         assert context.publisher != null : "publisher must not be null";
+        if (context.getTop() > 0 || context.getBottom() > 0)
+        {
+            limit();
+            return;
+        }
+        if (context.isStreamingCopy())
+        {
+            copy();
+            return;
+        }
 
         int passCount = 0;
 
         SegmentedPublisherAndProvider segmentationHandler = null;
         FunnelDataProvider passProvider;
+        NaturalRunProvider naturalRuns = null;
         FunnelDataPublisher passPublisher = null;
 
         long passOneRowCount = 0;
@@ -408,6 +548,23 @@ public class Funnel
         long passStartNano = 0;
         long passEndNano = 0;
 
+        SegmentManifest manifest = null;
+        if (context.isResume())
+        {
+            manifest = new SegmentManifest(context);
+            segmentationHandler = manifest.restore();
+            if (segmentationHandler != null)
+            {
+                /*
+                 * The original input was completely consumed in a prior run.
+                 * Pick up with the work file from the last completed pass.
+                 */
+                context.provider.close();
+                passCount = manifest.getPass();
+                passOneRowCount = context.getRecordCount();
+            }
+        }
+
         while (passPublisher != context.publisher)
         {
             passStartMS = System.currentTimeMillis();
@@ -424,10 +581,27 @@ public class Funnel
                 segmentationHandler.openInput();
                 passProvider = segmentationHandler;
             } else
+            {
                 /*
                  * the first pass only
                  */
-                passProvider = context.provider;
+                FunnelDataProvider source = context.provider;
+                /*
+                 * The heaps count duplicates that the publisher may drop, so
+                 * when duplicates are dropped the publisher does all of the
+                 * limiting.
+                 */
+                if (context.getGroupLimit() > 0
+                        && context.getDuplicateDisposition() != DuplicateDisposition.FirstOnly
+                        && context.getDuplicateDisposition() != DuplicateDisposition.LastOnly)
+                {
+                    final GroupLimitProvider groups = new GroupLimitProvider(context, source);
+                    groups.load();
+                    source = groups;
+                }
+                naturalRuns = new NaturalRunProvider(source, maxSorted);
+                passProvider = naturalRuns;
+            }
 
             if (passProvider.maximumNumberOfRows() > maximumGuaranteedNumberOfSortableItems())
             {
@@ -443,6 +617,10 @@ public class Funnel
                  */
                 passPublisher = context.publisher;
 
+            final boolean singleSegment = passProvider == segmentationHandler
+                    && passPublisher == context.publisher
+                    && passProvider.maximumNumberOfRows() == 1;
+
             populateFunnel(passProvider);
             passPublisher.openInput();
 
@@ -450,13 +628,31 @@ public class Funnel
 
             long phase = 1;
             FunnelItem item;
-            while (true)
+            if (singleSegment)
+            {
+                /*
+                 * A single segment is already in order, usually because the
+                 * input was. It goes to the output without being shaken.
+                 */
+                item = getItems()[entryRowStart()];
+                while (item.next(phase))
+                {
+                    passPublisher.publish(item.getData(), phase);
+                    item.reset();
+                }
+                phase++;
+            } else if (passProvider == naturalRuns)
+                naturalRuns.publishRuns(passPublisher, passPublisher == context.publisher, phase);
+
+            while (!singleSegment)
             {
                 item = shake(phase);
                 if (item == null)
                 {
                     phase++;
                     initializePhase(phase);
+                    if (passProvider == naturalRuns)
+                        naturalRuns.publishRuns(passPublisher, passPublisher == context.publisher, phase);
                     primeTopRow(phase);
                     item = shake(phase);
                     if (item == null)
@@ -470,8 +666,24 @@ public class Funnel
                             + context.getDepth()
                             + ").");
             }
-            passProvider.close();
-            passPublisher.close();
+            if (manifest == null || passProvider == naturalRuns)
+            {
+                passProvider.close();
+                passPublisher.close();
+                if (manifest != null && passPublisher == segmentationHandler)
+                    manifest.write(passCount, segmentationHandler);
+            } else
+            {
+                /*
+                 * Closing a segmented provider deletes the work file of the
+                 * previous pass. So that must wait until this pass has
+                 * completed and been checkpointed.
+                 */
+                passPublisher.close();
+                if (passPublisher == segmentationHandler)
+                    manifest.write(passCount, segmentationHandler);
+                passProvider.close();
+            }
 
             passEndMS = System.currentTimeMillis();
             passEndNano = System.nanoTime();
@@ -485,6 +697,8 @@ public class Funnel
                             : "segments"),
                     passProvider.actualNumberOfRows(), phase - 1);
         }
+        if (manifest != null)
+            manifest.delete();
         if (passOneRowCount > 0)
         {
             final long perRowMS = (passEndMS - passStartMS) / passOneRowCount;
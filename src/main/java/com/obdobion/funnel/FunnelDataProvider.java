@@ -40,6 +40,30 @@ public interface FunnelDataProvider
      */
     public void close() throws IOException, ParseException;
 
+    /**
+     * Replace the rows in the batch with as many of the next rows as it holds.
+     * This is the same as asking for one row at a time with next.
+     *
+     * @param batch a {@link com.obdobion.funnel.ProxyBatch} object.
+     * @param phase a long.
+     * @return false if there were no more rows.
+     * @throws java.io.IOException if any.
+     * @throws java.text.ParseException if any.
+     */
+    default public boolean fill(final ProxyBatch batch, final long phase) throws IOException, ParseException
+    {
+        batch.clear();
+        while (!batch.isFull())
+        {
+            batch.item.reset();
+            if (!next(batch.item, phase))
+                break;
+            batch.add(batch.item.getData());
+        }
+        batch.item.reset();
+        return batch.size() > 0;
+    }
+
     /**
      * <p>
      * maximumNumberOfRows.
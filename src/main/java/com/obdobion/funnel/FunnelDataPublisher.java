@@ -63,6 +63,23 @@ public interface FunnelDataPublisher
      */
     public boolean publish(SourceProxyRecord item, long phase) throws Exception;
 
+    /**
+     * Publish the rows of a batch in order. This is the same as publishing
+     * them one at a time.
+     *
+     * @param batch a {@link com.obdobion.funnel.ProxyBatch} object.
+     * @param phase a long.
+     * @return false as soon as a row is out of order.
+     * @throws java.lang.Exception if any.
+     */
+    default public boolean publishBatch(final ProxyBatch batch, final long phase) throws Exception
+    {
+        for (int r = 0; r < batch.size(); r++)
+            if (!publish(batch.get(r), phase))
+                return false;
+        return true;
+    }
+
     /**
      * <p>
      * reset.
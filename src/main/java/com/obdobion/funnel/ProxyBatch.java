@@ -0,0 +1,109 @@
+package com.obdobion.funnel;
+
+import java.util.Arrays;
+
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * A reusable group of rows passed between a {@link FunnelDataProvider} and a
+ * {@link FunnelDataPublisher} in one call rather than one call per row.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class ProxyBatch
+{
+    /**
+     * The number of rows in a batch unless a size is given.
+     */
+    static final public int   DefaultCapacity = 1 << 10;
+
+    final SourceProxyRecord[] rows;
+    int                       count;
+    /*
+     * Used by the default fill of a provider that only provides rows to an
+     * item.
+     */
+    final FunnelItem          item;
+
+    /**
+     * <p>
+     * Constructor for ProxyBatch.
+     * </p>
+     */
+    public ProxyBatch()
+    {
+        this(DefaultCapacity);
+    }
+
+    /**
+     * <p>
+     * Constructor for ProxyBatch.
+     * </p>
+     *
+     * @param capacity the most rows that the batch holds.
+     */
+    public ProxyBatch(final int capacity)
+    {
+        rows = new SourceProxyRecord[capacity];
+        item = new FunnelItem();
+    }
+
+    /**
+     * <p>
+     * add.
+     * </p>
+     *
+     * @param row a {@link com.obdobion.funnel.segment.SourceProxyRecord}
+     *            object.
+     */
+    public void add(final SourceProxyRecord row)
+    {
+        rows[count++] = row;
+    }
+
+    /**
+     * Forget the rows without releasing them.
+     */
+    public void clear()
+    {
+        Arrays.fill(rows, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * <p>
+     * get.
+     * </p>
+     *
+     * @param index a int.
+     * @return a {@link com.obdobion.funnel.segment.SourceProxyRecord} object.
+     */
+    public SourceProxyRecord get(final int index)
+    {
+        return rows[index];
+    }
+
+    /**
+     * <p>
+     * isFull.
+     * </p>
+     *
+     * @return a boolean.
+     */
+    public boolean isFull()
+    {
+        return count == rows.length;
+    }
+
+    /**
+     * <p>
+     * size.
+     * </p>
+     *
+     * @return the number of rows in the batch.
+     */
+    public int size()
+    {
+        return count;
+    }
+}
@@ -2,7 +2,10 @@ package com.obdobion.funnel.columns;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,8 +30,23 @@ public class ColumnHelper
     /** Constant <code>MAX_COLUMN_SIZE=255</code> */
     public static final int     MAX_COLUMN_SIZE = 255;
     final KeyContext            context;
+    /*
+     * Holds the record for loadColumnsFromBytes and loadColumnsIntoEquations.
+     */
+    final byte[][]              record;
     final int                   maxKeyBytes;
     List<KeyPart>               columns;
+    /*
+     * The size of the most recent record, for compiled predicates.
+     */
+    long                        recordSize;
+    /*
+     * The columns that extract, loadColumnsFromBytes and
+     * loadColumnsIntoEquations parse, null when they parse all of them.
+     */
+    List<KeyPart>               extractedColumns;
+    List<KeyPart>               loadedColumns;
+    List<KeyPart>               equationColumns;
 
     /**
      * <p>
@@ -53,9 +71,38 @@ public class ColumnHelper
 
         maxKeyBytes = maxsize;
         context = new KeyContext();
+        record = new byte[1][];
         columns = new ArrayList<>();
     }
 
+    /**
+     * The names of the variables that an equation uses, as they are shown in
+     * its rpn.
+     *
+     * @param equations an array of {@link com.obdobion.algebrain.Equ}
+     *            objects.
+     * @return null if the variables can not be found.
+     */
+    public static Set<String> variablesOf(final Equ... equations)
+    {
+        final Set<String> names = new HashSet<>();
+        for (final Equ equ : equations)
+        {
+            if (equ == null)
+                continue;
+            try
+            {
+                for (final String token : equ.showRPN().split("\n"))
+                    if (token.startsWith("var(") && token.endsWith(")"))
+                        names.add(token.substring(4, token.length() - 1));
+            } catch (final Exception e)
+            {
+                return null;
+            }
+        }
+        return names;
+    }
+
     /**
      * <p>
      * add.
@@ -72,6 +119,21 @@ public class ColumnHelper
         columns.add(myCopy);
     }
 
+    private List<KeyPart> columnsNamed(final Collection<String> names)
+    {
+        if (names == null)
+            return null;
+        final List<KeyPart> named = new ArrayList<>();
+        for (final KeyPart col : columns)
+            for (final String name : names)
+                if (col.columnName != null && col.columnName.equalsIgnoreCase(name))
+                {
+                    named.add(col);
+                    break;
+                }
+        return named;
+    }
+
     /**
      * <p>
      * exists.
@@ -129,6 +191,7 @@ public class ColumnHelper
         context.keyLength = 0;
         context.rawRecordBytes = new byte[1][];
         context.rawRecordBytes[0] = data;
+        context.rawRecordLength = dataLength;
         context.recordNumber = recordNumber;
 
         extractColumnContentsFromRawData(funnelContext, recordNumber, dataLength, equations);
@@ -166,6 +229,7 @@ public class ColumnHelper
         context.key = new byte[maxKeyBytes + 1];
         context.keyLength = 0;
         context.rawRecordBytes = data;
+        context.rawRecordLength = -1;
         context.recordNumber = recordNumber;
 
         extractColumnContentsFromRawData(funnelContext, recordNumber, dataLength, equations);
@@ -183,37 +247,21 @@ public class ColumnHelper
     {
         if (funnelContext == null)
             return;
-        for (final KeyPart col : columns)
-        {
-            try
-            {
-                col.parseObject(context);
-                for (int e = 0; e < equations.length; e++)
-                {
-                    if (equations[e] != null)
-                        equations[e].getSupport().assignVariable(col.columnName, col.getContents());
-                }
-
-            } catch (final Exception e)
-            {
-                logger.warn("\"{}\" {} {} on record number {}",
-                        col.columnName,
-                        e.getClass().getSimpleName(),
-                        e.getMessage(),
-                        (recordNumber));
-            }
-        }
-        final Long rn = new Long(recordNumber);
-        final Long rs = new Long(dataLength);
+        recordSize = dataLength;
+        parseIntoEquations(extractedColumns == null
+                ? columns
+                : extractedColumns, recordNumber, dataLength, equations);
+    }
 
-        for (int e = 0; e < equations.length; e++)
-        {
-            if (equations[e] != null)
-            {
-                equations[e].getSupport().assignVariable(Funnel.SYS_RECORDNUMBER, rn);
-                equations[e].getSupport().assignVariable(Funnel.SYS_RECORDSIZE, rs);
-            }
-        }
+    /**
+     * Only parse the named columns in extract. The other columns are not
+     * needed before the records are sorted.
+     *
+     * @param names the names of the columns, null for all of them.
+     */
+    public void extractOnly(final Collection<String> names)
+    {
+        extractedColumns = columnsNamed(names);
     }
 
     /**
@@ -282,17 +330,113 @@ public class ColumnHelper
      */
     public void loadColumnsFromBytes(final byte[] data, final long dataLength, final long recordNumber)
     {
-        context.key = null;
-        context.keyLength = 0;
-        context.rawRecordBytes = new byte[1][];
-        context.rawRecordBytes[0] = data;
-        context.recordNumber = recordNumber;
+        setRecord(data, dataLength, recordNumber);
+
+        for (final KeyPart col : loadedColumns == null
+                ? columns
+                : loadedColumns)
+        {
+            try
+            {
+                col.parseObject(context);
+
+            } catch (final Exception e)
+            {
+                logger.warn("\"{}\" {} {} on record number {}",
+                        col.columnName,
+                        e.getClass().getSimpleName(),
+                        e.getMessage(),
+                        recordNumber);
+            }
+        }
+    }
+
+    /**
+     * Load the columns used by the output equations from a record and assign
+     * them, with the record number and size, to the equations as variables.
+     *
+     * @param data an array of byte.
+     * @param dataLength a int.
+     * @param recordNumber a long.
+     * @param equations an array of {@link com.obdobion.algebrain.Equ}
+     *            objects.
+     * @throws java.lang.Exception if any.
+     */
+    public void loadColumnsIntoEquations(
+            final byte[] data,
+            final int dataLength,
+            final long recordNumber,
+            final Equ... equations)
+                    throws Exception
+    {
+        setRecord(data, dataLength, recordNumber);
+        parseIntoEquations(equationColumns == null
+                ? columns
+                : equationColumns, recordNumber, dataLength, equations);
+    }
+
+    /**
+     * Only parse the named columns in loadColumnsIntoEquations.
+     *
+     * @param names the names of the columns, null for all of them.
+     */
+    public void loadIntoEquationsOnly(final Collection<String> names)
+    {
+        equationColumns = columnsNamed(names);
+    }
+
+    /**
+     * Only parse the named columns in loadColumnsFromBytes. These are the
+     * columns used by the aggregates and hex dumps of the publisher.
+     *
+     * @param names the names of the columns, null for all of them.
+     */
+    public void loadOnly(final Collection<String> names)
+    {
+        loadedColumns = columnsNamed(names);
+    }
 
+    /**
+     * A helper with its own copies of the column definitions. The copies hold
+     * their own parsed contents so that the copy can be used on a different
+     * thread than this helper.
+     *
+     * @return a {@link com.obdobion.funnel.columns.ColumnHelper} object.
+     * @throws java.text.ParseException if any.
+     */
+    public ColumnHelper newCopy() throws ParseException
+    {
+        final ColumnHelper myCopy = new ColumnHelper(maxKeyBytes);
         for (final KeyPart col : columns)
+            myCopy.add(col);
+        myCopy.extractedColumns = sameColumnsIn(myCopy, extractedColumns);
+        myCopy.loadedColumns = sameColumnsIn(myCopy, loadedColumns);
+        myCopy.equationColumns = sameColumnsIn(myCopy, equationColumns);
+        return myCopy;
+    }
+
+    /**
+     * Parse the columns from the record in the context and assign them, with
+     * the record number and size, to the equations as variables. A column that
+     * can not be parsed is logged and skipped.
+     */
+    private void parseIntoEquations(
+            final List<KeyPart> cols,
+            final long recordNumber,
+            final int dataLength,
+            final Equ... equations)
+                    throws Exception
+    {
+        for (final KeyPart col : cols)
         {
             try
             {
                 col.parseObject(context);
+                for (int e = 0; e < equations.length; e++)
+                {
+                    if (equations[e] != null)
+                        equations[e].getSupport().assignVariable(col.columnName, col.getContents());
+                }
 
             } catch (final Exception e)
             {
@@ -303,5 +447,41 @@ public class ColumnHelper
                         recordNumber);
             }
         }
+        if (equations.length == 0)
+            return;
+        final Long rn = Long.valueOf(recordNumber);
+        final Long rs = Long.valueOf(dataLength);
+
+        for (int e = 0; e < equations.length; e++)
+        {
+            if (equations[e] != null)
+            {
+                equations[e].getSupport().assignVariable(Funnel.SYS_RECORDNUMBER, rn);
+                equations[e].getSupport().assignVariable(Funnel.SYS_RECORDSIZE, rs);
+            }
+        }
+    }
+
+    /**
+     * The copies of some of these columns in a copy of this helper.
+     */
+    private List<KeyPart> sameColumnsIn(final ColumnHelper myCopy, final List<KeyPart> some)
+    {
+        if (some == null)
+            return null;
+        final List<KeyPart> same = new ArrayList<>();
+        for (final KeyPart col : some)
+            same.add(myCopy.columns.get(columns.indexOf(col)));
+        return same;
+    }
+
+    private void setRecord(final byte[] data, final long dataLength, final long recordNumber)
+    {
+        context.key = null;
+        context.keyLength = 0;
+        context.rawRecordBytes = record;
+        context.rawRecordBytes[0] = data;
+        context.rawRecordLength = (int) dataLength;
+        context.recordNumber = recordNumber;
     }
 }
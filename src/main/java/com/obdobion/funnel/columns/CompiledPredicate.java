@@ -0,0 +1,600 @@
+package com.obdobion.funnel.columns;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.obdobion.algebrain.Equ;
+import com.obdobion.funnel.Funnel;
+import com.obdobion.funnel.orderby.AlphaKey;
+import com.obdobion.funnel.orderby.KeyPart;
+
+/**
+ * A --where or --stopWhen equation that is evaluated against the columns of
+ * the current record.
+ * <p>
+ * The interpreter needs every column of every record assigned to the equation
+ * as a variable before it resolves the rpn of the equation one token at a
+ * time. Most selection equations only do arithmetic on and compare columns,
+ * the record number and size, and literals. Those are compiled once into a
+ * tree of typed operands that read the contents of the columns directly, and
+ * no variables are assigned to them. An equation that uses anything else, a
+ * function, a date or byte column, a header column or a variable that is not a
+ * column, is left to the interpreter.
+ * </p>
+ * <p>
+ * The operands follow the rules of the interpreter. A Long and a Double are
+ * combined as Doubles, division is always done in Doubles, the not operators
+ * are the negation of the others, and both sides of an and / or are always
+ * evaluated.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class CompiledPredicate
+{
+    abstract static class Operand
+    {
+        final int            type;
+        /*
+         * Set when the operand is a column or a constant, or when it can only
+         * be true if these comparisons on the raw record are.
+         */
+        KeyPart              column;
+        Object               constant;
+        List<RawFilter.Term> rawTerms;
+
+        Operand(final int _type)
+        {
+            type = _type;
+        }
+
+        boolean asBoolean() throws Exception
+        {
+            throw new IllegalStateException("not a boolean");
+        }
+
+        double asDouble() throws Exception
+        {
+            return asLong();
+        }
+
+        long asLong() throws Exception
+        {
+            throw new IllegalStateException("not an integer");
+        }
+
+        Object asObject() throws Exception
+        {
+            throw new IllegalStateException("not a string");
+        }
+
+        boolean isNumeric()
+        {
+            return type == Int || type == Float;
+        }
+    }
+
+    static final int Bool  = 0;
+    static final int Int   = 1;
+    static final int Float = 2;
+    static final int Text  = 3;
+
+    static Operand arithmetic(final String operator, final Operand left, final Operand right)
+    {
+        if (!left.isNumeric() || !right.isNumeric())
+            return null;
+        if ("divide".equals(operator))
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return left.asDouble() / right.asDouble();
+                }
+            };
+        if (left.type == Int && right.type == Int)
+        {
+            if ("add".equals(operator))
+                return new Operand(Int)
+                {
+                    @Override
+                    long asLong() throws Exception
+                    {
+                        return left.asLong() + right.asLong();
+                    }
+                };
+            if ("subtract".equals(operator))
+                return new Operand(Int)
+                {
+                    @Override
+                    long asLong() throws Exception
+                    {
+                        return left.asLong() - right.asLong();
+                    }
+                };
+            if ("multiply".equals(operator))
+                return new Operand(Int)
+                {
+                    @Override
+                    long asLong() throws Exception
+                    {
+                        return left.asLong() * right.asLong();
+                    }
+                };
+            if ("mod".equals(operator))
+                return new Operand(Int)
+                {
+                    @Override
+                    long asLong() throws Exception
+                    {
+                        return left.asLong() % right.asLong();
+                    }
+                };
+            return null;
+        }
+        if ("add".equals(operator))
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return left.asDouble() + right.asDouble();
+                }
+            };
+        if ("subtract".equals(operator))
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return left.asDouble() - right.asDouble();
+                }
+            };
+        if ("multiply".equals(operator))
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return left.asDouble() * right.asDouble();
+                }
+            };
+        if ("mod".equals(operator))
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return left.asDouble() % right.asDouble();
+                }
+            };
+        return null;
+    }
+
+    static Operand column(final KeyPart col)
+    {
+        final Operand operand = columnOperand(col);
+        if (operand != null)
+            operand.column = col;
+        return operand;
+    }
+
+    static Operand columnOperand(final KeyPart col)
+    {
+        if (col.isInteger())
+            return new Operand(Int)
+            {
+                @Override
+                long asLong() throws Exception
+                {
+                    return ((Long) contentsOf(col)).longValue();
+                }
+            };
+        if (col.isFloat())
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return ((Double) contentsOf(col)).doubleValue();
+                }
+            };
+        if (col instanceof AlphaKey)
+            return new Operand(Text)
+            {
+                @Override
+                Object asObject() throws Exception
+                {
+                    return contentsOf(col);
+                }
+            };
+        return null;
+    }
+
+    static Operand comparison(final String operator, final Operand left, final Operand right)
+    {
+        if ("compare equal".equals(operator))
+            return equality(left, right);
+        if ("compare not equal".equals(operator))
+            return not(equality(left, right));
+        if ("compare greater".equals(operator))
+            return greater(left, right);
+        if ("compare not greater".equals(operator))
+            return not(greater(left, right));
+        if ("compare less".equals(operator))
+            return greater(right, left);
+        if ("compare not less".equals(operator))
+            return not(greater(right, left));
+        return null;
+    }
+
+    /**
+     * Compile an equation.
+     *
+     * @param equ a {@link com.obdobion.algebrain.Equ} object.
+     * @param clause the name of the argument the equation came from.
+     * @param columnHelper the columns of the records.
+     * @param headerHelper the header columns, these are only known by the
+     *            interpreter.
+     * @return a {@link com.obdobion.funnel.columns.CompiledPredicate} object.
+     */
+    public static CompiledPredicate compile(
+            final Equ equ,
+            final String clause,
+            final ColumnHelper columnHelper,
+            final ColumnHelper headerHelper)
+    {
+        final Operand compiled = compileRpn(equ, columnHelper, headerHelper);
+        if (compiled != null)
+            return new CompiledPredicate(equ, compiled, true);
+        return new CompiledPredicate(equ, new Operand(Bool)
+        {
+            @Override
+            boolean asBoolean() throws Exception
+            {
+                final Object result = equ.evaluate();
+                if (result == null)
+                    return false;
+                if (!(result instanceof Boolean))
+                    throw new Exception(clause + " clause must evaluate to true or false");
+                return ((Boolean) result).booleanValue();
+            }
+        }, false);
+    }
+
+    /**
+     * The rpn is shown one token per line, as in "var(zipcode)", "num(5)",
+     * "lit(abc)" or "op(compare equal)".
+     */
+    static Operand compileRpn(final Equ equ, final ColumnHelper columnHelper, final ColumnHelper headerHelper)
+    {
+        String rpn;
+        try
+        {
+            rpn = equ.showRPN();
+        } catch (final Exception e)
+        {
+            return null;
+        }
+        final Deque<Operand> stack = new ArrayDeque<>();
+        for (final String token : rpn.split("\n"))
+        {
+            final int open = token.indexOf('(');
+            if (open <= 0 || !token.endsWith(")"))
+                return null;
+            final String kind = token.substring(0, open);
+            final String value = token.substring(open + 1, token.length() - 1);
+
+            Operand operand;
+            if ("var".equals(kind))
+                operand = variable(value, columnHelper, headerHelper);
+            else if ("num".equals(kind))
+                operand = number(value);
+            else if ("lit".equals(kind))
+                operand = literal(value);
+            else if ("op".equals(kind) && "negate".equals(value))
+            {
+                if (stack.isEmpty())
+                    return null;
+                operand = negate(stack.pop());
+            } else if ("op".equals(kind))
+            {
+                if (stack.size() < 2)
+                    return null;
+                final Operand right = stack.pop();
+                final Operand left = stack.pop();
+                if (value.startsWith("compare "))
+                {
+                    operand = comparison(value, left, right);
+                    if (operand != null)
+                        operand.rawTerms = RawFilter.terms(value, left, right);
+                } else if ("and".equals(value) || "or".equals(value))
+                {
+                    operand = logical(value, left, right);
+                    if (operand != null && "and".equals(value))
+                        operand.rawTerms = rawTermsOfBoth(left, right);
+                }
+                else
+                    operand = arithmetic(value, left, right);
+            } else
+                return null;
+
+            if (operand == null)
+                return null;
+            stack.push(operand);
+        }
+        if (stack.size() != 1 || stack.peek().type != Bool)
+            return null;
+        return stack.pop();
+    }
+
+    static Object contentsOf(final KeyPart col) throws Exception
+    {
+        final Object contents = col.getContents();
+        if (contents == null)
+            throw new Exception("\"" + col.columnName + "\" is unassigned");
+        return contents;
+    }
+
+    static Operand equality(final Operand left, final Operand right)
+    {
+        if (left.type == Int && right.type == Int)
+            return new Operand(Bool)
+            {
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return left.asLong() == right.asLong();
+                }
+            };
+        if (left.isNumeric() && right.isNumeric())
+            return new Operand(Bool)
+            {
+                /*
+                 * Double.equals, so NaN is equal to itself and 0.0 is not
+                 * equal to -0.0.
+                 */
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return Double.doubleToLongBits(left.asDouble()) == Double.doubleToLongBits(right.asDouble());
+                }
+            };
+        if (left.type == Text && right.type == Text)
+            return new Operand(Bool)
+            {
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return left.asObject().equals(right.asObject());
+                }
+            };
+        if (left.type == Bool && right.type == Bool)
+            return new Operand(Bool)
+            {
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return left.asBoolean() == right.asBoolean();
+                }
+            };
+        return null;
+    }
+
+    static Operand greater(final Operand left, final Operand right)
+    {
+        if (!left.isNumeric() || !right.isNumeric())
+            return null;
+        if (left.type == Int && right.type == Int)
+            return new Operand(Bool)
+            {
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return left.asLong() > right.asLong();
+                }
+            };
+        return new Operand(Bool)
+        {
+            @Override
+            boolean asBoolean() throws Exception
+            {
+                return left.asDouble() > right.asDouble();
+            }
+        };
+    }
+
+    static Operand literal(final String value)
+    {
+        final Operand operand = new Operand(Text)
+        {
+            @Override
+            Object asObject() throws Exception
+            {
+                return value;
+            }
+        };
+        operand.constant = value;
+        return operand;
+    }
+
+    static Operand logical(final String operator, final Operand left, final Operand right)
+    {
+        if (left.type != Bool || right.type != Bool)
+            return null;
+        if ("and".equals(operator))
+            return new Operand(Bool)
+            {
+                @Override
+                boolean asBoolean() throws Exception
+                {
+                    return left.asBoolean() & right.asBoolean();
+                }
+            };
+        return new Operand(Bool)
+        {
+            @Override
+            boolean asBoolean() throws Exception
+            {
+                return left.asBoolean() | right.asBoolean();
+            }
+        };
+    }
+
+    static Operand negate(final Operand operand)
+    {
+        if (operand.type == Int)
+            return new Operand(Int)
+            {
+                @Override
+                long asLong() throws Exception
+                {
+                    return 0 - operand.asLong();
+                }
+            };
+        if (operand.type == Float)
+            return new Operand(Float)
+            {
+                @Override
+                double asDouble() throws Exception
+                {
+                    return 0 - operand.asDouble();
+                }
+            };
+        return null;
+    }
+
+    static Operand not(final Operand operand)
+    {
+        if (operand == null)
+            return null;
+        return new Operand(Bool)
+        {
+            @Override
+            boolean asBoolean() throws Exception
+            {
+                return !operand.asBoolean();
+            }
+        };
+    }
+
+    static Operand number(final String value)
+    {
+        try
+        {
+            if (value.indexOf('.') >= 0)
+            {
+                final double number = Double.parseDouble(value);
+                final Operand operand = new Operand(Float)
+                {
+                    @Override
+                    double asDouble() throws Exception
+                    {
+                        return number;
+                    }
+                };
+                operand.constant = Double.valueOf(number);
+                return operand;
+            }
+            final long number = Long.parseLong(value);
+            final Operand operand = new Operand(Int)
+            {
+                @Override
+                long asLong() throws Exception
+                {
+                    return number;
+                }
+            };
+            operand.constant = Long.valueOf(number);
+            return operand;
+        } catch (final NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    static List<RawFilter.Term> rawTermsOfBoth(final Operand left, final Operand right)
+    {
+        if (left.rawTerms == null)
+            return right.rawTerms;
+        if (right.rawTerms == null)
+            return left.rawTerms;
+        final List<RawFilter.Term> both = new ArrayList<>(left.rawTerms);
+        both.addAll(right.rawTerms);
+        return both;
+    }
+
+    static Operand variable(final String name, final ColumnHelper columnHelper, final ColumnHelper headerHelper)
+    {
+        if (Funnel.SYS_RECORDNUMBER.equalsIgnoreCase(name))
+            return new Operand(Int)
+            {
+                @Override
+                long asLong() throws Exception
+                {
+                    return columnHelper.context.recordNumber;
+                }
+            };
+        if (Funnel.SYS_RECORDSIZE.equalsIgnoreCase(name))
+            return new Operand(Int)
+            {
+                @Override
+                long asLong() throws Exception
+                {
+                    return columnHelper.recordSize;
+                }
+            };
+        if (headerHelper != null && headerHelper.exists(name))
+            return null;
+        if (!columnHelper.exists(name))
+            return null;
+        return column(columnHelper.get(name));
+    }
+
+    final Equ     equ;
+    final Operand root;
+    final boolean compiled;
+
+    CompiledPredicate(final Equ _equ, final Operand _root, final boolean _compiled)
+    {
+        equ = _equ;
+        root = _root;
+        compiled = _compiled;
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>equ</code>.
+     * </p>
+     *
+     * @return a {@link com.obdobion.algebrain.Equ} object.
+     */
+    public Equ getEqu()
+    {
+        return equ;
+    }
+
+    /**
+     * Columns only need to be assigned as variables to equations that are not
+     * compiled.
+     *
+     * @return a boolean.
+     */
+    public boolean isCompiled()
+    {
+        return compiled;
+    }
+
+    /**
+     * Evaluate the equation for the current record.
+     *
+     * @return a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public boolean isTrue() throws Exception
+    {
+        return root.asBoolean();
+    }
+}
@@ -1,15 +1,9 @@
 package com.obdobion.funnel.columns;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Formatter;
-
 import com.obdobion.algebrain.Equ;
-import com.obdobion.algebrain.token.TokVariable;
 import com.obdobion.argument.annotation.Arg;
-import com.obdobion.funnel.orderby.KeyContext;
 import com.obdobion.funnel.orderby.KeyPart;
 import com.obdobion.funnel.orderby.KeyType;
-import com.obdobion.funnel.parameters.FunnelContext;
 
 /**
  * <p>
@@ -102,88 +96,23 @@ public class FormatPart
     }
 
     /**
-     * <p>
-     * originalData.
-     * </p>
+     * A copy of this part that is not linked to the parts that follow it. The
+     * equation is shared until it is replaced.
      *
-     * @param keyContext a {@link com.obdobion.funnel.orderby.KeyContext}
-     *            object.
-     * @param funnelContext a
-     *            {@link com.obdobion.funnel.parameters.FunnelContext} object.
-     * @param originalSize a int.
-     * @param outputBytes a {@link java.io.ByteArrayOutputStream} object.
-     * @throws java.lang.Exception if any.
+     * @return a {@link com.obdobion.funnel.columns.FormatPart} object.
      */
-    public void originalData(
-            final KeyContext keyContext,
-            final FunnelContext funnelContext,
-            final int originalSize,
-            final ByteArrayOutputStream outputBytes) throws Exception
+    public FormatPart newCopy()
     {
-        if (column != null)
-            writeToOutput(outputBytes, keyContext.rawRecordBytes[0], column.offset, column.length, originalSize);
-        else if (equation != null)
-        {
-            final Object result = equation.evaluate();
-            if (result instanceof TokVariable)
-                throw new Exception("invalid equation result for --format(" + equation.toString() + ")");
-
-            if (typeName == null || KeyType.String == typeName)
-                if (result instanceof String)
-                {
-                    final String sResult = (String) result;
-                    writeToOutput(outputBytes, sResult.getBytes(), offset, sResult.length(), sResult.length());
-                } else if (format == null)
-                {
-                    final String sResult = result.toString();
-                    writeToOutput(outputBytes, sResult.getBytes(), offset, sResult.length(), sResult.length());
-                } else
-                    try (Formatter formatter = new Formatter())
-                    {
-                        final String sResult = formatter.format(format, result).out().toString();
-                        writeToOutput(outputBytes, sResult.getBytes(), offset, sResult.length(), sResult.length());
-                    }
-        } else if (funnelContext.headerHelper.exists(columnName))
-        {
-            final KeyPart headerCol = funnelContext.headerHelper.get(columnName);
-            final byte[] result = funnelContext.headerHelper.getContents(headerCol);
-            writeToOutput(outputBytes, result, offset, result.length, result.length);
-
-        } else
-            /*
-             * filler only
-             */
-            writeToOutput(outputBytes, null, 0, 0, 0);
-        if (nextPart != null)
-            nextPart.originalData(keyContext, funnelContext, originalSize, outputBytes);
-    }
-
-    private void writeToOutput(
-            final ByteArrayOutputStream outputBytes,
-            final byte[] rawBytes,
-            final int columnOffset,
-            final int columnLength,
-            final int originalSize)
-    {
-        final int offsetForOutput = columnOffset + offset;
-
-        int dataLength = columnLength;
-        if (originalSize < offsetForOutput + dataLength)
-            dataLength = originalSize - offsetForOutput;
-        if (length < dataLength)
-            dataLength = length;
-        if (rawBytes != null)
-            outputBytes.write(rawBytes, offsetForOutput, dataLength);
-
-        int lengthWithFiller = columnLength;
-        if (length != 255) // 255 means not specified
-            lengthWithFiller = length;
-        if (size != 255) // 255 means not specified
-            lengthWithFiller = size;
-        if (lengthWithFiller == 255)
-            lengthWithFiller = dataLength;
-        if (lengthWithFiller > dataLength)
-            for (int x = 0; x < lengthWithFiller - dataLength; x++)
-                outputBytes.write(filler);
+        final FormatPart myCopy = new FormatPart();
+        myCopy.columnName = columnName;
+        myCopy.typeName = typeName;
+        myCopy.equation = equation;
+        myCopy.format = format;
+        myCopy.offset = offset;
+        myCopy.length = length;
+        myCopy.size = size;
+        myCopy.filler = filler;
+        myCopy.column = column;
+        return myCopy;
     }
 }
@@ -0,0 +1,233 @@
+package com.obdobion.funnel.columns;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * The --format of an output equation, parsed once.
+ * <p>
+ * A pattern that is a single %d, %s or %f conversion, with an optional width,
+ * the 0 or - flag and a precision for %f, and any text around it that has no
+ * other %, is written directly. The number is written the way Formatter would
+ * write it, so a %f that is too close to half way between two results to be
+ * sure of the rounding, or a value of the wrong type, is left to a Formatter.
+ * Every other pattern is always left to the Formatter, which is reused from
+ * row to row.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class FormatPattern
+{
+    static final long[] PowersOfTen = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L };
+
+    /**
+     * <p>
+     * compile.
+     * </p>
+     *
+     * @param format a {@link java.util.Formatter} pattern.
+     * @return a {@link com.obdobion.funnel.columns.FormatPattern} object.
+     */
+    static public FormatPattern compile(final String format)
+    {
+        final FormatPattern pattern = new FormatPattern(format);
+        pattern.parse();
+        return pattern;
+    }
+
+    static boolean isPlainLocale()
+    {
+        final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale
+                .getDefault(Locale.Category.FORMAT));
+        return symbols.getZeroDigit() == '0'
+                && symbols.getMinusSign() == '-'
+                && symbols.getDecimalSeparator() == '.';
+    }
+
+    final String  format;
+    /*
+     * The conversion when it is written directly, 0 when it is not.
+     */
+    char          conversion;
+    String        prefix;
+    String        suffix;
+    int           width;
+    int           precision;
+    boolean       leftJustify;
+    boolean       zeroPad;
+    StringBuilder digits;
+    StringBuilder formatted;
+    Formatter     formatter;
+
+    FormatPattern(final String _format)
+    {
+        format = _format;
+    }
+
+    private boolean direct(final Object value, final StringBuilder out)
+    {
+        if (conversion == 's')
+        {
+            if (value == null || value instanceof Formattable)
+                return false;
+            digits.setLength(0);
+            digits.append(value.toString());
+            pad(out, false);
+            return true;
+        }
+        if (conversion == 'd')
+        {
+            if (!(value instanceof Long || value instanceof Integer))
+                return false;
+            final long number = ((Number) value).longValue();
+            if (number == Long.MIN_VALUE)
+                return false;
+            digits.setLength(0);
+            digits.append(Math.abs(number));
+            pad(out, number < 0);
+            return true;
+        }
+        if (!(value instanceof Double))
+            return false;
+        final double number = ((Double) value).doubleValue();
+        if (Double.isNaN(number) || Double.isInfinite(number))
+            return false;
+        /*
+         * Formatter rounds half up from the shortest decimal that is the
+         * double. That is only certain here when the scaled value is not too
+         * close to half way.
+         */
+        final long scale = PowersOfTen[precision];
+        final double scaled = Math.abs(number) * scale;
+        if (scaled >= 1e12)
+            return false;
+        long rounded = (long) scaled;
+        final double fraction = scaled - rounded;
+        if (Math.abs(fraction - 0.5) < 1e-3)
+            return false;
+        if (fraction > 0.5)
+            rounded++;
+
+        digits.setLength(0);
+        digits.append(rounded / scale);
+        if (precision > 0)
+        {
+            digits.append('.');
+            final long decimals = rounded % scale;
+            for (long p = scale / 10; p > decimals && p > 1; p /= 10)
+                digits.append('0');
+            digits.append(decimals);
+        }
+        pad(out, Double.doubleToRawLongBits(number) < 0);
+        return true;
+    }
+
+    /**
+     * Append the formatted value to the text.
+     *
+     * @param value the result of an equation.
+     * @param out the text of the value.
+     */
+    public void format(final Object value, final StringBuilder out)
+    {
+        if (conversion != 0 && direct(value, out))
+            return;
+        if (formatter == null)
+        {
+            formatted = new StringBuilder();
+            formatter = new Formatter(formatted);
+        }
+        formatted.setLength(0);
+        formatter.format(format, value);
+        out.append(formatted);
+    }
+
+    private void pad(final StringBuilder out, final boolean negative)
+    {
+        out.append(prefix);
+        final int fill = width - digits.length() - (negative
+                ? 1
+                : 0);
+        if (!leftJustify && !zeroPad)
+            for (int f = 0; f < fill; f++)
+                out.append(' ');
+        if (negative)
+            out.append('-');
+        if (zeroPad)
+            for (int f = 0; f < fill; f++)
+                out.append('0');
+        out.append(digits);
+        if (leftJustify)
+            for (int f = 0; f < fill; f++)
+                out.append(' ');
+        out.append(suffix);
+    }
+
+    private void parse()
+    {
+        final int start = format.indexOf('%');
+        if (start < 0 || !isPlainLocale())
+            return;
+        int c = start + 1;
+        if (c < format.length() && format.charAt(c) == '-')
+        {
+            leftJustify = true;
+            c++;
+        } else if (c < format.length() && format.charAt(c) == '0')
+        {
+            zeroPad = true;
+            c++;
+        }
+        if (c < format.length() && format.charAt(c) == '0')
+            return;
+        while (c < format.length() && Character.isDigit(format.charAt(c)) && width < 1000)
+            width = width * 10 + format.charAt(c++) - '0';
+        boolean precisionGiven = false;
+        if (c < format.length() && format.charAt(c) == '.')
+        {
+            c++;
+            precisionGiven = true;
+            final int precisionStart = c;
+            while (c < format.length() && Character.isDigit(format.charAt(c)) && precision < 100)
+                precision = precision * 10 + format.charAt(c++) - '0';
+            if (c == precisionStart)
+                return;
+        }
+        if (c >= format.length())
+            return;
+        final char candidate = format.charAt(c);
+        final String rest = format.substring(c + 1);
+        if (rest.indexOf('%') >= 0)
+            return;
+        /*
+         * Only the combinations that Formatter accepts.
+         */
+        if ((leftJustify || zeroPad) && width == 0)
+            return;
+        if (candidate == 's')
+        {
+            if (zeroPad || precisionGiven)
+                return;
+        } else if (candidate == 'd')
+        {
+            if (precisionGiven)
+                return;
+        } else if (candidate == 'f')
+        {
+            if (!precisionGiven)
+                precision = 6;
+            if (precision >= PowersOfTen.length)
+                return;
+        } else
+            return;
+
+        conversion = candidate;
+        prefix = format.substring(0, start);
+        suffix = rest;
+        digits = new StringBuilder();
+    }
+}
@@ -88,6 +88,18 @@ public class HeaderHelper extends ColumnHelper
         return headerCol.getContentsAsByteArray();
     }
 
+    /**
+     * <p>
+     * Getter for the field <code>originalHeaderRow</code>.
+     * </p>
+     *
+     * @return an array of byte.
+     */
+    public byte[] getOriginalHeaderRow()
+    {
+        return originalHeaderRow;
+    }
+
     /**
      * <p>
      * isWaitingForInput.
@@ -106,6 +118,18 @@ public class HeaderHelper extends ColumnHelper
         return false;
     }
 
+    /**
+     * Used when the header has already been read in an earlier run of this
+     * same sort, see --resume.
+     *
+     * @param headerRow an array of byte.
+     */
+    public void setOriginalHeaderRow(final byte[] headerRow)
+    {
+        originalHeaderRow = headerRow;
+        waitingForInput = false;
+    }
+
     /**
      * <p>
      * Setter for the field <code>waitingForInput</code>.
@@ -3,7 +3,6 @@ package com.obdobion.funnel.columns;
 import java.io.IOException;
 
 import com.obdobion.funnel.parameters.FunnelContext;
-import com.obdobion.funnel.segment.SourceProxyRecord;
 
 /**
  * <p>
@@ -50,13 +49,10 @@ public class HeaderOutHelper extends OutputFormatHelper
         }
         try
         {
-            final SourceProxyRecord dummyProxy = SourceProxyRecord.getInstance(funnelContext);
-            dummyProxy.setOriginalRecordNumber(0);
             byte[] data = headerHelper.originalHeaderRow;
             if (data == null)
                 data = new byte[0];
-            dummyProxy.originalSize = data.length;
-            extract(funnelContext, data, dummyProxy);
+            extract(funnelContext, data, data.length, 0);
         } catch (final Exception e)
         {
             throw new IOException(e.getMessage(), e);
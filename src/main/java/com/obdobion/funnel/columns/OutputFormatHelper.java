@@ -1,6 +1,5 @@
 package com.obdobion.funnel.columns;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -59,6 +58,11 @@ public class OutputFormatHelper
     final ColumnHelper columnHelper;
     final HeaderHelper headerHelper;
     FormatPart         formatter;
+    /*
+     * Made from the formatter when the first row is written.
+     */
+    OutputPlan         plan;
+    final byte[][]     record;
 
     List<FormatPart>   columns;
 
@@ -85,6 +89,7 @@ public class OutputFormatHelper
 
         maxRecordBytes = maxsize;
         context = new KeyContext();
+        record = new byte[1][];
         columns = new ArrayList<>();
         columnHelper = _columnHelper;
         headerHelper = _headerHelper;
@@ -125,22 +130,21 @@ public class OutputFormatHelper
      * @return
      * @throws Exception
      */
-    KeyContext extract(final FunnelContext funnelContext, final byte[] data, final SourceProxyRecord proxyRecord)
-            throws Exception
+    KeyContext extract(
+            final FunnelContext funnelContext,
+            final byte[] data,
+            final int originalSize,
+            final long recordNumber)
+                    throws Exception
     {
-        /*
-         * The extra byte is for a 0x00 character to be placed at the end of
-         * String keys. This is important in order to handle keys where the user
-         * specified the maximum length for a String key. Or took the default
-         * sort, which is the maximum key.
-         */
-        context.key = new byte[maxRecordBytes + 1];
+        if (plan == null)
+            plan = new OutputPlan(formatter, maxRecordBytes);
         context.keyLength = 0;
-        context.rawRecordBytes = new byte[1][];
+        context.rawRecordBytes = record;
         context.rawRecordBytes[0] = data;
-        context.recordNumber = proxyRecord.getOriginalRecordNumber();
+        context.rawRecordLength = originalSize;
+        context.recordNumber = recordNumber;
 
-        final ByteArrayOutputStream output = new ByteArrayOutputStream(maxRecordBytes);
         /*
          * Use the output column definitions to format here. The real issue is
          * that the input computations and system variables are not available at
@@ -149,11 +153,12 @@ public class OutputFormatHelper
          * writing it is necessary to recompute those fields.
          */
         prepareEquationsWithOriginalColumnData(funnelContext);
-        formatter.originalData(context, funnelContext, proxyRecord.originalSize, output);
+        plan.write(context, funnelContext, originalSize);
 
-        context.key = output.toByteArray();
-        context.keyLength = context.key.length;
+        context.key = plan.getOutput();
+        context.keyLength = plan.getOutputLength();
 
+        record[0] = null;
         context.rawRecordBytes = null;
         return context;
     }
@@ -177,6 +182,32 @@ public class OutputFormatHelper
             final int dataSize,
             final SourceProxyRecord proxyRecord,
             final boolean rightTrim) throws Exception
+    {
+        format(writer, proxyRecord.getFunnelContext(), originalData, dataSize, proxyRecord.originalSize,
+                proxyRecord.getOriginalRecordNumber(), rightTrim);
+    }
+
+    /**
+     * Format a record that is known only by its bytes, size and record number.
+     *
+     * @param writer a {@link com.obdobion.funnel.columns.ColumnWriter} object.
+     * @param funnelContext a
+     *            {@link com.obdobion.funnel.parameters.FunnelContext} object.
+     * @param originalData an array of byte.
+     * @param dataSize the number of bytes written when there is no --formatOut.
+     * @param originalSize the length of the original record.
+     * @param recordNumber the original record number.
+     * @param rightTrim a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public void format(
+            final ColumnWriter writer,
+            final FunnelContext funnelContext,
+            final byte[] originalData,
+            final int dataSize,
+            final int originalSize,
+            final long recordNumber,
+            final boolean rightTrim) throws Exception
     {
         if (formatter == null)
         {
@@ -184,7 +215,7 @@ public class OutputFormatHelper
             writer.write(originalData, 0, lengthToWrite);
             return;
         }
-        extract(proxyRecord.getFunnelContext(), originalData, proxyRecord);
+        extract(funnelContext, originalData, originalSize, recordNumber);
 
         final int lengthToWrite = lengthToWrite(context.key, 0, context.keyLength, rightTrim);
         writer.write(context.key, 0, lengthToWrite);
@@ -270,6 +301,45 @@ public class OutputFormatHelper
         return referencesToAllOutputFormatEquations;
     }
 
+    /**
+     * A helper with its own copies of the columns and of the --formatOut
+     * equations, for formatting on a different thread than this helper. It
+     * only formats rows; the header and aggregate equations are not copied.
+     *
+     * @param funnelContext a
+     *            {@link com.obdobion.funnel.parameters.FunnelContext} object.
+     * @return a {@link com.obdobion.funnel.columns.OutputFormatHelper} object.
+     * @throws java.lang.Exception if any.
+     */
+    public OutputFormatHelper newCopy(final FunnelContext funnelContext) throws Exception
+    {
+        final OutputFormatHelper myCopy = new OutputFormatHelper(columnHelper.newCopy(), headerHelper, maxRecordBytes);
+        final List<Equ> equations = new ArrayList<>();
+        for (FormatPart part = formatter; part != null; part = part.nextPart)
+        {
+            final FormatPart partCopy = part.newCopy();
+            if (part.equation != null)
+            {
+                partCopy.equation = Equ.getInstance(true);
+                partCopy.equation.compile(part.equation.toString());
+                /*
+                 * Header columns are only read once, before any copies are
+                 * made.
+                 */
+                for (final KeyPart headerCol : funnelContext.headerHelper.getColumns())
+                    if (headerCol.getContents() != null)
+                        partCopy.equation.getSupport().assignVariable(headerCol.columnName, headerCol.getContents());
+                equations.add(partCopy.equation);
+            }
+            if (myCopy.formatter == null)
+                myCopy.formatter = partCopy;
+            else
+                myCopy.formatter.add(partCopy);
+        }
+        myCopy.referencesToAllOutputFormatEquations = equations.toArray(new Equ[equations.size()]);
+        return myCopy;
+    }
+
     private void prepareEquationsWithOriginalColumnData(final FunnelContext funnelContext) throws Exception
     {
         /*
@@ -279,11 +349,14 @@ public class OutputFormatHelper
         /*
          * Just to get the variables in the equation loaded from the original
          * record. This loading the column values into the aggregate equations
-         * too.
+         * too. A copy for a publishing thread has its own columns, the header
+         * has none.
          */
-        funnelContext.columnHelper
-                .extract(funnelContext, context.rawRecordBytes[0], context.recordNumber,
-                        context.rawRecordBytes[0].length, referencesToAllOutputFormatEquations);
+        final ColumnHelper recordColumns = columnHelper == null
+                ? funnelContext.columnHelper
+                : columnHelper;
+        recordColumns.loadColumnsIntoEquations(context.rawRecordBytes[0], context.rawRecordLength,
+                context.recordNumber, referencesToAllOutputFormatEquations);
         /*
          * In order to get the aggregate values into the format equations they
          * will also be needlessly loaded back into the aggregate equations too.
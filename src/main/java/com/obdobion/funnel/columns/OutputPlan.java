@@ -0,0 +1,271 @@
+package com.obdobion.funnel.columns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.obdobion.algebrain.token.TokVariable;
+import com.obdobion.funnel.orderby.KeyContext;
+import com.obdobion.funnel.orderby.KeyPart;
+import com.obdobion.funnel.orderby.KeyType;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * The --formatOut columns flattened into arrays once, and written for each row
+ * into a buffer that is reused from row to row.
+ * <p>
+ * For each column the offset and length of its bytes in the record, the most
+ * bytes that are written, the width it is filled to and the filler are worked
+ * out when the plan is made. Only the length of the record is needed for each
+ * row. The text of an equation is formatted with a {@link FormatPattern} into
+ * a reused StringBuilder.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class OutputPlan
+{
+    static final int      Column   = 0;
+    static final int      Equation = 1;
+    static final int      Header   = 2;
+
+    final int[]           kind;
+    final FormatPart[]    parts;
+    /*
+     * The offset of the bytes of a column in the record, or of the text of an
+     * equation or header, and of the filler only; the length of the column;
+     * the most bytes that are written; and the width filled to, -1 for the
+     * width of the data.
+     */
+    final int[]           sourceOffset;
+    final int[]           fillerOffset;
+    final int[]           sourceLength;
+    final int[]           maxLength;
+    final int[]           width;
+    final byte[]          filler;
+    final FormatPattern[] patterns;
+    final StringBuilder   text;
+    byte[]                textBytes;
+    byte[]                output;
+    int                   outputLength;
+
+    /**
+     * <p>
+     * Constructor for OutputPlan.
+     * </p>
+     *
+     * @param first the first of the linked --formatOut columns.
+     * @param initialSize the size of the output buffer, it grows if needed.
+     */
+    public OutputPlan(final FormatPart first, final int initialSize)
+    {
+        final List<FormatPart> list = new ArrayList<>();
+        for (FormatPart part = first; part != null; part = part.nextPart)
+            list.add(part);
+        parts = list.toArray(new FormatPart[list.size()]);
+
+        kind = new int[parts.length];
+        sourceOffset = new int[parts.length];
+        fillerOffset = new int[parts.length];
+        sourceLength = new int[parts.length];
+        maxLength = new int[parts.length];
+        width = new int[parts.length];
+        filler = new byte[parts.length];
+        patterns = new FormatPattern[parts.length];
+        for (int p = 0; p < parts.length; p++)
+        {
+            final FormatPart part = parts[p];
+            if (part.column != null)
+            {
+                kind[p] = Column;
+                sourceOffset[p] = part.column.offset + part.offset;
+                sourceLength[p] = part.column.length;
+            } else
+            {
+                kind[p] = part.equation != null
+                        ? Equation
+                        : Header;
+                /*
+                 * The text is written from twice the offset, as it always has
+                 * been.
+                 */
+                sourceOffset[p] = part.offset + part.offset;
+                if (part.format != null)
+                    patterns[p] = FormatPattern.compile(part.format);
+            }
+            fillerOffset[p] = part.offset;
+
+            maxLength[p] = part.length;
+            width[p] = -1;
+            if (part.length != 255) // 255 means not specified
+                width[p] = part.length;
+            if (part.size != 255) // 255 means not specified
+                width[p] = part.size;
+            filler[p] = part.filler;
+        }
+        text = new StringBuilder();
+        textBytes = new byte[64];
+        output = new byte[initialSize];
+    }
+
+    private void ensureRoom(final int more)
+    {
+        if (outputLength + more > output.length)
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + more));
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>output</code>.
+     * </p>
+     *
+     * @return the bytes of the most recent row, reused for the next one.
+     */
+    public byte[] getOutput()
+    {
+        return output;
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>outputLength</code>.
+     * </p>
+     *
+     * @return the length of the most recent row.
+     */
+    public int getOutputLength()
+    {
+        return outputLength;
+    }
+
+    private void put(
+            final int p,
+            final byte[] rawBytes,
+            final int offsetForOutput,
+            final int columnLength,
+            final int originalSize)
+    {
+        int dataLength = columnLength;
+        if (originalSize < offsetForOutput + dataLength)
+            dataLength = originalSize - offsetForOutput;
+        if (maxLength[p] < dataLength)
+            dataLength = maxLength[p];
+        if (rawBytes != null)
+        {
+            if (dataLength < 0 || offsetForOutput < 0 || offsetForOutput + dataLength > rawBytes.length)
+                throw new IndexOutOfBoundsException("output column " + p);
+            ensureRoom(dataLength);
+            System.arraycopy(rawBytes, offsetForOutput, output, outputLength, dataLength);
+            outputLength += dataLength;
+        }
+
+        int lengthWithFiller = width[p];
+        if (lengthWithFiller == -1)
+            lengthWithFiller = columnLength == 255
+                    ? dataLength
+                    : columnLength;
+        if (lengthWithFiller > dataLength)
+        {
+            ensureRoom(lengthWithFiller - dataLength);
+            Arrays.fill(output, outputLength, outputLength + lengthWithFiller - dataLength, filler[p]);
+            outputLength += lengthWithFiller - dataLength;
+        }
+    }
+
+    private void putText(final int p)
+    {
+        /*
+         * The text is written as its bytes but measured in characters.
+         */
+        final int length = text.length();
+        byte[] bytes;
+        if (length <= textBytes.length)
+        {
+            bytes = textBytes;
+            for (int c = 0; c < length; c++)
+            {
+                final char ch = text.charAt(c);
+                if (ch > 0x7f)
+                {
+                    bytes = null;
+                    break;
+                }
+                bytes[c] = (byte) ch;
+            }
+        } else
+            bytes = null;
+        if (bytes == null)
+        {
+            final byte[] encoded = text.toString().getBytes();
+            if (encoded.length == length && length > textBytes.length)
+                textBytes = new byte[Math.max(length, textBytes.length * 2)];
+            bytes = encoded;
+        }
+        put(p, bytes, sourceOffset[p], length, length);
+    }
+
+    /**
+     * Format a row into the output buffer.
+     *
+     * @param keyContext holds the original record.
+     * @param funnelContext a
+     *            {@link com.obdobion.funnel.parameters.FunnelContext} object.
+     * @param originalSize the length of the original record.
+     * @throws java.lang.Exception if any.
+     */
+    public void write(final KeyContext keyContext, final FunnelContext funnelContext, final int originalSize)
+            throws Exception
+    {
+        outputLength = 0;
+        for (int p = 0; p < parts.length; p++)
+        {
+            switch (kind[p])
+            {
+                case Column:
+                    put(p, keyContext.rawRecordBytes[0], sourceOffset[p], sourceLength[p], originalSize);
+                    break;
+                case Equation:
+                    writeEquation(p);
+                    break;
+                default:
+                    if (funnelContext.headerHelper.exists(parts[p].columnName))
+                    {
+                        /*
+                         * The header columns are shared by the plans of all of
+                         * the publishing threads and are parsed again for each
+                         * row.
+                         */
+                        synchronized (funnelContext.headerHelper)
+                        {
+                            final KeyPart headerCol = funnelContext.headerHelper.get(parts[p].columnName);
+                            final byte[] result = funnelContext.headerHelper.getContents(headerCol);
+                            put(p, result, sourceOffset[p], result.length, result.length);
+                        }
+                    } else
+                        /*
+                         * filler only
+                         */
+                        put(p, null, fillerOffset[p], 0, 0);
+            }
+        }
+    }
+
+    private void writeEquation(final int p) throws Exception
+    {
+        final FormatPart part = parts[p];
+        final Object result = part.equation.evaluate();
+        if (result instanceof TokVariable)
+            throw new Exception("invalid equation result for --format(" + part.equation.toString() + ")");
+
+        if (part.typeName != null && KeyType.String != part.typeName)
+            return;
+        text.setLength(0);
+        if (result instanceof String)
+            text.append((String) result);
+        else if (patterns[p] == null)
+            text.append(result.toString());
+        else
+            patterns[p].format(result, text);
+        putText(p);
+    }
+}
@@ -0,0 +1,243 @@
+package com.obdobion.funnel.columns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.obdobion.funnel.orderby.AlphaKey;
+import com.obdobion.funnel.orderby.DisplayIntKey;
+import com.obdobion.funnel.orderby.KeyPart;
+
+/**
+ * The comparisons of a single fixed position column with a literal that every
+ * selected record must pass, checked on the bytes of the record before any of
+ * its columns are parsed.
+ * <p>
+ * A compiled --where equation that is an "and" of comparisons, or one that is
+ * a comparison, can only be true when each of them is. A String column
+ * compared for equality with a literal and a display Integer column compared
+ * with a whole number are read from the record the same way the column would
+ * parse them. A record that fails any of them is not selected, and none of its
+ * columns are extracted. A record that passes is parsed and the equations are
+ * evaluated as usual, so this only ever removes work.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class RawFilter
+{
+    abstract static class Term
+    {
+        final KeyPart column;
+
+        Term(final KeyPart _column)
+        {
+            column = _column;
+        }
+
+        /**
+         * @return false only if the comparison is certainly false for this
+         *         record.
+         */
+        abstract boolean mayBeTrue(byte[] row, int rowLength);
+    }
+
+    static class IntegerTerm extends Term
+    {
+        final String comparison;
+        final long   literal;
+
+        IntegerTerm(final KeyPart _column, final String _comparison, final long _literal)
+        {
+            super(_column);
+            comparison = _comparison;
+            literal = _literal;
+        }
+
+        @Override
+        boolean mayBeTrue(final byte[] row, final int rowLength)
+        {
+            /*
+             * The same scan as DisplayIntKey.
+             */
+            final int lengthThisTime = Math.max(0, Math.min(column.length, rowLength - column.offset));
+            long value = 0;
+            int digits = 0;
+            boolean minusSignFound = false;
+            for (int b = 0; b < lengthThisTime; b++)
+            {
+                final byte bb = row[column.offset + b];
+                if (bb >= (byte) '0' && bb <= (byte) '9')
+                {
+                    /*
+                     * Too many digits for a long, leave it to the column.
+                     */
+                    if (++digits > 18)
+                        return true;
+                    value = value * 10 + (bb - '0');
+                    continue;
+                }
+                if (bb == (byte) ',')
+                    continue;
+                if (bb == (byte) '-')
+                {
+                    minusSignFound = true;
+                    continue;
+                }
+                if (bb == (byte) '.')
+                    break;
+                if (digits > 0)
+                    break;
+            }
+            if (minusSignFound)
+                value = -value;
+
+            if ("compare equal".equals(comparison))
+                return value == literal;
+            if ("compare not equal".equals(comparison))
+                return value != literal;
+            if ("compare greater".equals(comparison))
+                return value > literal;
+            if ("compare not greater".equals(comparison))
+                return value <= literal;
+            if ("compare less".equals(comparison))
+                return value < literal;
+            if ("compare not less".equals(comparison))
+                return value >= literal;
+            return true;
+        }
+    }
+
+    static class StringTerm extends Term
+    {
+        final byte[]  literal;
+        final boolean equal;
+
+        StringTerm(final KeyPart _column, final byte[] _literal, final boolean _equal)
+        {
+            super(_column);
+            literal = _literal;
+            equal = _equal;
+        }
+
+        @Override
+        boolean mayBeTrue(final byte[] row, final int rowLength)
+        {
+            /*
+             * The same bytes as AlphaKey, up to the end of the record or a
+             * 0x00 and then right trimmed.
+             */
+            int endOffset = column.offset;
+            for (; endOffset < column.offset + column.length; endOffset++)
+                if (rowLength <= endOffset || row[endOffset] == 0)
+                    break;
+            final int length = OutputFormatHelper.lengthToWrite(row, column.offset, endOffset - column.offset, true);
+
+            boolean same = length == literal.length;
+            for (int b = 0; same && b < length; b++)
+                same = row[column.offset + b] == literal[b];
+            return same == equal;
+        }
+    }
+
+    static final String[] Flipped = {
+            "compare equal", "compare equal",
+            "compare not equal", "compare not equal",
+            "compare greater", "compare less",
+            "compare less", "compare greater",
+            "compare not greater", "compare not less",
+            "compare not less", "compare not greater" };
+
+    static boolean isAscii(final String literal)
+    {
+        for (int c = 0; c < literal.length(); c++)
+            if (literal.charAt(c) > 0x7f)
+                return false;
+        return true;
+    }
+
+    static List<Term> terms(final String comparison, final CompiledPredicate.Operand left,
+            final CompiledPredicate.Operand right)
+    {
+        if (left.column != null && right.constant != null)
+            return terms(comparison, left.column, right.constant);
+        if (right.column != null && left.constant != null)
+            for (int f = 0; f < Flipped.length; f += 2)
+                if (Flipped[f].equals(comparison))
+                    return terms(Flipped[f + 1], right.column, left.constant);
+        return null;
+    }
+
+    static List<Term> terms(final String comparison, final KeyPart column, final Object constant)
+    {
+        if (column.isCsv() || column.offset < 0)
+            return null;
+        Term term = null;
+        if (column.getClass() == DisplayIntKey.class && constant instanceof Long)
+            term = new IntegerTerm(column, comparison, ((Long) constant).longValue());
+        else if (column.getClass() == AlphaKey.class
+                && constant instanceof String
+                && isAscii((String) constant)
+                && ("compare equal".equals(comparison) || "compare not equal".equals(comparison)))
+            term = new StringTerm(column, ((String) constant).getBytes(), "compare equal".equals(comparison));
+        if (term == null)
+            return null;
+        return Arrays.asList(term);
+    }
+
+    final List<Term> terms;
+
+    /**
+     * <p>
+     * Constructor for RawFilter.
+     * </p>
+     *
+     * @param predicates the --where equations, they must all be true.
+     */
+    public RawFilter(final CompiledPredicate[] predicates)
+    {
+        terms = new ArrayList<>();
+        for (final CompiledPredicate predicate : predicates)
+            if (predicate.root.rawTerms != null)
+                terms.addAll(predicate.root.rawTerms);
+    }
+
+    /**
+     * <p>
+     * isEmpty.
+     * </p>
+     *
+     * @return true if there is nothing that can be checked on the bytes.
+     */
+    public boolean isEmpty()
+    {
+        return terms.isEmpty();
+    }
+
+    /**
+     * Check a record before its columns are extracted.
+     *
+     * @param row the bytes of the record.
+     * @param rowLength the length of the record.
+     * @return true if the record can not be selected.
+     */
+    public boolean rejects(final byte[] row, final int rowLength)
+    {
+        for (final Term term : terms)
+            if (!term.mayBeTrue(row, rowLength))
+                return true;
+        return false;
+    }
+
+    /**
+     * <p>
+     * size.
+     * </p>
+     *
+     * @return the number of comparisons.
+     */
+    public int size()
+    {
+        return terms.size();
+    }
+}
@@ -115,11 +115,11 @@ public class AlphaKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] bytes) throws Exception
+    public void parseObjectFromRawData(final byte[] bytes, final int rawLength) throws Exception
     {
         int endOffset = this.offset;
         for (; endOffset < this.offset + this.length; endOffset++)
-            if (bytes.length <= endOffset || bytes[endOffset] == 0)
+            if (rawLength <= endOffset || bytes[endOffset] == 0)
                 break;
 
         final int rightTrimmedLength = OutputFormatHelper
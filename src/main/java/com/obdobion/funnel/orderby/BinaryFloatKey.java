@@ -111,12 +111,23 @@ public class BinaryFloatKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
         if (rawBytes.length < offset + length)
             throw new Exception("index out of bounds: " + (offset + length));
 
-        final ByteBuffer bb = ByteBuffer.wrap(rawBytes, offset, 8);
+        final ByteBuffer bb;
+        if (rawLength < offset + length)
+        {
+            /*
+             * The record ends within this column, the rest is zeros.
+             */
+            final byte[] padded = new byte[8];
+            if (rawLength > offset)
+                System.arraycopy(rawBytes, offset, padded, 0, rawLength - offset);
+            bb = ByteBuffer.wrap(padded, 0, 8);
+        } else
+            bb = ByteBuffer.wrap(rawBytes, offset, 8);
         unformattedContents = bb.array();
 
         switch (length)
@@ -83,9 +83,19 @@ public class ByteKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
-        contents = Arrays.copyOfRange(rawBytes, this.offset, this.offset + this.length);
+        if (rawLength >= this.offset + this.length)
+            contents = Arrays.copyOfRange(rawBytes, this.offset, this.offset + this.length);
+        else
+        {
+            /*
+             * The record ends within this column, the rest is zeros.
+             */
+            contents = new byte[this.length];
+            if (rawLength > this.offset)
+                System.arraycopy(rawBytes, this.offset, contents, 0, rawLength - this.offset);
+        }
         unformattedContents = contents;
     }
 }
@@ -0,0 +1,213 @@
+package com.obdobion.funnel.orderby;
+
+import java.util.TimeZone;
+
+/**
+ * A date pattern of fixed width numeric fields, parsed directly from the bytes
+ * of a record.
+ * <p>
+ * Only the patterns made of yyyy, MM, dd, HH, mm, ss and SSS and characters
+ * other than letters are compiled. The text must be exactly as wide as the
+ * pattern, with digits in the fields and the same characters in between. The
+ * epoch millis are then computed from the fields in the default time zone. A
+ * date that SimpleDateFormat would see differently, a field out of its range,
+ * a year before 1600, or a time within a day of a change in the offset of the
+ * time zone, is not parsed here and is left to SimpleDateFormat.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class CompiledDateFormat
+{
+    /**
+     * Returned by parse when the text must be parsed by SimpleDateFormat.
+     */
+    static final public long NotParsed = Long.MIN_VALUE;
+
+    static final long        Day       = 24L * 60 * 60 * 1000;
+
+    static final int[]       DaysInMonth = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    /**
+     * <p>
+     * compile.
+     * </p>
+     *
+     * @param pattern a SimpleDateFormat pattern.
+     * @return null if the pattern is not one that can be compiled.
+     */
+    static public CompiledDateFormat compile(final String pattern)
+    {
+        if (pattern == null || pattern.length() == 0)
+            return null;
+
+        final CompiledDateFormat compiled = new CompiledDateFormat(pattern.length());
+        int p = 0;
+        while (p < pattern.length())
+        {
+            final char letter = pattern.charAt(p);
+            int count = 1;
+            while (p + count < pattern.length() && pattern.charAt(p + count) == letter)
+                count++;
+
+            if ((letter >= 'a' && letter <= 'z') || (letter >= 'A' && letter <= 'Z'))
+            {
+                if (!compiled.field(letter, p, count))
+                    return null;
+            } else
+            {
+                if (letter == '\'' || letter > 0x7f)
+                    return null;
+                for (int c = 0; c < count; c++)
+                    compiled.layout[p + c] = (byte) letter;
+            }
+            p += count;
+        }
+        return compiled;
+    }
+
+    /**
+     * The number of days from 1970-01-01 to a date in the Gregorian calendar.
+     */
+    static long daysFromCivil(final int _year, final int month, final int day)
+    {
+        final int year = month <= 2
+                ? _year - 1
+                : _year;
+        final int era = year / 400;
+        final int yearOfEra = year - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2
+                ? -3
+                : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    static boolean isLeapYear(final int year)
+    {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /*
+     * 0 for a digit of a field, otherwise the character that must be there.
+     */
+    final byte[]   layout;
+    final TimeZone timeZone;
+    int            yearAt   = -1;
+    int            monthAt  = -1;
+    int            dayAt    = -1;
+    int            hourAt   = -1;
+    int            minuteAt = -1;
+    int            secondAt = -1;
+    int            milliAt  = -1;
+
+    CompiledDateFormat(final int width)
+    {
+        layout = new byte[width];
+        timeZone = TimeZone.getDefault();
+    }
+
+    private boolean field(final char letter, final int at, final int count)
+    {
+        switch (letter)
+        {
+            case 'y':
+                if (count != 4 || yearAt >= 0)
+                    return false;
+                yearAt = at;
+                return true;
+            case 'M':
+                if (count != 2 || monthAt >= 0)
+                    return false;
+                monthAt = at;
+                return true;
+            case 'd':
+                if (count != 2 || dayAt >= 0)
+                    return false;
+                dayAt = at;
+                return true;
+            case 'H':
+                if (count != 2 || hourAt >= 0)
+                    return false;
+                hourAt = at;
+                return true;
+            case 'm':
+                if (count != 2 || minuteAt >= 0)
+                    return false;
+                minuteAt = at;
+                return true;
+            case 's':
+                if (count != 2 || secondAt >= 0)
+                    return false;
+                secondAt = at;
+                return true;
+            case 'S':
+                if (count != 3 || milliAt >= 0)
+                    return false;
+                milliAt = at;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int number(final byte[] bytes, final int start, final int at, final int width, final int missing)
+    {
+        if (at < 0)
+            return missing;
+        int number = 0;
+        for (int d = 0; d < width; d++)
+            number = number * 10 + (bytes[start + at + d] - '0');
+        return number;
+    }
+
+    /**
+     * Parse a date that has already been trimmed.
+     *
+     * @param bytes the record.
+     * @param start the offset of the date in the record.
+     * @param width the length of the date.
+     * @return the epoch millis, or NotParsed.
+     */
+    public long parse(final byte[] bytes, final int start, final int width)
+    {
+        if (width != layout.length)
+            return NotParsed;
+        for (int b = 0; b < width; b++)
+        {
+            final byte bb = bytes[start + b];
+            if (layout[b] == 0)
+            {
+                if (bb < (byte) '0' || bb > (byte) '9')
+                    return NotParsed;
+            } else if (bb != layout[b])
+                return NotParsed;
+        }
+
+        final int year = number(bytes, start, yearAt, 4, 1970);
+        final int month = number(bytes, start, monthAt, 2, 1);
+        final int day = number(bytes, start, dayAt, 2, 1);
+        final int hour = number(bytes, start, hourAt, 2, 0);
+        final int minute = number(bytes, start, minuteAt, 2, 0);
+        final int second = number(bytes, start, secondAt, 2, 0);
+        final int milli = number(bytes, start, milliAt, 3, 0);
+
+        if (year < 1600 || month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59 || second > 59)
+            return NotParsed;
+        if (day > DaysInMonth[month - 1] && !(month == 2 && day == 29 && isLeapYear(year)))
+            return NotParsed;
+
+        final long local = daysFromCivil(year, month, day) * Day
+                + ((hour * 60 + minute) * 60 + second) * 1000L
+                + milli;
+        final int zoneOffset = timeZone.getOffset(local - timeZone.getRawOffset());
+        final long millis = local - zoneOffset;
+        /*
+         * Near a change in the offset the local time may be skipped or
+         * repeated.
+         */
+        if (timeZone.getOffset(millis - Day) != zoneOffset || timeZone.getOffset(millis + Day) != zoneOffset)
+            return NotParsed;
+        return millis;
+    }
+}
@@ -2,7 +2,6 @@ package com.obdobion.funnel.orderby;
 
 import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -15,8 +14,14 @@ import java.util.Date;
  */
 public class DateKey extends KeyPart
 {
-    Calendar         contents;
-    SimpleDateFormat sdf;
+    long               millis;
+    /*
+     * Only made when it is asked for, unless SimpleDateFormat was used.
+     */
+    Calendar           contents;
+    CompiledDateFormat compiled;
+    boolean            compileAttempted;
+    SimpleDateFormat   sdf;
 
     /**
      * <p>
@@ -28,9 +33,9 @@ public class DateKey extends KeyPart
         super();
     }
 
-    private void formatObjectIntoKey(final KeyContext context, final Long _longValue)
+    private void formatObjectIntoKey(final KeyContext context, final long _longValue)
     {
-        Long longValue = _longValue;
+        long longValue = _longValue;
         if (longValue < 0)
             if (direction == KeyDirection.AASC || direction == KeyDirection.ADESC)
                 longValue = 0 - longValue;
@@ -51,6 +56,11 @@ public class DateKey extends KeyPart
     @Override
     public Object getContents()
     {
+        if (contents == null)
+        {
+            contents = Calendar.getInstance();
+            contents.setTimeInMillis(millis);
+        }
         return contents;
     }
 
@@ -58,7 +68,7 @@ public class DateKey extends KeyPart
     @Override
     public double getContentsAsDouble()
     {
-        return contents.getTimeInMillis();
+        return millis;
     }
 
     /** {@inheritDoc} */
@@ -80,7 +90,7 @@ public class DateKey extends KeyPart
     public void pack(final KeyContext context) throws Exception
     {
         parseObject(context);
-        formatObjectIntoKey(context, contents.getTimeInMillis());
+        formatObjectIntoKey(context, millis);
 
         if (nextPart != null)
             nextPart.pack(context);
@@ -88,26 +98,55 @@ public class DateKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
-        contents = Calendar.getInstance();
-
         int lengthThisTime = length;
-        if (rawBytes.length < offset + length)
-            lengthThisTime = rawBytes.length - offset;
+        if (rawLength < offset + length)
+            lengthThisTime = rawLength - offset;
+        if (lengthThisTime < 0)
+            lengthThisTime = 0;
 
-        final String trimmed = new String(rawBytes, offset, lengthThisTime).trim();
-        unformattedContents = Arrays.copyOfRange(rawBytes, offset, offset + lengthThisTime);
+        keepUnformattedContents(rawBytes, lengthThisTime);
 
-        long longValue = 0;
+        /*
+         * The same trim as String.
+         */
+        int start = offset;
+        int end = offset + lengthThisTime;
+        while (start < end && rawBytes[start] >= 0 && rawBytes[start] <= ' ')
+            start++;
+        while (end > start && rawBytes[end - 1] >= 0 && rawBytes[end - 1] <= ' ')
+            end--;
+
+        if (start == end)
+        {
+            contents = null;
+            millis = 0;
+            return;
+        }
 
-        if (trimmed.length() > 0)
+        if (!compileAttempted)
+        {
+            compiled = CompiledDateFormat.compile(parseFormat);
+            compileAttempted = true;
+        }
+        if (compiled != null)
         {
-            if (sdf == null)
-                sdf = new SimpleDateFormat(parseFormat);
-            final Date date = sdf.parse(trimmed);
-            longValue = date.getTime();
+            final long parsed = compiled.parse(rawBytes, start, end - start);
+            if (parsed != CompiledDateFormat.NotParsed)
+            {
+                contents = null;
+                millis = parsed;
+                return;
+            }
         }
-        contents.setTimeInMillis(longValue);
+
+        contents = Calendar.getInstance();
+        millis = contents.getTimeInMillis();
+        if (sdf == null)
+            sdf = new SimpleDateFormat(parseFormat);
+        final Date date = sdf.parse(new String(rawBytes, start, end - start));
+        millis = date.getTime();
+        contents.setTimeInMillis(millis);
     }
 }
@@ -11,8 +11,19 @@ import java.nio.ByteBuffer;
  */
 public class DisplayFloatKey extends KeyPart
 {
-    Double contents;
-    byte[] trimmed;
+    /*
+     * The powers of ten that are exact in a double.
+     */
+    static final double[] PowersOfTen = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    double                value;
+    /*
+     * The boxed value, only made when it is asked for.
+     */
+    Double                contents;
+    byte[]                trimmed;
 
     /**
      * <p>
@@ -24,9 +35,9 @@ public class DisplayFloatKey extends KeyPart
         super();
     }
 
-    private void formatObjectIntoKey(final KeyContext context, final Double _doubleValue)
+    private void formatObjectIntoKey(final KeyContext context, final double _doubleValue)
     {
-        Double doubleValue = _doubleValue;
+        double doubleValue = _doubleValue;
 
         if (doubleValue < 0)
             if (direction == KeyDirection.AASC || direction == KeyDirection.ADESC)
@@ -55,6 +66,8 @@ public class DisplayFloatKey extends KeyPart
     @Override
     public Object getContents()
     {
+        if (contents == null)
+            contents = value;
         return contents;
     }
 
@@ -62,7 +75,7 @@ public class DisplayFloatKey extends KeyPart
     @Override
     public double getContentsAsDouble()
     {
-        return contents;
+        return value;
     }
 
     /** {@inheritDoc} */
@@ -84,7 +97,7 @@ public class DisplayFloatKey extends KeyPart
     public void pack(final KeyContext context) throws Exception
     {
         parseObject(context);
-        formatObjectIntoKey(context, contents);
+        formatObjectIntoKey(context, value);
 
         if (nextPart != null)
             nextPart.pack(context);
@@ -92,15 +105,28 @@ public class DisplayFloatKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
         if (trimmed == null)
             trimmed = new byte[length];
 
         int lengthThisTime = length;
-        if (rawBytes.length < offset + length)
-            lengthThisTime = rawBytes.length - offset;
-
+        if (rawLength < offset + length)
+            lengthThisTime = rawLength - offset;
+        if (lengthThisTime < 0)
+            lengthThisTime = 0;
+
+        contents = null;
+
+        /*
+         * The significant digits are accumulated as they are found, along with
+         * the number of them after the decimal point. They are also kept in
+         * trimmed for the numbers that can not be converted exactly.
+         */
+        long digits = 0;
+        int significantDigits = 0;
+        int scale = 0;
+        int decimalPoints = 0;
         int t = 0;
         boolean minusSignFound = false;
         for (int b = 0; b < lengthThisTime; b++)
@@ -110,6 +136,11 @@ public class DisplayFloatKey extends KeyPart
                 if (bb <= (byte) '9')
                 {
                     trimmed[t++] = bb;
+                    if (digits > 0 || bb != (byte) '0')
+                        significantDigits++;
+                    digits = digits * 10 + (bb - '0');
+                    if (decimalPoints > 0)
+                        scale++;
                     continue;
                 }
             if (bb == (byte) ',')
@@ -124,14 +155,27 @@ public class DisplayFloatKey extends KeyPart
             if (bb == (byte) '.')
             {
                 trimmed[t++] = bb;
+                decimalPoints++;
                 continue;
             }
             if (t > 0)
                 break;
         }
 
-        contents = Double.parseDouble(new String(trimmed, 0, t));
+        /*
+         * A whole number of no more than 53 bits divided by an exact power of
+         * ten is correctly rounded. Anything else, including the text that
+         * is not a number, is left to Double.
+         */
+        if (decimalPoints <= 1
+                && t > decimalPoints
+                && significantDigits <= 18
+                && digits < (1L << 53)
+                && scale < PowersOfTen.length)
+            value = digits / PowersOfTen[scale];
+        else
+            value = Double.parseDouble(new String(trimmed, 0, t));
         if (minusSignFound)
-            contents = -contents;
+            value = -value;
     }
 }
@@ -1,7 +1,6 @@
 package com.obdobion.funnel.orderby;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 /**
  * <p>
@@ -12,6 +11,10 @@ import java.util.Arrays;
  */
 public class DisplayIntKey extends KeyPart
 {
+    long   value;
+    /*
+     * The boxed value, only made when it is asked for.
+     */
     Long   contents;
     byte[] trimmed;
 
@@ -29,6 +32,8 @@ public class DisplayIntKey extends KeyPart
     @Override
     public Object getContents()
     {
+        if (contents == null)
+            contents = value;
         return contents;
     }
 
@@ -36,7 +41,7 @@ public class DisplayIntKey extends KeyPart
     @Override
     public double getContentsAsDouble()
     {
-        return contents;
+        return value;
     }
 
     /** {@inheritDoc} */
@@ -58,23 +63,15 @@ public class DisplayIntKey extends KeyPart
     public void pack(final KeyContext context) throws Exception
     {
         parseObject(context);
-        packObjectIntoKey(context, contents);
+        packLongIntoKey(context, value);
 
         if (nextPart != null)
             nextPart.pack(context);
     }
 
-    /**
-     * <p>
-     * packObjectIntoKey.
-     * </p>
-     *
-     * @param context a {@link com.obdobion.funnel.orderby.KeyContext} object.
-     * @param _longValue a {@link java.lang.Long} object.
-     */
-    public void packObjectIntoKey(final KeyContext context, final Long _longValue)
+    void packLongIntoKey(final KeyContext context, final long _longValue)
     {
-        Long longValue = _longValue;
+        long longValue = _longValue;
 
         if (longValue < 0)
             if (direction == KeyDirection.AASC || direction == KeyDirection.ADESC)
@@ -92,10 +89,23 @@ public class DisplayIntKey extends KeyPart
         context.keyLength += 8;
     }
 
+    /**
+     * <p>
+     * packObjectIntoKey.
+     * </p>
+     *
+     * @param context a {@link com.obdobion.funnel.orderby.KeyContext} object.
+     * @param _longValue a {@link java.lang.Long} object.
+     */
+    public void packObjectIntoKey(final KeyContext context, final Long _longValue)
+    {
+        packLongIntoKey(context, _longValue);
+    }
+
     /** {@inheritDoc} */
     @SuppressWarnings("null")
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
         if (trimmed == null)
             trimmed = new byte[length];
@@ -103,11 +113,19 @@ public class DisplayIntKey extends KeyPart
         int lengthThisTime = length;
         if (rawBytes == null)
             lengthThisTime = 0;
-        else if (rawBytes.length < offset + length)
-            lengthThisTime = rawBytes.length - offset;
+        else if (rawLength < offset + length)
+            lengthThisTime = rawLength - offset;
+        if (lengthThisTime < 0)
+            lengthThisTime = 0;
 
-        unformattedContents = Arrays.copyOfRange(rawBytes, offset, offset + lengthThisTime);
+        keepUnformattedContents(rawBytes, lengthThisTime);
+        contents = null;
 
+        /*
+         * The digits are accumulated as they are found. They are also kept in
+         * trimmed for the numbers that may not fit in a long.
+         */
+        long digits = 0;
         int t = 0;
         boolean minusSignFound = false;
         for (int b = 0; b < lengthThisTime; b++)
@@ -117,6 +135,7 @@ public class DisplayIntKey extends KeyPart
                 if (bb <= (byte) '9')
                 {
                     trimmed[t++] = bb;
+                    digits = digits * 10 + (bb - '0');
                     continue;
                 }
             if (bb == (byte) ',')
@@ -132,14 +151,17 @@ public class DisplayIntKey extends KeyPart
                 break;
         }
 
-        if (trimmed[0] == 0x00)
+        if (t == 0)
         {
-            contents = new Long(0);
+            value = 0;
             return;
         }
 
-        contents = Long.parseLong(new String(trimmed, 0, t));
+        if (t <= 18)
+            value = digits;
+        else
+            value = Long.parseLong(new String(trimmed, 0, t));
         if (minusSignFound)
-            contents = -contents;
+            value = -value;
     }
 }
@@ -40,7 +40,7 @@ public class Filler extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawData) throws Exception
+    public void parseObjectFromRawData(final byte[] rawData, final int rawLength) throws Exception
     {
         // n/a
     }
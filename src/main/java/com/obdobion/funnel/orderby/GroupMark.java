@@ -0,0 +1,61 @@
+package com.obdobion.funnel.orderby;
+
+import java.io.ByteArrayOutputStream;
+
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * Marks the end of the group keys of --groupLimit in the chain of keys. It adds
+ * nothing to the key, it only notes how long the key is at this point.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class GroupMark extends KeyPart
+{
+    /** {@inheritDoc} */
+    @Override
+    public Object getContents()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getContentsAsDouble()
+    {
+        return 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isNumeric()
+    {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void originalData(final KeyContext context, final SourceProxyRecord proxyRecord,
+            final ByteArrayOutputStream outputBytes)
+    {
+        if (nextPart != null)
+            nextPart.originalData(context, proxyRecord, outputBytes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void pack(final KeyContext context) throws Exception
+    {
+        context.groupKeyLength = context.keyLength;
+
+        if (nextPart != null)
+            nextPart.pack(context);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void parseObjectFromRawData(final byte[] rawData, final int rawLength) throws Exception
+    {
+        // n/a
+    }
+}
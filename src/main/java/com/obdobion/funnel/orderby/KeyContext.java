@@ -15,6 +15,17 @@ public class KeyContext
      * for the fields in the csv row.
      */
     public byte[][] rawRecordBytes;
+    /*
+     * The number of bytes in rawRecordBytes[0] that belong to the record. The
+     * rest of that buffer may hold bytes from a prior record. -1 means the
+     * entire buffer is the record.
+     */
+    public int      rawRecordLength = -1;
     public byte[]   key;
     public int      keyLength;
+    /*
+     * The length of the key when the group keys of --groupLimit have been
+     * packed.
+     */
+    public int      groupKeyLength;
 }
@@ -81,6 +81,21 @@ public class KeyHelper
      * @return a {@link com.obdobion.funnel.orderby.KeyContext} object.
      */
     public KeyContext extractKey(final byte[] data, final long recordNumber) throws Exception
+    {
+        return extractKey(data, data.length, recordNumber);
+    }
+
+    /**
+     * Extract the key from a record that occupies only the first dataLength
+     * bytes of a reusable buffer.
+     *
+     * @param data an array of byte.
+     * @param dataLength a int.
+     * @param recordNumber a long.
+     * @return a {@link com.obdobion.funnel.orderby.KeyContext} object.
+     * @throws java.lang.Exception if any.
+     */
+    public KeyContext extractKey(final byte[] data, final int dataLength, final long recordNumber) throws Exception
     {
         /*
          * The extra byte is for a 0x00 character to be placed at the end of
@@ -92,6 +107,7 @@ public class KeyHelper
         context.keyLength = 0;
         context.rawRecordBytes = new byte[1][];
         context.rawRecordBytes[0] = data;
+        context.rawRecordLength = dataLength;
         context.recordNumber = recordNumber;
 
         formatter.pack(context);
@@ -120,6 +136,7 @@ public class KeyHelper
         context.key = new byte[maxKeyBytes + 1];
         context.keyLength = 0;
         context.rawRecordBytes = data;
+        context.rawRecordLength = -1;
         context.recordNumber = recordNumber;
 
         formatter.pack(context);
@@ -144,6 +161,7 @@ public class KeyHelper
         context.keyLength = 0;
         context.rawRecordBytes = new byte[1][];
         context.rawRecordBytes[0] = data.getBytes();
+        context.rawRecordLength = -1;
         context.recordNumber = recordNumber;
 
         formatter.pack(context);
@@ -152,6 +170,36 @@ public class KeyHelper
         return context;
     }
 
+    /**
+     * Note the length of the key after the first keyCount keys, the group of
+     * --groupLimit, each time a key is extracted.
+     *
+     * @param keyCount the number of keys in the group.
+     */
+    public void markGroup(final int keyCount)
+    {
+        KeyPart key = formatter;
+        for (int k = 1; k < keyCount; k++)
+            key = key.nextPart;
+        final KeyPart mark = new GroupMark();
+        mark.nextPart = key.nextPart;
+        key.nextPart = mark;
+    }
+
+    /**
+     * A helper with its own copies of the keys, in the same order, so that
+     * the copy can be used on a different thread than this helper.
+     *
+     * @return a {@link com.obdobion.funnel.orderby.KeyHelper} object.
+     */
+    public KeyHelper newCopy()
+    {
+        final KeyHelper myCopy = new KeyHelper(maxKeyBytes);
+        for (KeyPart key = formatter; key != null; key = key.nextPart)
+            myCopy.add(key.newCopy(), null);
+        return myCopy;
+    }
+
     /**
      * <p>
      * setUpAsCopy.
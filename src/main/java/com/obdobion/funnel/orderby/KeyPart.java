@@ -190,6 +190,20 @@ abstract public class KeyPart
      */
     abstract public boolean isNumeric();
 
+    /**
+     * Keep a copy of the bytes of the column, reusing the previous copy when
+     * it is the same length.
+     *
+     * @param rawBytes the record.
+     * @param lengthThisTime the number of bytes of the column in this record.
+     */
+    void keepUnformattedContents(final byte[] rawBytes, final int lengthThisTime)
+    {
+        if (unformattedContents == null || unformattedContents.length != lengthThisTime)
+            unformattedContents = new byte[lengthThisTime];
+        System.arraycopy(rawBytes, offset, unformattedContents, 0, lengthThisTime);
+    }
+
     /**
      * <p>
      * newCopy.
@@ -268,7 +282,7 @@ abstract public class KeyPart
      */
     public void parseObject(final KeyContext context) throws Exception
     {
-        parseObjectFromRawData(rawBytes(context));
+        parseObjectFromRawData(rawBytes(context), rawLength(context));
     }
 
     /**
@@ -279,7 +293,22 @@ abstract public class KeyPart
      * @param rawData an array of byte.
      * @throws java.lang.Exception if any.
      */
-    public abstract void parseObjectFromRawData(byte[] rawData) throws Exception;
+    public void parseObjectFromRawData(final byte[] rawData) throws Exception
+    {
+        parseObjectFromRawData(rawData, rawData == null
+                ? 0
+                : rawData.length);
+    }
+
+    /**
+     * Parse the column from a record that occupies only the first rawLength
+     * bytes of rawData. Nothing beyond that length may be used.
+     *
+     * @param rawData an array of byte.
+     * @param rawLength a int.
+     * @throws java.lang.Exception if any.
+     */
+    public abstract void parseObjectFromRawData(byte[] rawData, int rawLength) throws Exception;
 
     byte[] rawBytes(final KeyContext context)
     {
@@ -287,4 +316,14 @@ abstract public class KeyPart
             return context.rawRecordBytes[csvFieldNumber];
         return context.rawRecordBytes[0];
     }
+
+    int rawLength(final KeyContext context)
+    {
+        final byte[] rawBytes = rawBytes(context);
+        if (rawBytes == null)
+            return 0;
+        if (csvFieldNumber >= 0 || context.rawRecordLength < 0)
+            return rawBytes.length;
+        return context.rawRecordLength;
+    }
 }
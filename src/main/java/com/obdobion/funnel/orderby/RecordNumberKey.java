@@ -72,6 +72,17 @@ public class RecordNumberKey extends KeyPart
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public KeyPart newCopy()
+    {
+        final RecordNumberKey myCopy = new RecordNumberKey(direction, parseFormat);
+        myCopy.csvFieldNumber = csvFieldNumber;
+        myCopy.typeName = typeName;
+        myCopy.columnName = columnName;
+        return myCopy;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void pack(final KeyContext context) throws Exception
@@ -92,7 +103,7 @@ public class RecordNumberKey extends KeyPart
 
     /** {@inheritDoc} */
     @Override
-    public void parseObjectFromRawData(final byte[] rawBytes) throws Exception
+    public void parseObjectFromRawData(final byte[] rawBytes, final int rawLength) throws Exception
     {
         // not used since this is a system variable
     }
@@ -5,8 +5,11 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +34,9 @@ import com.obdobion.funnel.orderby.KeyHelper;
 import com.obdobion.funnel.orderby.KeyPart;
 import com.obdobion.funnel.orderby.KeyType;
 import com.obdobion.funnel.provider.AbstractInputCache;
+import com.obdobion.funnel.provider.InputCacheSet;
 import com.obdobion.funnel.provider.ProviderFactory;
+import com.obdobion.funnel.provider.SysinSpool;
 import com.obdobion.funnel.publisher.PublisherFactory;
 
 /**
@@ -87,6 +92,8 @@ public class FunnelContext
     public FunnelDataProvider  provider;
     public FunnelDataPublisher publisher;
     public AbstractInputCache  inputCache;
+    public InputCacheSet       inputCaches;
+    public SysinSpool          sysinSpool;
     public KeyHelper           keyHelper;
     public OutputFormatHelper  formatOutHelper;
     public HeaderOutHelper     headerOutHelper;
@@ -97,6 +104,7 @@ public class FunnelContext
     private long               writeCount;
     private long               unselectedCount;
     private long               recordCount;
+    private long               unsortedRecordNumber;
     private List<KeyPart>      keys;
 
     /**
@@ -129,6 +137,7 @@ public class FunnelContext
         }
 
         fsc = new FunnelSortContext(parser, _args);
+        args = _args;
         if (isUsageRun())
             return;
         if (isVersion())
@@ -157,7 +166,12 @@ public class FunnelContext
             postParseAnalysis();
             showParameters();
             provider = ProviderFactory.create(this);
-            publisher = PublisherFactory.create(this);
+            /*
+             * Only the input is read when checking the order. Opening a
+             * publisher would replace the output file.
+             */
+            if (!isCheckSorted())
+                publisher = PublisherFactory.create(this);
             logger.debug("============= INITIALIZED ================");
         } catch (final ParseException pe)
         {
@@ -196,6 +210,31 @@ public class FunnelContext
         return fsc.aggregates;
     }
 
+    /**
+     * <p>
+     * getBottom.
+     * </p>
+     *
+     * @return the number of rows that --bottom keeps, or 0.
+     */
+    public int getBottom()
+    {
+        return fsc.bottom;
+    }
+
+    /**
+     * <p>
+     * getCacheInputLimit.
+     * </p>
+     *
+     * @return the number of MB of cached input files that are kept for
+     *         publishing.
+     */
+    public int getCacheInputLimit()
+    {
+        return fsc.cacheInputLimit;
+    }
+
     /**
      * <p>
      * getCopyOrder.
@@ -305,6 +344,19 @@ public class FunnelContext
         return fsc.fixedRecordLengthOut;
     }
 
+    /**
+     * <p>
+     * getFullRecordLimit.
+     * </p>
+     *
+     * @return the longest fixed record length that is sorted as a whole
+     *         record without --fullRecord, 0 when that is never done.
+     */
+    public int getFullRecordLimit()
+    {
+        return fsc.fullRecordLimit;
+    }
+
     /**
      * <p>
      * getFormatOutDefs.
@@ -317,6 +369,43 @@ public class FunnelContext
         return fsc.formatOutDefs;
     }
 
+    /**
+     * <p>
+     * getGatherWindow.
+     * </p>
+     *
+     * @return the number of sorted rows whose original records are read
+     *         together.
+     */
+    public int getGatherWindow()
+    {
+        return fsc.gatherWindow;
+    }
+
+    /**
+     * <p>
+     * getGroupKeys.
+     * </p>
+     *
+     * @return the number of --orderBy keys that make up a group.
+     */
+    public int getGroupKeys()
+    {
+        return fsc.groupKeys;
+    }
+
+    /**
+     * <p>
+     * getGroupLimit.
+     * </p>
+     *
+     * @return the number of rows of each group that are written, or 0.
+     */
+    public int getGroupLimit()
+    {
+        return fsc.groupLimit;
+    }
+
     /**
      * <p>
      * getHeaderInDefs.
@@ -392,6 +481,18 @@ public class FunnelContext
         return fsc.inputFiles;
     }
 
+    /**
+     * <p>
+     * getIngestThreads.
+     * </p>
+     *
+     * @return a int.
+     */
+    public int getIngestThreads()
+    {
+        return fsc.ingestThreads;
+    }
+
     /**
      * <p>
      * Getter for the field <code>keys</code>.
@@ -404,6 +505,30 @@ public class FunnelContext
         return keys;
     }
 
+    /**
+     * <p>
+     * getMaxGroups.
+     * </p>
+     *
+     * @return the most groups that are kept in memory for --groupLimit.
+     */
+    public int getMaxGroups()
+    {
+        return fsc.maxGroups;
+    }
+
+    /**
+     * <p>
+     * getMaxOpenFiles.
+     * </p>
+     *
+     * @return the most input files that are open at once while publishing.
+     */
+    public int getMaxOpenFiles()
+    {
+        return fsc.maxOpenFiles;
+    }
+
     /**
      * <p>
      * getMaximumNumberOfRows.
@@ -416,6 +541,31 @@ public class FunnelContext
         return fsc.maximumNumberOfRows;
     }
 
+    /**
+     * A digest of the command line and of the identity of each input file
+     * (name, length, and last modified time). Work files that were written
+     * under a different fingerprint can not be trusted when resuming a sort.
+     *
+     * @return a {@link java.lang.String} object.
+     * @throws java.text.ParseException if any.
+     * @throws java.io.IOException if any.
+     */
+    public String getOptionsFingerprint() throws ParseException, IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (final String arg : args)
+            sb.append(arg).append("\n");
+        if (!isSysin())
+            for (final File file : getInputFiles().files())
+                sb.append(file.getAbsolutePath())
+                        .append("\n")
+                        .append(file.length())
+                        .append("\n")
+                        .append(file.lastModified())
+                        .append("\n");
+        return DigestUtils.md5Hex(sb.toString());
+    }
+
     private List<OrderBy> getOrderBys()
     {
         return fsc.orderBys;
@@ -433,6 +583,30 @@ public class FunnelContext
         return fsc.outputFile;
     }
 
+    /**
+     * <p>
+     * getPublishThreads.
+     * </p>
+     *
+     * @return a int.
+     */
+    public int getPublishThreads()
+    {
+        return fsc.publishThreads;
+    }
+
+    /**
+     * <p>
+     * getReadAhead.
+     * </p>
+     *
+     * @return a int.
+     */
+    public int getReadAhead()
+    {
+        return fsc.readAhead;
+    }
+
     /**
      * <p>
      * Getter for the field <code>recordCount</code>.
@@ -457,6 +631,30 @@ public class FunnelContext
         return fsc.stopEqu;
     }
 
+    /**
+     * <p>
+     * getSysinSpill.
+     * </p>
+     *
+     * @return the number of MB of SYSIN kept in memory before it is spilled.
+     */
+    public int getSysinSpill()
+    {
+        return fsc.sysinSpill;
+    }
+
+    /**
+     * <p>
+     * getTop.
+     * </p>
+     *
+     * @return the number of rows that --top keeps, or 0.
+     */
+    public int getTop()
+    {
+        return fsc.top;
+    }
+
     /**
      * <p>
      * Getter for the field <code>unselectedCount</code>.
@@ -469,6 +667,19 @@ public class FunnelContext
         return unselectedCount;
     }
 
+    /**
+     * <p>
+     * Getter for the field <code>unsortedRecordNumber</code>.
+     * </p>
+     *
+     * @return the record number of the first row that --checkSorted found out
+     *         of order, or 0 if the input is sorted.
+     */
+    public long getUnsortedRecordNumber()
+    {
+        return unsortedRecordNumber;
+    }
+
     /**
      * <p>
      * getWhereEqu.
@@ -569,7 +780,7 @@ public class FunnelContext
      */
     public boolean isCacheInput()
     {
-        return !fsc.noCacheInput;
+        return !fsc.noCacheInput && !fsc.mappedInput;
     }
 
     /**
@@ -584,6 +795,18 @@ public class FunnelContext
         return !fsc.diskWork;
     }
 
+    /**
+     * <p>
+     * isCheckSorted.
+     * </p>
+     *
+     * @return a boolean.
+     */
+    public boolean isCheckSorted()
+    {
+        return fsc.checkSorted;
+    }
+
     /**
      * <p>
      * isDiskWork.
@@ -596,6 +819,35 @@ public class FunnelContext
         return fsc.diskWork;
     }
 
+    /**
+     * The whole record travels with its key through the sort, so the input
+     * does not have to be reread when the output is written.
+     *
+     * @return a boolean.
+     */
+    public boolean isFullRecordSort()
+    {
+        /*
+         * A reverse copy must hold every record until the last one has been
+         * read, so it rereads them instead.
+         */
+        if (isStreamingCopy())
+            return getCopyOrder() == CopyOrder.Original;
+        if (fsc.fullRecord)
+            return true;
+        return isFullRecordAutomatic();
+    }
+
+    /**
+     * Short fixed length records are sorted as whole records unless
+     * --fullRecordLimit is 0.
+     */
+    private boolean isFullRecordAutomatic()
+    {
+        return !isVariableLengthInput()
+                && getFixedRecordLengthIn() <= getFullRecordLimit();
+    }
+
     /**
      * <p>
      * isHexDumping.
@@ -620,6 +872,18 @@ public class FunnelContext
         return fsc.inPlaceSort;
     }
 
+    /**
+     * <p>
+     * isMappedInput.
+     * </p>
+     *
+     * @return a boolean.
+     */
+    public boolean isMappedInput()
+    {
+        return fsc.mappedInput;
+    }
+
     /**
      * <p>
      * isMultisourceInput.
@@ -646,6 +910,35 @@ public class FunnelContext
         return fsc.noCacheInput;
     }
 
+    /**
+     * <p>
+     * isResume.
+     * </p>
+     *
+     * @return a boolean.
+     */
+    public boolean isResume()
+    {
+        return fsc.resume;
+    }
+
+    /**
+     * A copy in the original or the reverse order does not need the funnel.
+     * The records go from the provider to the publisher as they are read, or,
+     * for a reverse copy, from an index of where they are. A reverse copy that
+     * is asked to keep its work on disk and an in place copy are still sorted.
+     *
+     * @return a boolean.
+     */
+    public boolean isStreamingCopy()
+    {
+        if (!isUserSpecifiedOrder() || isInPlaceSort())
+            return false;
+        if (getCopyOrder() == CopyOrder.Original)
+            return true;
+        return getCopyOrder() == CopyOrder.Reverse && !isDiskWork();
+    }
+
     /**
      * <p>
      * isSyntaxOnly.
@@ -670,6 +963,17 @@ public class FunnelContext
         return !(fsc.getParser().arg("--inputfilename").isParsed());
     }
 
+    /**
+     * Is SYSIN read as a stream, and copied to a spool, rather than being
+     * loaded into memory before the sort starts?
+     *
+     * @return a boolean.
+     */
+    public boolean isSysinSpooled()
+    {
+        return isSysin() && fsc.getParser().arg("--sysinSpill").isParsed();
+    }
+
     /**
      * <p>
      * isSysout.
@@ -828,6 +1132,47 @@ public class FunnelContext
         postParseEolOut();
         postParseCSV();
         postParseFixed();
+        postParseLimit();
+        postParseResume();
+        postParseColumnUsage();
+    }
+
+    /**
+     * The publisher only parses the columns that the aggregates, hex dumps and
+     * output equations use. The --format columns are written from the bytes of
+     * the record.
+     */
+    private void postParseColumnUsage()
+    {
+        Set<String> published = new HashSet<>();
+        if (getAggregates() != null)
+            for (final Aggregate agg : getAggregates())
+            {
+                if (agg.columnName != null)
+                    published.add(agg.columnName);
+                final Set<String> names = ColumnHelper.variablesOf(agg.equation);
+                if (names == null || published == null)
+                    published = null;
+                else
+                    published.addAll(names);
+            }
+        if (published != null && getHexDumps() != null)
+            for (final HexDump hexDump : getHexDumps())
+                if (hexDump.columnName != null)
+                    published.add(hexDump.columnName);
+        columnHelper.loadOnly(published);
+
+        final Set<String> equated = ColumnHelper
+                .variablesOf(formatOutHelper.getReferencesToAllOutputFormatEquations(this));
+        columnHelper.loadIntoEquationsOnly(equated);
+
+        logger.debug("columns used by the publisher: {}, by the output equations: {}",
+                published == null
+                        ? "all"
+                        : published,
+                equated == null
+                        ? "all"
+                        : equated);
     }
 
     private void postParseCSV()
@@ -1138,6 +1483,42 @@ public class FunnelContext
             }
             throw new ParseException(sb.toString(), 0);
         }
+
+        if (isMappedInput() && isSysin())
+            throw new ParseException("--mappedInput requires --inputFile, redirection or piped input is not allowed", 0);
+
+        if (!isSysin() && fsc.getParser().arg("--sysinSpill").isParsed())
+            throw new ParseException("--sysinSpill requires redirected or piped input, not --inputFile", 0);
+    }
+
+    private void postParseLimit() throws ParseException
+    {
+        if (getGroupLimit() > 0)
+        {
+            if (getTop() > 0 || getBottom() > 0)
+                throw new ParseException("--groupLimit is not valid with --top or --bottom", 0);
+            if (keys == null)
+                throw new ParseException("--groupLimit requires --orderBy", 0);
+            if (getGroupKeys() > keys.size())
+                throw new ParseException("--groupKeys can not be more than the number of --orderBy keys", 0);
+            if (isAggregating())
+                throw new ParseException("--groupLimit is not valid with aggregates", 0);
+            if (isCheckSorted())
+                throw new ParseException("--checkSorted is not valid with --groupLimit", 0);
+            keyHelper.markGroup(getGroupKeys());
+        }
+
+        if (getTop() == 0 && getBottom() == 0)
+            return;
+
+        if (getTop() > 0 && getBottom() > 0)
+            throw new ParseException("--top and --bottom are mutually exclusive parameters", 0);
+
+        if (isCheckSorted())
+            throw new ParseException("--checkSorted is not valid with --top or --bottom", 0);
+
+        if (isResume())
+            throw new ParseException("--resume is not valid with --top or --bottom, there are no work files", 0);
     }
 
     private void postParseOrderBy() throws ParseException
@@ -1223,6 +1604,18 @@ public class FunnelContext
             fsc.outputFile = getInputFile(0);
     }
 
+    private void postParseResume() throws ParseException
+    {
+        if (!isResume())
+            return;
+
+        if (!isDiskWork())
+            throw new ParseException("--resume requires --diskWork", 0);
+
+        if (isSysin())
+            throw new ParseException("--resume requires --inputFile, redirection or piped input is not allowed", 0);
+    }
+
     /**
      * <p>
      * reset.
@@ -1275,6 +1668,18 @@ public class FunnelContext
         fsc.outputFile = outputFile;
     }
 
+    /**
+     * <p>
+     * Setter for the field <code>unsortedRecordNumber</code>.
+     * </p>
+     *
+     * @param p_unsortedRecordNumber a long.
+     */
+    public void setUnsortedRecordNumber(final long p_unsortedRecordNumber)
+    {
+        unsortedRecordNumber = p_unsortedRecordNumber;
+    }
+
     /**
      *
      */
@@ -1288,6 +1693,30 @@ public class FunnelContext
 
         if (isCacheInput())
             showParametersLog(false, "input caching enabled");
+        if (isCacheInput() && isMultisourceInput())
+            showParametersLog(false, "input cache limit= {} MB", getCacheInputLimit());
+        else if (isMappedInput())
+            showParametersLog(false, "input files are memory mapped");
+        if (getReadAhead() > 0 && !isCacheInput() && !isMappedInput() && !isSysin())
+            showParametersLog(false, "read ahead buffers= {}", getReadAhead());
+        if (isMultisourceInput() && !isMappedInput())
+            showParametersLog(false, "max open input files= {}", getMaxOpenFiles());
+        if (getGatherWindow() > 0 && !isCacheInput() && !isMappedInput() && !isSysin())
+            showParametersLog(false, "gather window= {} rows", getGatherWindow());
+        if (isFullRecordSort())
+        {
+            if (!fsc.fullRecord && !isStreamingCopy() && isFullRecordAutomatic())
+                showParametersLog(true, "whole records are sorted, record length {} is within --fullRecordLimit {}",
+                        getFixedRecordLengthIn(), getFullRecordLimit());
+            else
+                showParametersLog(false, "whole records are sorted");
+        }
+        if (isSysinSpooled())
+            showParametersLog(false, "sysin spill after= {} MB", getSysinSpill());
+        if (getIngestThreads() > 0)
+            showParametersLog(false, "ingest threads= {}", getIngestThreads());
+        if (getPublishThreads() > 0)
+            showParametersLog(false, "publish threads= {}", getPublishThreads());
 
         if (isSysout())
             showParametersLog(true, "output is SYSOUT");
@@ -1301,6 +1730,9 @@ public class FunnelContext
         else if (getWorkDirectory() != null)
             showParametersLog(false, "work directory= {}", getWorkDirectory().getAbsolutePath());
 
+        if (isResume())
+            showParametersLog(false, "resumable, segment manifests are kept in the work directory");
+
         if (specDirectory != null)
             showParametersLog(false, "specification include path is {}", specDirectory);
 
@@ -1409,7 +1841,18 @@ public class FunnelContext
             }
         }
 
-        if (keys == null)
+        if (isCheckSorted())
+            showParametersLog(true, "check sorted only, no output is written");
+        if (getTop() > 0)
+            showParametersLog(false, "top rows= {}", getTop());
+        if (getBottom() > 0)
+            showParametersLog(false, "bottom rows= {}", getBottom());
+        if (getGroupLimit() > 0)
+            showParametersLog(false, "group limit= {} rows per {} keys, up to {} groups in memory", getGroupLimit(),
+                    getGroupKeys(), getMaxGroups());
+        if (keys == null && isStreamingCopy())
+            logger.debug("process = {} order, streaming", getCopyOrder().name());
+        else if (keys == null)
             logger.debug("process = {} order", getCopyOrder().name());
         else
             for (final KeyPart def : keys)
@@ -1528,10 +1971,24 @@ public class FunnelContext
      */
     public boolean stopIsTrue() throws Exception
     {
-        if (getStopEqu() == null)
+        return stopIsTrue(getStopEqu());
+    }
+
+    /**
+     * <p>
+     * stopIsTrue.
+     * </p>
+     *
+     * @param stopEquations the --stopWhen equations, or copies of them.
+     * @return a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public boolean stopIsTrue(final List<Equ> stopEquations) throws Exception
+    {
+        if (stopEquations == null)
             return false;
 
-        for (final Equ equ : getStopEqu())
+        for (final Equ equ : stopEquations)
         {
             /*
              * All of the stop equations must be true.
@@ -1557,10 +2014,24 @@ public class FunnelContext
      */
     public boolean whereIsTrue() throws Exception
     {
-        if (getWhereEqu() == null)
+        return whereIsTrue(getWhereEqu());
+    }
+
+    /**
+     * <p>
+     * whereIsTrue.
+     * </p>
+     *
+     * @param whereEquations the --where equations, or copies of them.
+     * @return a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public boolean whereIsTrue(final List<Equ> whereEquations) throws Exception
+    {
+        if (whereEquations == null)
             return true;
 
-        for (final Equ equ : getWhereEqu())
+        for (final Equ equ : whereEquations)
         {
             /*
              * All of the where equations must be true.
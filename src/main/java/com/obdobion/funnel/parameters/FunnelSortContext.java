@@ -113,6 +113,40 @@ public class FunnelSortContext
             help = "Defines the process that will take place on the input.")
     public CopyOrder            copyOrder;
 
+    @Arg(allowCamelCaps = true,
+            help = "Only check that the input is already in the order of the --orderBy keys.  Nothing is written.  The first record that is out of order is reported.")
+    public boolean              checkSorted;
+
+    @Arg(longName = "top",
+            range = { "1" },
+            help = "Only the first N rows in the order of the keys are written.  They are kept in memory while the input is read and no work files are used.  Duplicates are counted before --duplicate removes any of them.")
+    public int                  top;
+
+    @Arg(longName = "bottom",
+            range = { "1" },
+            help = "Only the last N rows in the order of the keys are written, still in that order.  They are kept in memory while the input is read and no work files are used.")
+    public int                  bottom;
+
+    @Arg(longName = "groupLimit",
+            allowCamelCaps = true,
+            range = { "1" },
+            help = "Only the first N rows of each group are written.  A group is the rows that have the same value in the first --groupKeys keys of the --orderBy.  Rows that can not be in the first N of their group are dropped while the input is read.")
+    public int                  groupLimit;
+
+    @Arg(longName = "groupKeys",
+            allowCamelCaps = true,
+            defaultValues = "1",
+            range = { "1" },
+            help = "The number of --orderBy keys, from the first one, that make up a group for --groupLimit.")
+    public int                  groupKeys;
+
+    @Arg(longName = "maxGroups",
+            allowCamelCaps = true,
+            defaultValues = "65536",
+            range = { "1" },
+            help = "The most groups whose first --groupLimit rows are kept in memory while the input is read.  After that every row is sorted and the extra rows are only dropped when the output is written.")
+    public int                  maxGroups;
+
     @Arg(longName = "rowMax",
             allowCamelCaps = true,
             defaultValues = { "9223372036854775807" },
@@ -156,10 +190,73 @@ public class FunnelSortContext
     @Arg(allowCamelCaps = true, help = "Caching the input file into memory is faster.  This will turn off the feature.")
     public boolean              noCacheInput;
 
+    @Arg(longName = "cacheInputLimit",
+            allowCamelCaps = true,
+            defaultValues = "4096",
+            range = { "0", "1048576" },
+            help = "The most MB of cached input files that are kept for publishing the sorted output.  Each input file is cached while it is read and then kept as long as the total stays under this limit.  The original records of the files that do not fit are read from the files again.")
+    public int                  cacheInputLimit;
+
+    @Arg(allowCamelCaps = true,
+            help = "Memory map the input files rather than caching them or reading them with file i/o.  This implies --noCacheInput.")
+    public boolean              mappedInput;
+
+    @Arg(allowCamelCaps = true,
+            help = "Carry each whole record through the sort instead of rereading it from the input when the output is written.  This is automatic for fixed length records of up to --fullRecordLimit bytes.")
+    public boolean              fullRecord;
+
+    @Arg(longName = "fullRecordLimit",
+            allowCamelCaps = true,
+            defaultValues = "64",
+            range = { "0", "4096" },
+            help = "Fixed length records of up to this many bytes are carried through the sort as if --fullRecord had been specified.  0 turns this off so that only --fullRecord does it.")
+    public int                  fullRecordLimit;
+
+    @Arg(longName = "readAhead",
+            allowCamelCaps = true,
+            range = { "0", "64" },
+            help = "The number of 1 MB buffers that a background thread keeps filled ahead of the records being read from each input file.  Only used when the input is not cached or mapped.  0 reads on the sorting thread.")
+    public int                  readAhead;
+
+    @Arg(longName = "maxOpenFiles",
+            allowCamelCaps = true,
+            defaultValues = "128",
+            range = { "1", "65536" },
+            help = "The most input files that are kept open at once while the original records are reread for the output.  The least recently used file is closed when another one is needed.")
+    public int                  maxOpenFiles;
+
+    @Arg(longName = "gatherWindow",
+            allowCamelCaps = true,
+            range = { "0", "1048576" },
+            help = "The number of sorted rows whose original records are read together, in file order, when the input files are reread for the output.  Nearby records are read with one read on a small pool of threads.  This helps when the input is on a disk or a network where seeks are slow.  0 reads each original record as it is written.")
+    public int                  gatherWindow;
+
+    @Arg(longName = "sysinSpill",
+            allowCamelCaps = true,
+            range = { "0", "1048576" },
+            help = "Sort SYSIN as it arrives instead of loading all of it into memory first.  The original records are kept in memory up to this many MB and then moved to a spill file in the work directory.")
+    public int                  sysinSpill;
+
+    @Arg(longName = "ingestThreads",
+            allowCamelCaps = true,
+            range = { "0", "64" },
+            help = "The number of threads that extract columns, evaluate --where and --stopWhen, and build sort keys for the input records while the sort is running.  0 does this work on the sorting thread.")
+    public int                  ingestThreads;
+
+    @Arg(longName = "publishThreads",
+            allowCamelCaps = true,
+            range = { "0", "64" },
+            help = "The number of threads that evaluate the --formatOut columns of the sorted records.  The records are still written in order.  0 does this work on the sorting thread.  Not used when aggregating or with --hexDump.")
+    public int                  publishThreads;
+
     @Arg(allowCamelCaps = true,
             help = "Work files are stored on disk.  The amount of memory required to hold work areas in memory is about (2 * (keySize + 24)).")
     public boolean              diskWork;
 
+    @Arg(allowCamelCaps = true,
+            help = "Keep a manifest of the work file segments after each pass so that a failed sort can be continued from the last completed pass by running the same command again.  Requires --diskWork.")
+    public boolean              resume;
+
     @Arg(longName = "power",
             defaultValues = "16",
             range = { "2", "16" },
@@ -1,10 +1,12 @@
 package com.obdobion.funnel.provider;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -13,17 +15,29 @@ import org.slf4j.LoggerFactory;
 import com.obdobion.funnel.parameters.FunnelContext;
 
 /**
+ * The whole input, available for random access while the output is published.
  * <p>
- * Abstract AbstractInputCache class.
+ * Every buffer except the last one holds exactly 2^shift bytes, so the buffer
+ * that holds a position is found with a shift rather than a search. A stream
+ * (SYSIN) is read into heap buffers of {@link #BufferSize} bytes. An input
+ * file is not copied onto the heap at all; it is mapped read-only in windows of
+ * {@link #MappedWindowSize} bytes and the file is closed right away, the
+ * mappings stay valid without it. So a kept cache does not hold a file
+ * descriptor, however many input files there are. The operating system loads
+ * the pages of the file as they are read. An input file that the sort replaces (--replace) is copied onto the
+ * heap like a stream, because some systems will not replace a mapped file.
  * </p>
  *
  * @author Chris DeGreef fedupforone@gmail.com
  */
 abstract public class AbstractInputCache implements RandomAccessInputSource
 {
-    static final private Logger logger     = LoggerFactory.getLogger(AbstractInputCache.class);
+    static final private Logger logger            = LoggerFactory.getLogger(AbstractInputCache.class);
 
-    static final int            BufferSize = 1 << 15;
+    static final int            BufferShift       = 15;
+    static final int            BufferSize        = 1 << BufferShift;
+    static final int            MappedWindowShift = 30;
+    static final long           MappedWindowSize  = 1L << MappedWindowShift;
 
     /*
      * public for junit only
@@ -74,14 +88,57 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
      * keep this value separate for efficiency
      */
     final int              sourceBuffersSize;
+    final int              bufferShift;
+    final long             bufferMask;
+    final boolean          mapped;
 
-    final long[]           bufferStartingPosition;
     long                   currentFilePosition;
     int                    currentBufferIndex;
     ByteBuffer             currentBuffer;
 
     long                   length;
 
+    /**
+     * An input file, mapped into memory.
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @param _file a {@link java.io.File} object.
+     * @throws java.io.IOException if any.
+     */
+    public AbstractInputCache(
+            final FunnelContext _context, final File _file)
+                    throws IOException
+    {
+        context = _context;
+        source = null;
+        bufferShift = MappedWindowShift;
+        bufferMask = MappedWindowSize - 1;
+
+        mapped = true;
+        try (final RandomAccessFile mappedFile = new RandomAccessFile(_file, "r"))
+        {
+            final FileChannel channel = mappedFile.getChannel();
+            length = channel.size();
+            sourceBuffersSize = (int) ((length + bufferMask) >>> bufferShift);
+            sourceBuffers = new ArrayList<>(sourceBuffersSize);
+            for (int b = 0; b < sourceBuffersSize; b++)
+            {
+                final long start = (long) b << bufferShift;
+                final long size = Math.min(bufferMask + 1, length - start);
+                sourceBuffers.add(channel.map(FileChannel.MapMode.READ_ONLY, start, size));
+            }
+        }
+
+        logger.debug("{} mapped as {} windows", _file.getName(), sourceBuffersSize);
+        logger.debug(length() + " bytes total in all buffers");
+
+        postOpenVerification();
+
+        currentFilePosition = 0L;
+        currentBufferIndex = 0;
+    }
+
     /**
      * <p>
      * Constructor for AbstractInputCache.
@@ -100,12 +157,13 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
 
         context = _context;
         source = _source;
+        mapped = false;
+        bufferShift = BufferShift;
+        bufferMask = BufferSize - 1;
         sourceBuffers = new ArrayList<>();
 
         loadUntilSourceIsDepleted();
         sourceBuffersSize = sourceBuffers.size();
-        bufferStartingPosition = new long[sourceBuffersSize];
-        computeStartingPositionsOfTheBuffers();
 
         logger.debug(sourceBuffersSize + " buffers loaded into memory");
         logger.debug(length() + " bytes total in all buffers");
@@ -116,21 +174,30 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
         currentBufferIndex = 0;
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public void close() throws IOException
+    /**
+     * The buffer at the index.
+     */
+    ByteBuffer buffer(final int index)
     {
-        // Intentionally empty
+        return sourceBuffers.get(index);
     }
 
-    void computeStartingPositionsOfTheBuffers()
+    /**
+     * The buffer that holds the position.
+     */
+    int bufferIndex(final long position)
     {
-        long runningTotal = 0;
-        for (int b = 0; b < sourceBuffersSize; b++)
-        {
-            bufferStartingPosition[b] = runningTotal;
-            runningTotal += sourceBuffers.get(b).capacity();
-        }
+        return (int) (position >>> bufferShift);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        /*
+         * The file was closed when it was mapped. The mappings themselves are
+         * released when they are garbage collected.
+         */
     }
 
     /**
@@ -151,6 +218,19 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
         return !currentBuffer.hasRemaining();
     }
 
+    /**
+     * <p>
+     * isMapped.
+     * </p>
+     *
+     * @return true if the input file is mapped rather than copied onto the
+     *         heap.
+     */
+    public boolean isMapped()
+    {
+        return mapped;
+    }
+
     /**
      * <p>
      * length.
@@ -182,21 +262,29 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
             logger.debug("input source is not available, " + e.getMessage());
             return;
         }
-        while (true)
+        boolean depleted = false;
+        while (!depleted)
         {
+            /*
+             * Every buffer but the last must be full, a pipe can return fewer
+             * bytes than were asked for.
+             */
             final byte[] readBuf = new byte[BufferSize];
-            final int bytesRead = source.read(readBuf);
-            if (bytesRead == -1)
-                break;
-            length += bytesRead;
-            if (bytesRead < BufferSize)
+            int bytesInBuffer = 0;
+            while (bytesInBuffer < BufferSize)
             {
-                final ByteBuffer bb = ByteBuffer.wrap(Arrays.copyOf(readBuf, bytesRead));
-                sourceBuffers.add(bb);
-                break;
+                final int bytesRead = source.read(readBuf, bytesInBuffer, BufferSize - bytesInBuffer);
+                if (bytesRead == -1)
+                {
+                    depleted = true;
+                    break;
+                }
+                bytesInBuffer += bytesRead;
             }
-            final ByteBuffer bb = ByteBuffer.wrap(readBuf);
-            sourceBuffers.add(bb);
+            if (bytesInBuffer == 0)
+                break;
+            length += bytesInBuffer;
+            sourceBuffers.add(ByteBuffer.wrap(readBuf, 0, bytesInBuffer).slice());
         }
     }
 
@@ -231,47 +319,38 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
     public int read(
             final int inputFileIndex,
             final byte[] bytes,
+            final int offset,
             final long position,
-            final int _length)
+            final int _length) throws IOException
     {
-        currentBufferIndex = findBufferIndexForPosition(position, bufferStartingPosition);
-
-        currentBuffer = sourceBuffers.get(currentBufferIndex);
-        final long begBufPos = bufferStartingPosition[currentBufferIndex];
+        currentBufferIndex = bufferIndex(position);
+        currentBuffer = buffer(currentBufferIndex);
 
-        final int bbPosition = (int) (position - begBufPos);
+        final int bbPosition = (int) (position & bufferMask);
         final int bbCap = currentBuffer.capacity();
         if ((bbPosition + _length) > bbCap)
         {
-            final ByteBuffer concat = ByteBuffer.wrap(bytes);
-            int bytesToCopy = _length;
+            int bytesCopied = 0;
             if (bbPosition < bbCap)
             {
-                final int bytesAtEndOfBuffer = bbCap - bbPosition;
-                /*
-                 * An array() request does not honor the position of the buffer.
-                 * So do not start at 0 and don't bother playing around with the
-                 * position since it is no longer needed; the buffer will have
-                 * been consumed.
-                 */
-                concat.put(currentBuffer.array(), bbPosition, bytesAtEndOfBuffer);
-                currentBuffer.position(bbCap - 1);
-                bytesToCopy -= bytesAtEndOfBuffer;
+                bytesCopied = bbCap - bbPosition;
+                currentBuffer.position(bbPosition);
+                currentBuffer.get(bytes, offset, bytesCopied);
             }
-            if (bytesToCopy > 0)
+            if (bytesCopied < _length)
             {
                 currentBufferIndex++;
-                currentBuffer = sourceBuffers.get(currentBufferIndex);
+                currentBuffer = buffer(currentBufferIndex);
                 currentBuffer.position(0);
-                concat.put(currentBuffer.array(), 0, bytesToCopy);
+                currentBuffer.get(bytes, offset + bytesCopied, _length - bytesCopied);
             }
         } else
         {
             currentBuffer.position(bbPosition);
-            currentBuffer.get(bytes, 0, _length);
+            currentBuffer.get(bytes, offset, _length);
         }
 
-        currentFilePosition = begBufPos + bbPosition + _length;
+        currentFilePosition = position + _length;
         return _length;
     }
 
@@ -280,15 +359,16 @@ abstract public class AbstractInputCache implements RandomAccessInputSource
      * !eof() first.
      *
      * @return a byte.
+     * @throws java.io.IOException if any.
      */
-    public byte readNextByte()
+    public byte readNextByte() throws IOException
     {
-        currentBuffer = sourceBuffers.get(currentBufferIndex);
+        currentBuffer = buffer(currentBufferIndex);
 
         if (!currentBuffer.hasRemaining())
         {
             currentBufferIndex++;
-            currentBuffer = sourceBuffers.get(currentBufferIndex);
+            currentBuffer = buffer(currentBufferIndex);
         }
         currentFilePosition += 1;
         return currentBuffer.get();
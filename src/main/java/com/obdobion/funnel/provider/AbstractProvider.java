@@ -2,6 +2,7 @@ package com.obdobion.funnel.provider;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,7 @@ import com.obdobion.algebrain.Equ;
 import com.obdobion.funnel.Funnel;
 import com.obdobion.funnel.FunnelDataProvider;
 import com.obdobion.funnel.FunnelItem;
+import com.obdobion.funnel.ProxyBatch;
 import com.obdobion.funnel.orderby.KeyContext;
 import com.obdobion.funnel.parameters.DuplicateDisposition;
 import com.obdobion.funnel.parameters.FunnelContext;
@@ -33,7 +35,12 @@ public abstract class AbstractProvider implements FunnelDataProvider
     byte                row[];
     int                 unselectedCount;
 
-    private Equ[]       cachedEquations;
+    private RecordParser parser;
+    ParallelIngest      ingest;
+    /*
+     * Carries each row into a batch in fill.
+     */
+    final FunnelItem    batchItem = new FunnelItem();
 
     /**
      * <p>
@@ -70,32 +77,38 @@ public abstract class AbstractProvider implements FunnelDataProvider
     @Override
     public void close() throws IOException, ParseException
     {
+        if (ingest != null)
+        {
+            ingest.close();
+            ingest = null;
+        }
         if (reader == null)
             return;
         reader.close();
         reader = null;
     }
 
+    /**
+     * The rows are read into the batch directly rather than through next, one
+     * row at a time.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean fill(final ProxyBatch batch, final long phase) throws IOException, ParseException
+    {
+        batch.clear();
+        if (reader == null)
+            return false;
+        while (!batch.isFull() && nextRow(batchItem))
+            batch.add(batchItem.getData());
+        batchItem.reset();
+        return batch.size() > 0;
+    }
+
     Equ[] getCachedEquations()
     {
-        if (cachedEquations == null)
-        {
-            int ceSize = 0;
-            if (context.getWhereEqu() != null)
-                ceSize += context.getWhereEqu().size();
-            if (context.getStopEqu() != null)
-                ceSize += context.getStopEqu().size();
-            cachedEquations = new Equ[ceSize];
-
-            int ce = 0;
-            if (context.getWhereEqu() != null)
-                for (final Equ equ : context.getWhereEqu())
-                    cachedEquations[ce++] = equ;
-            if (context.getStopEqu() != null)
-                for (final Equ equ : context.getStopEqu())
-                    cachedEquations[ce++] = equ;
-        }
-        return cachedEquations;
+        return getParser().equations;
     }
 
     long getContinuousRecordNumber()
@@ -103,6 +116,13 @@ public abstract class AbstractProvider implements FunnelDataProvider
         return continuousRecordNumber;
     }
 
+    RecordParser getParser()
+    {
+        if (parser == null)
+            parser = new RecordParser(context);
+        return parser;
+    }
+
     long getThisFileRecordNumber()
     {
         return thisFileRecordNumber;
@@ -153,6 +173,21 @@ public abstract class AbstractProvider implements FunnelDataProvider
             return false;
         }
         item.setPhase(phase);
+        return nextRow(item);
+    }
+
+    /**
+     * Read the next selected row into the item, without the one row per phase
+     * check of next.
+     */
+    private boolean nextRow(final FunnelItem item) throws IOException, ParseException
+    {
+        if (context.getIngestThreads() > 0)
+        {
+            if (ingest == null)
+                ingest = new ParallelIngest(this, context.getIngestThreads());
+            return ingest.next(item);
+        }
 
         boolean earlyEnd = false;
         int byteCount = 0;
@@ -201,9 +236,15 @@ public abstract class AbstractProvider implements FunnelDataProvider
                 if (!isRowSelected(byteCount))
                     continue;
 
-                preSelectionExtract(byteCount);
+                if (getParser().rejects(row, byteCount))
+                {
+                    unselectedCount++;
+                    continue;
+                }
 
-                if (context.stopIsTrue())
+                preSelectionExtract(getParser(), row, byteCount, getContinuousRecordNumber());
+
+                if (getParser().stopIsTrue())
                 {
                     earlyEnd = true;
                     /*
@@ -216,7 +257,7 @@ public abstract class AbstractProvider implements FunnelDataProvider
                     break;
                 }
 
-                if (!context.whereIsTrue())
+                if (!getParser().whereIsTrue())
                 {
                     unselectedCount++;
                     continue;
@@ -243,37 +284,62 @@ public abstract class AbstractProvider implements FunnelDataProvider
             return false;
         }
 
-        final KeyContext kContext = postReadKeyProcessing(byteCount);
+        item.setData(newProxy(getParser(), row, byteCount, getContinuousRecordNumber(),
+                context.inputFileIndex(), startPosition));
+        return true;
+    }
+
+    SourceProxyRecord newProxy(
+            final RecordParser recordParser,
+            final byte[] data,
+            final int byteCount,
+            final long recordNumber,
+            final int inputFileIndex,
+            final long startPosition)
+                    throws IOException
+    {
+        final KeyContext kContext = postReadKeyProcessing(recordParser, data, byteCount, recordNumber);
 
         final SourceProxyRecord wrapped = SourceProxyRecord.getInstance(context);
-        wrapped.originalInputFileIndex = context.inputFileIndex();
+        wrapped.originalInputFileIndex = inputFileIndex;
 
         wrapped.size = kContext.keyLength;
         wrapped.sortKey = kContext.key;
+        wrapped.groupKeyLength = kContext.groupKeyLength;
         wrapped.originalSize = byteCount;
         wrapped.originalLocation = startPosition;
+        wrapped.originalRecord = context.isFullRecordSort()
+                ? Arrays.copyOf(data, byteCount)
+                : null;
 
         if (DuplicateDisposition.LastOnly == context.getDuplicateDisposition()
                 || DuplicateDisposition.Reverse == context.getDuplicateDisposition())
-            wrapped.setOriginalRecordNumber(-getContinuousRecordNumber());
+            wrapped.setOriginalRecordNumber(-recordNumber);
         else
-            wrapped.setOriginalRecordNumber(getContinuousRecordNumber());
+            wrapped.setOriginalRecordNumber(recordNumber);
 
-        item.setData(wrapped);
-        return true;
+        return wrapped;
     }
 
     /**
+     * @param recordParser
+     * @param data
      * @param byteCount
+     * @param recordNumber
      * @return
      * @throws IOException
      */
-    KeyContext postReadKeyProcessing(final int byteCount) throws IOException
+    KeyContext postReadKeyProcessing(
+            final RecordParser recordParser,
+            final byte[] data,
+            final int byteCount,
+            final long recordNumber)
+                    throws IOException
     {
         KeyContext kContext = null;
         try
         {
-            kContext = context.keyHelper.extractKey(row, getContinuousRecordNumber());
+            kContext = recordParser.keyHelper.extractKey(data, byteCount, recordNumber);
         } catch (final Exception e)
         {
             throw new IOException(e);
@@ -281,9 +347,14 @@ public abstract class AbstractProvider implements FunnelDataProvider
         return kContext;
     }
 
-    void preSelectionExtract(final int byteCount) throws Exception
+    void preSelectionExtract(
+            final RecordParser recordParser,
+            final byte[] data,
+            final int byteCount,
+            final long recordNumber)
+                    throws Exception
     {
-        context.columnHelper.extract(context, row, getContinuousRecordNumber(), byteCount, getCachedEquations());
+        recordParser.columnHelper.extract(context, data, recordNumber, byteCount, recordParser.equations);
     }
 
     /**
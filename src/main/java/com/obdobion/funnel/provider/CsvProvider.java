@@ -2,11 +2,8 @@ package com.obdobion.funnel.provider;
 
 import java.io.IOException;
 import java.text.ParseException;
-import java.util.Iterator;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,10 +81,14 @@ public class CsvProvider extends VariableLengthProvider
     @Override
     void assignReaderInstance() throws IOException, ParseException
     {
-        if (context.isSysin())
+        if (context.isSysinSpooled())
+            reader = new VariableLengthSysinStreamReader(context);
+        else if (context.isSysin())
             reader = new CsvSysinReader(context);
         else if (context.isCacheInput())
             reader = new CsvCacheReader(context);
+        else if (context.isMappedInput())
+            reader = new VariableLengthMappedReader(context);
         else
             reader = new CsvFileReader(context);
     }
@@ -106,25 +107,7 @@ public class CsvProvider extends VariableLengthProvider
     public byte[][] decodeCsv(final byte[] input, final int inputLength, final CSVFormat csvFormat)
             throws IOException
     {
-        final byte[][] field = new byte[includeColumn.length][];
-
-        try (final CSVParser csvparser = CSVParser.parse(new String(input, 0, inputLength), csvFormat))
-        {
-            final CSVRecord csvrecord = csvparser.getRecords().get(0);
-            final Iterator<String> fields = csvrecord.iterator();
-            for (int fNum = 0; fields.hasNext(); fNum++)
-            {
-                final String fieldAsString = fields.next();
-
-                if (fNum >= includeColumn.length)
-                    return field;
-
-                if (fNum < includeColumn.length)
-                    if (includeColumn[fNum])
-                        field[fNum] = fieldAsString.getBytes();
-            }
-            return field;
-        }
+        return new CsvTokenizer(csvFormat, includeColumn).tokenize(input, inputLength, -1);
     }
 
     /**
@@ -147,13 +130,24 @@ public class CsvProvider extends VariableLengthProvider
     }
 
     @Override
-    KeyContext postReadKeyProcessing(final int byteCount) throws IOException
+    KeyContext postReadKeyProcessing(
+            final RecordParser recordParser,
+            final byte[] record,
+            final int byteCount,
+            final long recordNumber)
+                    throws IOException
     {
         KeyContext kContext = null;
         try
         {
-            final byte[][] data = decodeCsv(row, byteCount, context.getCsv().format);
-            kContext = context.keyHelper.extractKey(data, getContinuousRecordNumber());
+            /*
+             * The record was tokenized when its columns were extracted.
+             */
+            final CsvTokenizer tokenizer = tokenizerFor(recordParser);
+            byte[][] data = tokenizer.fieldsOf(recordNumber);
+            if (data == null)
+                data = tokenizer.tokenize(record, byteCount, recordNumber);
+            kContext = recordParser.keyHelper.extractKey(data, recordNumber);
 
         } catch (final Exception e)
         {
@@ -163,10 +157,25 @@ public class CsvProvider extends VariableLengthProvider
     }
 
     @Override
-    void preSelectionExtract(final int byteCount) throws Exception
+    void preSelectionExtract(
+            final RecordParser recordParser,
+            final byte[] record,
+            final int byteCount,
+            final long recordNumber)
+                    throws Exception
+    {
+        final byte[][] data = tokenizerFor(recordParser).tokenize(record, byteCount, recordNumber);
+        recordParser.columnHelper.extract(context, data, recordNumber, byteCount);
+    }
+
+    /**
+     * Each parser tokenizes its records with its own tokenizer.
+     */
+    CsvTokenizer tokenizerFor(final RecordParser recordParser)
     {
-        final byte[][] data = decodeCsv(row, byteCount, context.getCsv().format);
-        context.columnHelper.extract(context, data, getContinuousRecordNumber(), byteCount);
+        if (recordParser.csvTokenizer == null)
+            recordParser.csvTokenizer = new CsvTokenizer(context.getCsv().format, includeColumn);
+        return recordParser.csvTokenizer;
     }
 
     byte[] unquote(final byte[] input, final int _start, final int _end, final byte quoteByte)
@@ -0,0 +1,387 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Splits one csv record into its fields directly from the bytes of the record.
+ * <p>
+ * A single pass over the record writes the start and end of each field into
+ * arrays that are reused from record to record. The fields after the last
+ * wanted one are only checked, and only the wanted fields are copied out of
+ * the record. The delimiter, quote, escape, null string and surrounding space
+ * handling follow the given {@link CSVFormat} the way the commons csv lexer
+ * does. The rare records that this class does not handle itself - empty lines,
+ * comment lines, records with an embedded end of line and records that the
+ * commons csv parser would reject - are handed to the commons csv parser, so
+ * the results and the errors are the same as they have always been.
+ * </p>
+ * <p>
+ * The fields of the most recent record are kept so that the column extraction
+ * and the key packing of a record share one tokenization. A tokenizer is only
+ * used by one thread at a time.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class CsvTokenizer
+{
+    static final private int CR        = '\r';
+    static final private int LF        = '\n';
+    static final private int TAB       = '\t';
+    static final private int BACKSPACE = '\b';
+    static final private int FF        = '\f';
+    /*
+     * Outside of the range of a byte so that it never matches one.
+     */
+    static final private int NONE      = Integer.MIN_VALUE;
+
+    static private int asByte(final Character character)
+    {
+        if (character == null)
+            return NONE;
+        return character.charValue();
+    }
+
+    final CSVFormat       format;
+    final boolean[]       includeColumn;
+    final int             wantedFields;
+    final int             delimiter;
+    final int             quote;
+    final int             escape;
+    final int             commentMarker;
+    final boolean         trim;
+    final byte[]          nullString;
+    /*
+     * Only ascii control characters can be matched byte for byte, anything else
+     * always goes to the commons csv parser.
+     */
+    final boolean         byteLevel;
+
+    final int[]           fieldStart;
+    final int[]           fieldEnd;
+    final boolean[]       fieldQuoted;
+    final boolean[]       fieldDecode;
+    int                   fieldCount;
+    byte[]                decodeBuffer;
+
+    byte[][]              fields;
+    long                  fieldsRecordNumber = -1;
+
+    /**
+     * <p>
+     * Constructor for CsvTokenizer.
+     * </p>
+     *
+     * @param _format a {@link org.apache.commons.csv.CSVFormat} object.
+     * @param _includeColumn the fields to be copied out of each record.
+     */
+    public CsvTokenizer(final CSVFormat _format, final boolean[] _includeColumn)
+    {
+        format = _format;
+        includeColumn = _includeColumn;
+
+        int highest = -1;
+        for (int f = 0; f < includeColumn.length; f++)
+            if (includeColumn[f])
+                highest = f;
+        wantedFields = highest + 1;
+
+        delimiter = format.getDelimiter();
+        quote = asByte(format.getQuoteCharacter());
+        escape = asByte(format.getEscapeCharacter());
+        commentMarker = asByte(format.getCommentMarker());
+        trim = format.getIgnoreSurroundingSpaces();
+        nullString = format.getNullString() == null
+                ? null
+                : format.getNullString().getBytes(StandardCharsets.UTF_8);
+
+        byteLevel = delimiter < 0x80
+                && quote < 0x80
+                && escape < 0x80
+                && commentMarker < 0x80
+                && (nullString == null || nullString.length == format.getNullString().length());
+
+        fieldStart = new int[wantedFields];
+        fieldEnd = new int[wantedFields];
+        fieldQuoted = new boolean[wantedFields];
+        fieldDecode = new boolean[wantedFields];
+        decodeBuffer = new byte[64];
+    }
+
+    private byte[] copyField(final byte[] row, final int f)
+    {
+        final byte[] field;
+        if (fieldDecode[f])
+            field = decode(row, f);
+        else
+            field = Arrays.copyOfRange(row, fieldStart[f], fieldEnd[f]);
+
+        if (nullString != null && isNullString(field))
+            return null;
+        return field;
+    }
+
+    /**
+     * Remove the quotes and escapes from a field, and the surrounding spaces
+     * when they were escaped in an unquoted field.
+     */
+    private byte[] decode(final byte[] row, final int f)
+    {
+        final int end = fieldEnd[f];
+        if (decodeBuffer.length < 2 * (end - fieldStart[f]))
+            decodeBuffer = new byte[2 * (end - fieldStart[f])];
+
+        int used = 0;
+        for (int p = fieldStart[f]; p < end; p++)
+        {
+            final int b = row[p];
+            if (b == escape)
+            {
+                final int escaped = row[++p];
+                final int unescaped = unescape(escaped);
+                if (unescaped == NONE)
+                {
+                    decodeBuffer[used++] = (byte) b;
+                    decodeBuffer[used++] = (byte) escaped;
+                } else
+                    decodeBuffer[used++] = (byte) unescaped;
+                continue;
+            }
+            if (b == quote && fieldQuoted[f])
+                /*
+                 * A doubled quote, skip the first one.
+                 */
+                p++;
+            decodeBuffer[used++] = row[p];
+        }
+        if (trim && !fieldQuoted[f])
+            while (used > 0 && isWhitespace(decodeBuffer[used - 1]))
+                used--;
+        return Arrays.copyOf(decodeBuffer, used);
+    }
+
+    /**
+     * The wanted fields of the most recent record that was tokenized.
+     *
+     * @param recordNumber the record the fields are wanted for.
+     * @return the fields, or null if this is not the most recent record.
+     */
+    public byte[][] fieldsOf(final long recordNumber)
+    {
+        if (recordNumber != fieldsRecordNumber)
+            return null;
+        return fields;
+    }
+
+    private boolean isEndOfLine(final int b)
+    {
+        return b == CR || b == LF;
+    }
+
+    private boolean isNullString(final byte[] field)
+    {
+        if (field.length != nullString.length)
+            return false;
+        for (int b = 0; b < field.length; b++)
+            if (Character.toLowerCase(field[b]) != Character.toLowerCase(nullString[b]))
+                return false;
+        return true;
+    }
+
+    /**
+     * The same as the commons csv lexer, which does not consider the delimiter
+     * to be white space even when it is a tab.
+     */
+    private boolean isWhitespace(final int b)
+    {
+        return b >= 0 && b != delimiter && Character.isWhitespace(b);
+    }
+
+    /**
+     * The commons csv parser, for the records that are not tokenized here.
+     */
+    private byte[][] parseWithCommonsCsv(final byte[] row, final int length) throws IOException
+    {
+        final byte[][] field = new byte[includeColumn.length][];
+
+        try (final CSVParser csvparser = CSVParser.parse(new String(row, 0, length), format))
+        {
+            final CSVRecord csvrecord = csvparser.getRecords().get(0);
+            final Iterator<String> values = csvrecord.iterator();
+            for (int fNum = 0; values.hasNext(); fNum++)
+            {
+                final String fieldAsString = values.next();
+
+                if (fNum >= includeColumn.length)
+                    return field;
+
+                if (includeColumn[fNum] && fieldAsString != null)
+                    field[fNum] = fieldAsString.getBytes();
+            }
+            return field;
+        }
+    }
+
+    /**
+     * Find the start and end of each field up to the last wanted one. The
+     * fields after it are only checked, so that a record that the commons csv
+     * parser would reject is still given to it.
+     *
+     * @return false if the record has to go to the commons csv parser.
+     */
+    private boolean split(final byte[] row, final int length)
+    {
+        if (length == 0 || isEndOfLine(row[0]) || row[0] == commentMarker)
+            return false;
+
+        fieldCount = 0;
+        int p = 0;
+        while (true)
+        {
+            final int f = fieldCount;
+            final boolean wanted = f < wantedFields;
+            if (trim)
+                while (p < length && isWhitespace(row[p]) && !isEndOfLine(row[p]))
+                    p++;
+
+            boolean decode = false;
+            final boolean quoted = p < length && row[p] == quote;
+            final int start;
+            final int end;
+            if (quoted)
+            {
+                start = ++p;
+                while (true)
+                {
+                    if (p >= length)
+                        return false;
+                    final int b = row[p];
+                    if (b == escape)
+                    {
+                        if (++p >= length)
+                            return false;
+                        decode = true;
+                    } else if (b == quote)
+                    {
+                        if (p + 1 < length && row[p + 1] == quote)
+                        {
+                            decode = true;
+                            p++;
+                        } else
+                            break;
+                    }
+                    p++;
+                }
+                end = p++;
+                /*
+                 * Only white space may follow the closing quote.
+                 */
+                while (p < length && row[p] != delimiter && !isEndOfLine(row[p]))
+                {
+                    if (!isWhitespace(row[p]))
+                        return false;
+                    p++;
+                }
+            } else
+            {
+                start = p;
+                while (p < length && row[p] != delimiter && !isEndOfLine(row[p]))
+                {
+                    if (row[p] == escape)
+                    {
+                        if (++p >= length)
+                            return false;
+                        decode = true;
+                    }
+                    p++;
+                }
+                int trimmed = p;
+                if (trim && !decode)
+                    while (trimmed > start && isWhitespace(row[trimmed - 1]))
+                        trimmed--;
+                end = trimmed;
+            }
+            if (wanted)
+            {
+                fieldStart[f] = start;
+                fieldEnd[f] = end;
+                fieldQuoted[f] = quoted;
+                fieldDecode[f] = decode;
+                fieldCount++;
+            }
+
+            if (p >= length)
+                break;
+            if (isEndOfLine(row[p]))
+                return false;
+            p++;
+        }
+        return true;
+    }
+
+    /**
+     * Split a record into its fields. The wanted fields are copied into a new
+     * array each; the fields that are not wanted are null.
+     *
+     * @param row an array of byte.
+     * @param length the number of bytes in the record.
+     * @param recordNumber the number of the record, so that the fields can be
+     *            found again with {@link #fieldsOf(long)}.
+     * @return an array of fields, one for each entry in the include list.
+     * @throws java.io.IOException if the record is not valid csv.
+     */
+    public byte[][] tokenize(final byte[] row, final int length, final long recordNumber) throws IOException
+    {
+        fieldsRecordNumber = -1;
+        if (!byteLevel || !split(row, length))
+            fields = parseWithCommonsCsv(row, length);
+        else
+        {
+            fields = new byte[includeColumn.length][];
+            for (int f = 0; f < fieldCount; f++)
+                if (includeColumn[f])
+                    fields[f] = copyField(row, f);
+        }
+        fieldsRecordNumber = recordNumber;
+        return fields;
+    }
+
+    /**
+     * The same as the escapes of the commons csv lexer.
+     *
+     * @return NONE when the escape and the character are both kept.
+     */
+    private int unescape(final int b)
+    {
+        switch (b)
+        {
+            case 'r':
+                return CR;
+            case 'n':
+                return LF;
+            case 't':
+                return TAB;
+            case 'b':
+                return BACKSPACE;
+            case 'f':
+                return FF;
+            case CR:
+            case LF:
+            case FF:
+            case TAB:
+            case BACKSPACE:
+                return b;
+            default:
+                if (b == delimiter || b == escape || b == quote || b == commentMarker)
+                    return b;
+                return NONE;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.obdobion.funnel.provider;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds end of record delimiters in a buffer eight bytes at a time. Each long
+ * read from the buffer is compared against the first delimiter byte in every
+ * lane at once (SWAR, SIMD within a register); the remaining bytes of a
+ * multi-byte delimiter are only compared at the candidate positions that this
+ * finds.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class DelimiterScanner
+{
+    static final long ONES = 0x0101010101010101L;
+    static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * The position of the first occurrence of a byte.
+     *
+     * @param buffer a {@link java.nio.ByteBuffer} object. Its position and
+     *            limit are not used or changed.
+     * @param from the first position to search.
+     * @param to the position after the last one to search.
+     * @param target the byte to find.
+     * @return the position of the byte or -1 if it is not in the range.
+     */
+    static public int indexOf(final ByteBuffer buffer, final int from, final int to, final byte target)
+    {
+        final long pattern = ONES * (target & 0xFF);
+        final boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+
+        int p = from;
+        for (; p + 8 <= to; p += 8)
+        {
+            /*
+             * A lane of word is zero where the buffer has the target byte. The
+             * high bit of each zero lane is set in found. Masking with LOW7
+             * first keeps the addition from carrying between lanes so there
+             * are no false positives.
+             */
+            final long word = buffer.getLong(p) ^ pattern;
+            final long found = ~(((word & LOW7) + LOW7) | word | LOW7);
+            if (found != 0)
+                return p + ((littleEndian
+                        ? Long.numberOfTrailingZeros(found)
+                        : Long.numberOfLeadingZeros(found)) >>> 3);
+        }
+        for (; p < to; p++)
+            if (buffer.get(p) == target)
+                return p;
+        return -1;
+    }
+
+    /**
+     * The position of the first complete occurrence of a delimiter. A
+     * delimiter that starts in the range but does not fit entirely before
+     * <code>to</code> is not found.
+     *
+     * @param buffer a {@link java.nio.ByteBuffer} object. Its position and
+     *            limit are not used or changed.
+     * @param from the first position to search.
+     * @param to the position after the last one to search.
+     * @param delimiter the bytes to find.
+     * @return the position of the delimiter or -1 if it is not in the range.
+     */
+    static public int indexOf(final ByteBuffer buffer, final int from, final int to, final byte[] delimiter)
+    {
+        final int lastStart = to - delimiter.length + 1;
+        int p = from;
+        while ((p = indexOf(buffer, p, lastStart, delimiter[0])) >= 0)
+        {
+            if (matchesAt(buffer, p, delimiter))
+                return p;
+            p++;
+        }
+        return -1;
+    }
+
+    static boolean matchesAt(final ByteBuffer buffer, final int position, final byte[] delimiter)
+    {
+        for (int d = 1; d < delimiter.length; d++)
+            if (buffer.get(position + d) != delimiter[d])
+                return false;
+        return true;
+    }
+}
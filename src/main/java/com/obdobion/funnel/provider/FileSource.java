@@ -1,8 +1,12 @@
 package com.obdobion.funnel.provider;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,18 +14,80 @@ import org.slf4j.LoggerFactory;
 import com.obdobion.funnel.parameters.FunnelContext;
 
 /**
+ * The original input files, reread with file i/o.
  * <p>
- * FileSource class.
+ * The files are opened when they are first needed and at most --maxOpenFiles
+ * of them are open at once; the least recently used one is closed to make room
+ * for another. Each open file keeps a window of the bytes around its most
+ * recent read so that original records that are published close together are
+ * copied from the window rather than read one at a time.
  * </p>
  *
  * @author Chris DeGreef fedupforone@gmail.com
  */
 public class FileSource implements RandomAccessInputSource
 {
-    static final private Logger logger = LoggerFactory.getLogger(FileSource.class);
+    static final private Logger logger     = LoggerFactory.getLogger(FileSource.class);
 
-    final FunnelContext         context;
-    RandomAccessFile[]          raf;
+    static final int            WindowSize = 1 << 16;
+
+    static class OpenFile
+    {
+        final RandomAccessFile raf;
+        final byte[]           window;
+        long                   windowStart;
+        int                    windowLength;
+
+        OpenFile(final File file) throws IOException
+        {
+            raf = new RandomAccessFile(file, "r");
+            window = new byte[WindowSize];
+        }
+
+        void close() throws IOException
+        {
+            raf.close();
+        }
+
+        int read(final byte[] bytes, final int offset, final long location, final int size) throws IOException
+        {
+            if (size > window.length)
+            {
+                raf.seek(location);
+                return raf.read(bytes, offset, size);
+            }
+            if (location < windowStart || location + size > windowStart + windowLength)
+            {
+                /*
+                 * Reading backwards, as a reverse copy does, the window ends
+                 * with the record rather than starting with it.
+                 */
+                if (location < windowStart)
+                    windowStart = Math.max(0, location + size - window.length);
+                else
+                    windowStart = location;
+                raf.seek(windowStart);
+                windowLength = 0;
+                while (windowLength < window.length)
+                {
+                    final int count = raf.read(window, windowLength, window.length - windowLength);
+                    if (count == -1)
+                        break;
+                    windowLength += count;
+                }
+            }
+            final int available = (int) Math.min(size, windowStart + windowLength - location);
+            if (available <= 0)
+                return -1;
+            System.arraycopy(window, (int) (location - windowStart), bytes, offset, available);
+            return available;
+        }
+    }
+
+    final FunnelContext              context;
+    final int                        maxOpenFiles;
+    File[]                           files;
+    LinkedHashMap<Integer, OpenFile> openFiles;
 
     /**
      * <p>
@@ -36,29 +102,76 @@ public class FileSource implements RandomAccessInputSource
     public FileSource(final FunnelContext _context) throws ParseException, IOException
     {
         context = _context;
-        raf = new RandomAccessFile[context.inputFileCount()];
+        maxOpenFiles = context.getMaxOpenFiles();
+    }
+
+    /**
+     * The channel of an input file for positional reads, which may be made
+     * from several threads at once. The file becomes the most recently used
+     * one and it stays open until another --maxOpenFiles files have been used.
+     *
+     * @param originalInputFileIndex the index of the input file.
+     * @return a {@link java.nio.channels.FileChannel} object.
+     * @throws java.io.IOException if any.
+     */
+    public FileChannel channel(final int originalInputFileIndex) throws IOException
+    {
+        return openFile(originalInputFileIndex).raf.getChannel();
     }
 
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException, ParseException
     {
-        for (int i = 0; i < context.inputFileCount(); i++)
-        {
-            raf[i].close();
-            logger.debug("releasing original input source " + context.getInputFile(i).getAbsolutePath());
-        }
+        if (openFiles == null)
+            return;
+        for (final OpenFile openFile : openFiles.values())
+            openFile.close();
+        openFiles = null;
+        for (final File file : files)
+            logger.debug("releasing original input source " + file.getAbsolutePath());
     }
 
     /** {@inheritDoc} */
     @Override
     public void open() throws IOException, ParseException
     {
-        for (int i = 0; i < context.inputFileCount(); i++)
+        files = new File[context.inputFileCount()];
+        for (int i = 0; i < files.length; i++)
+        {
+            files[i] = context.getInputFile(i);
+            logger.debug("rereading original input source " + files[i].getAbsolutePath());
+        }
+        openFiles = new LinkedHashMap<Integer, OpenFile>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, OpenFile> eldest)
+            {
+                if (size() <= maxOpenFiles)
+                    return false;
+                try
+                {
+                    eldest.getValue().close();
+                } catch (final IOException e)
+                {
+                    logger.warn("unable to close {}, {}", files[eldest.getKey()].getAbsolutePath(), e.getMessage());
+                }
+                return true;
+            }
+        };
+    }
+
+    OpenFile openFile(final int originalInputFileIndex) throws IOException
+    {
+        OpenFile openFile = openFiles.get(originalInputFileIndex);
+        if (openFile == null)
         {
-            raf[i] = new RandomAccessFile(context.getInputFile(i), "r");
-            logger.debug("rereading original input source " + context.getInputFile(i).getAbsolutePath());
+            openFile = new OpenFile(files[originalInputFileIndex]);
+            openFiles.put(originalInputFileIndex, openFile);
         }
+        return openFile;
     }
 
     /** {@inheritDoc} */
@@ -66,14 +179,14 @@ public class FileSource implements RandomAccessInputSource
     public int read(
             final int originalInputFileIndex,
             final byte[] originalBytes,
+            final int offset,
             final long originalLocation,
             final int originalSize)
                     throws IOException
     {
-        raf[originalInputFileIndex].seek(originalLocation);
         int readSize = originalSize;
-        if (originalBytes.length < originalSize)
-            readSize = originalBytes.length;
-        return raf[originalInputFileIndex].read(originalBytes, 0, readSize);
+        if (originalBytes.length - offset < originalSize)
+            readSize = originalBytes.length - offset;
+        return openFile(originalInputFileIndex).read(originalBytes, offset, originalLocation, readSize);
     }
 }
@@ -22,6 +22,11 @@ public class FixedLengthCacheReader implements InputReader
     static final Logger logger = LoggerFactory.getLogger(FixedLengthCacheReader.class);
 
     final FunnelContext context;
+    /*
+     * The cache of the current file is kept for the publisher, so the reader
+     * must not close it.
+     */
+    boolean             cacheKept;
     long                currentPosition;
 
     /**
@@ -38,6 +43,7 @@ public class FixedLengthCacheReader implements InputReader
     {
         context = _context;
         logger.debug("fixed length cache provider activated");
+        context.inputCaches = new InputCacheSet(context);
         loadDataToCache();
         currentPosition = 0;
     }
@@ -46,7 +52,8 @@ public class FixedLengthCacheReader implements InputReader
     @Override
     public void close() throws IOException
     {
-        // intentionally empty
+        if (context.inputCache != null && !cacheKept)
+            context.inputCache.close();
     }
 
     /** {@inheritDoc} */
@@ -58,18 +65,33 @@ public class FixedLengthCacheReader implements InputReader
 
     void loadDataToCache() throws IOException, ParseException
     {
-        try (final FileInputStream inputStream = new FileInputStream(context.getInputFile(context.inputFileIndex())))
+        final int inputFileIndex = context.inputFileIndex();
+        final File inputFile = context.getInputFile(inputFileIndex);
+        if (context.isInPlaceSort())
+        {
+            /*
+             * The input file is replaced by the output, and some systems
+             * (Windows) will not replace a file that is still mapped.
+             */
+            try (final FileInputStream inputStream = new FileInputStream(inputFile))
+            {
+                context.inputCache = new FixedLengthInputCache(context, inputStream);
+            }
+            logger.debug("loaded " + inputFile.getAbsolutePath());
+        } else
         {
-            context.inputCache = new FixedLengthInputCache(context, inputStream);
-            logger.debug("loaded " + context.getInputFile(context.inputFileIndex()).getAbsolutePath());
+            context.inputCache = new FixedLengthInputCache(context, inputFile);
+            logger.debug("mapped " + inputFile.getAbsolutePath());
         }
+        cacheKept = !context.isFullRecordSort() && context.inputCaches.keep(inputFileIndex, context.inputCache);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void open(final File inputFile)
+    public void open(final File inputFile) throws IOException, ParseException
     {
-        // intentionally empty
+        loadDataToCache();
+        currentPosition = 0;
     }
 
     /** {@inheritDoc} */
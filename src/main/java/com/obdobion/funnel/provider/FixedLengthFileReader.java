@@ -2,7 +2,6 @@ package com.obdobion.funnel.provider;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +18,8 @@ public class FixedLengthFileReader implements InputReader
     static final Logger logger = LoggerFactory.getLogger(FixedLengthFileReader.class);
 
     File                inputFile;
-    RandomAccessFile    reader;
+    final int           readAhead;
+    ReadAheadFile       reader;
 
     /**
      * <p>
@@ -32,9 +32,38 @@ public class FixedLengthFileReader implements InputReader
      */
     public FixedLengthFileReader(final File _inputFile, final byte[] lineSeparator) throws IOException
     {
+        this(_inputFile, lineSeparator, 0);
+    }
+
+    /**
+     * <p>
+     * Constructor for FixedLengthFileReader.
+     * </p>
+     *
+     * @param _inputFile a {@link java.io.File} object.
+     * @param lineSeparator an array of byte.
+     * @param _readAhead the number of buffers read ahead of the records.
+     * @throws java.io.IOException if any.
+     */
+    public FixedLengthFileReader(final File _inputFile, final byte[] lineSeparator, final int _readAhead)
+            throws IOException
+    {
+        readAhead = _readAhead;
         open(_inputFile);
     }
 
+    /**
+     * Read from a source that has already been opened.
+     *
+     * @param source a {@link com.obdobion.funnel.provider.ReadAheadFile}
+     *            object.
+     */
+    FixedLengthFileReader(final ReadAheadFile source)
+    {
+        readAhead = 0;
+        reader = source;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException
@@ -55,7 +84,7 @@ public class FixedLengthFileReader implements InputReader
     public void open(final File _inputFile) throws IOException
     {
         inputFile = _inputFile;
-        reader = new RandomAccessFile(_inputFile, "r");
+        reader = new ReadAheadFile(_inputFile, readAhead);
     }
 
     /** {@inheritDoc} */
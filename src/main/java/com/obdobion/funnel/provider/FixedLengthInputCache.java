@@ -1,5 +1,6 @@
 package com.obdobion.funnel.provider;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -14,6 +15,21 @@ import com.obdobion.funnel.parameters.FunnelContext;
  */
 public class FixedLengthInputCache extends AbstractInputCache
 {
+    /**
+     * <p>
+     * Constructor for FixedLengthInputCache.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @param _file a {@link java.io.File} object.
+     * @throws java.io.IOException if any.
+     */
+    public FixedLengthInputCache(final FunnelContext _context, final File _file) throws IOException
+    {
+        super(_context, _file);
+    }
+
     /**
      * <p>
      * Constructor for FixedLengthInputCache.
@@ -0,0 +1,79 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads fixed length records from a memory mapped input file.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class FixedLengthMappedReader implements InputReader
+{
+    static final Logger logger = LoggerFactory.getLogger(FixedLengthMappedReader.class);
+
+    final int           recordLength;
+    File                inputFile;
+    MappedFile          mappedFile;
+    long                nextPosition;
+
+    /**
+     * <p>
+     * Constructor for FixedLengthMappedReader.
+     * </p>
+     *
+     * @param _inputFile a {@link java.io.File} object.
+     * @param _recordLength a int.
+     * @throws java.io.IOException if any.
+     */
+    public FixedLengthMappedReader(final File _inputFile, final int _recordLength) throws IOException
+    {
+        recordLength = _recordLength;
+        open(_inputFile);
+        logger.debug("fixed length mapped reader activated");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        mappedFile.close();
+        logger.debug("loaded " + inputFile.getAbsolutePath());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws IOException
+    {
+        return mappedFile.length();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open(final File _inputFile) throws IOException
+    {
+        inputFile = _inputFile;
+        mappedFile = new MappedFile(_inputFile, recordLength);
+        nextPosition = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long position() throws IOException
+    {
+        return nextPosition;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(final byte[] row) throws IOException
+    {
+        final int count = mappedFile.read(nextPosition, row, row.length);
+        if (count > 0)
+            nextPosition += count;
+        return count;
+    }
+}
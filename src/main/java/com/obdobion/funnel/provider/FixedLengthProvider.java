@@ -35,6 +35,8 @@ public class FixedLengthProvider extends AbstractProvider
     @Override
     public long actualNumberOfRows()
     {
+        if (context.isSysinSpooled())
+            return getContinuousRecordNumber();
         return maximumNumberOfRows();
     }
 
@@ -44,7 +46,14 @@ public class FixedLengthProvider extends AbstractProvider
         initializeReader();
         try
         {
-            size = reader.length() / context.getFixedRecordLengthIn();
+            final long length = reader.length();
+            /*
+             * The length of a stream is not known in advance.
+             */
+            if (length < 0)
+                size = context.getMaximumNumberOfRows();
+            else
+                size = length / context.getFixedRecordLengthIn();
         } catch (final IOException e)
         {
             App.abort(-1, e);
@@ -86,13 +95,19 @@ public class FixedLengthProvider extends AbstractProvider
      */
     protected void initializeReader() throws IOException, ParseException
     {
-        if (context.isSysin())
+        if (context.isSysinSpooled())
+            reader = new FixedLengthSysinStreamReader(context);
+        else if (context.isSysin())
             reader = new FixedLengthSysinReader(context);
         else if (context.isCacheInput())
             reader = new FixedLengthCacheReader(context);
+        else if (context.isMappedInput())
+            reader = new FixedLengthMappedReader(context
+                    .getInputFile(context.inputFileIndex()), context.getFixedRecordLengthIn());
         else
             reader = new FixedLengthFileReader(context
-                    .getInputFile(context.inputFileIndex()), context.getEndOfRecordDelimiterIn());
+                    .getInputFile(context.inputFileIndex()), context.getEndOfRecordDelimiterIn(),
+                    context.getReadAhead());
     }
 
     /** {@inheritDoc} */
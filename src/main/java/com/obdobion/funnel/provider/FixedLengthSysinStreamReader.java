@@ -0,0 +1,63 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * Reads fixed length records from SYSIN as they arrive. The bytes are copied
+ * to a {@link com.obdobion.funnel.provider.SysinSpool} on the way through.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class FixedLengthSysinStreamReader extends FixedLengthFileReader
+{
+    static final private Logger _logger = LoggerFactory.getLogger(FixedLengthSysinStreamReader.class);
+
+    final FunnelContext         context;
+
+    /**
+     * <p>
+     * Constructor for FixedLengthSysinStreamReader.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     */
+    public FixedLengthSysinStreamReader(final FunnelContext _context)
+    {
+        super(SysinSpool.openSysin(_context));
+        context = _context;
+        _logger.debug("fixed length sysin stream reader activated");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+        _logger.debug("loaded SYSIN, {} bytes", context.sysinSpool.length());
+    }
+
+    /**
+     * The length of SYSIN is not known until it has all been read.
+     *
+     * @return -1
+     */
+    @Override
+    public long length() throws IOException
+    {
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open(final File _inputFile) throws IOException
+    {
+        throw new IOException("SYSIN can not be combined with other input files");
+    }
+}
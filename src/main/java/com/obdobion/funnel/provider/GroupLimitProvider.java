@@ -0,0 +1,176 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.FunnelDataProvider;
+import com.obdobion.funnel.FunnelItem;
+import com.obdobion.funnel.ProxyBatch;
+import com.obdobion.funnel.parameters.FunnelContext;
+import com.obdobion.funnel.segment.SourceProxyRecord;
+import com.obdobion.funnel.segment.TopRows;
+
+/**
+ * Drops the rows that can not be in the first --groupLimit rows of their group
+ * before they are sorted.
+ * <p>
+ * The input is read into a {@link TopRows} heap for each group, the group
+ * being the front of the sort key up to the --groupKeys keys. Only the rows
+ * that are left in the heaps are then provided to the funnel. If there are
+ * more than --maxGroups groups the heaps stop there; the rows that they hold
+ * and all of the rest of the input are provided to be sorted, and the
+ * publisher drops the extra rows of each group as it writes them.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class GroupLimitProvider implements FunnelDataProvider
+{
+    static final private Logger           logger = LoggerFactory.getLogger(GroupLimitProvider.class);
+
+    final FunnelContext                   context;
+    final FunnelDataProvider              source;
+    final ProxyBatch                      batch;
+    final Map<ByteBuffer, TopRows>        groups;
+    final List<SourceProxyRecord>         kept;
+    int                                   position;
+    /*
+     * The rest of the batch, from the first row of a group that did not fit,
+     * when there are too many.
+     */
+    int                                   pending;
+    boolean                               overflow;
+
+    /**
+     * <p>
+     * Constructor for GroupLimitProvider.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @param _source the provider of the original input.
+     */
+    public GroupLimitProvider(final FunnelContext _context, final FunnelDataProvider _source)
+    {
+        context = _context;
+        source = _source;
+        batch = new ProxyBatch();
+        groups = new HashMap<>();
+        kept = new ArrayList<>();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long actualNumberOfRows()
+    {
+        return source.actualNumberOfRows();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void attachTo(final FunnelItem item)
+    {
+        item.setProvider(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException, ParseException
+    {
+        source.close();
+    }
+
+    /**
+     * Read the input into the heaps of the groups, up to --maxGroups groups.
+     *
+     * @throws java.io.IOException if any.
+     * @throws java.text.ParseException if any.
+     */
+    public void load() throws IOException, ParseException
+    {
+        final int limit = context.getGroupLimit();
+        long droppedCount = 0;
+        while (!overflow && source.fill(batch, 1))
+            for (pending = 0; pending < batch.size(); pending++)
+            {
+                final SourceProxyRecord row = batch.get(pending);
+                TopRows heap = groups.get(ByteBuffer.wrap(row.sortKey, 0, row.groupKeyLength));
+                if (heap == null)
+                {
+                    if (groups.size() == context.getMaxGroups())
+                    {
+                        overflow = true;
+                        break;
+                    }
+                    heap = new TopRows(limit, false);
+                    groups.put(ByteBuffer.wrap(Arrays.copyOf(row.sortKey, row.groupKeyLength)), heap);
+                }
+                heap.add(row);
+            }
+        for (final TopRows heap : groups.values())
+        {
+            droppedCount += heap.getDroppedCount();
+            kept.addAll(Arrays.asList(heap.sorted()));
+        }
+        if (overflow)
+            logger.debug("more than {} groups, the rest of the input is sorted in full", groups.size());
+        logger.debug("{} rows kept from {} groups, {} dropped", kept.size(), groups.size(), droppedCount);
+        groups.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long maximumNumberOfRows()
+    {
+        if (overflow)
+            return source.maximumNumberOfRows();
+        return kept.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next(final FunnelItem item, final long phase) throws IOException, ParseException
+    {
+        /*
+         * Only return 1 row per phase per item.
+         */
+        if (item.getPhase() == phase)
+        {
+            item.setEndOfData(true);
+            return false;
+        }
+        if (position < kept.size())
+        {
+            item.setPhase(phase);
+            item.setData(kept.get(position));
+            kept.set(position++, null);
+            return true;
+        }
+        if (overflow && pending < batch.size())
+        {
+            item.setPhase(phase);
+            item.setData(batch.get(pending++));
+            return true;
+        }
+        if (overflow)
+            return source.next(item, phase);
+        item.setEndOfData(true);
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() throws IOException, ParseException
+    {
+        source.reset();
+    }
+}
@@ -227,6 +227,7 @@ public class InputCache implements RandomAccessInputSource
     public int read(
             final int inputFileIndex,
             final byte[] bytes,
+            final int offset,
             final long position,
             final int _length)
     {
@@ -239,7 +240,7 @@ public class InputCache implements RandomAccessInputSource
         final int bbCap = currentBuffer.capacity();
         if ((bbPosition + _length) > bbCap)
         {
-            final ByteBuffer concat = ByteBuffer.wrap(bytes);
+            final ByteBuffer concat = ByteBuffer.wrap(bytes, offset, _length);
             int bytesToCopy = _length;
             if (bbPosition < bbCap)
             {
@@ -264,7 +265,7 @@ public class InputCache implements RandomAccessInputSource
         } else
         {
             currentBuffer.position(bbPosition);
-            currentBuffer.get(bytes, 0, _length);
+            currentBuffer.get(bytes, offset, _length);
         }
 
         currentFilePosition = bbPosition + _length;
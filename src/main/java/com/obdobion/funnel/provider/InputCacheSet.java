@@ -0,0 +1,129 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.Funnel;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * The original records of all of the input files, indexed by the
+ * originalInputFileIndex of each record.
+ * <p>
+ * Each input file is cached while it is being read. The cache is also kept
+ * here, for the publisher, as long as the total size of the kept caches stays
+ * within the --cacheInputLimit. The caches of the files that do not fit are
+ * released by the reader and the original records of those files are read
+ * from the files again by a {@link FileSource}.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class InputCacheSet implements RandomAccessInputSource
+{
+    static final private Logger logger = LoggerFactory.getLogger(InputCacheSet.class);
+
+    final FunnelContext         context;
+    final long                  limit;
+    final AbstractInputCache[]  caches;
+    final FileSource            files;
+    long                        keptLength;
+
+    /**
+     * <p>
+     * Constructor for InputCacheSet.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @throws java.text.ParseException if any.
+     * @throws java.io.IOException if any.
+     */
+    public InputCacheSet(final FunnelContext _context) throws ParseException, IOException
+    {
+        context = _context;
+        limit = (long) _context.getCacheInputLimit() << 20;
+        caches = new AbstractInputCache[_context.inputFileCount()];
+        files = new FileSource(_context);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException, ParseException
+    {
+        for (int i = 0; i < caches.length; i++)
+            if (caches[i] != null)
+            {
+                caches[i].close();
+                caches[i] = null;
+            }
+        files.close();
+        keptLength = 0;
+    }
+
+    /**
+     * <p>
+     * isCached.
+     * </p>
+     *
+     * @param inputFileIndex the index of the input file.
+     * @return true if the original records of the file are read from its cache.
+     */
+    public boolean isCached(final int inputFileIndex)
+    {
+        return caches[inputFileIndex] != null;
+    }
+
+    /**
+     * Keep the cache of an input file for the publisher if it fits in the
+     * limit. A cache that is not kept belongs to the reader, which closes it
+     * when it has finished with the file.
+     *
+     * @param inputFileIndex the index of the input file.
+     * @param cache the cache of the input file.
+     * @return true if the cache is kept.
+     */
+    public boolean keep(final int inputFileIndex, final AbstractInputCache cache)
+    {
+        if (keptLength + cache.length() > limit)
+        {
+            logger.debug("input file {} does not fit in the input cache limit, it will be reread", inputFileIndex);
+            return false;
+        }
+        caches[inputFileIndex] = cache;
+        keptLength += cache.length();
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open() throws IOException, ParseException
+    {
+        files.open();
+        logger.debug(Funnel.ByteFormatter.format(keptLength) + " bytes of cached input kept for publishing");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(
+            final int originalInputFileIndex,
+            final byte[] originalBytes,
+            final int offset,
+            final long originalLocation,
+            final int originalSize)
+                    throws IOException
+    {
+        if (caches[originalInputFileIndex] != null)
+            return caches[originalInputFileIndex].read(
+                    originalInputFileIndex,
+                    originalBytes,
+                    offset,
+                    originalLocation,
+                    originalSize);
+
+        return files.read(originalInputFileIndex, originalBytes, offset, originalLocation, originalSize);
+    }
+}
@@ -55,9 +55,9 @@ public interface InputReader
     long position() throws IOException;
 
     /**
-     * <p>
-     * read.
-     * </p>
+     * Read the next record into the beginning of the row. Only the returned
+     * number of bytes are part of the record, the rest of the row is not
+     * cleared and may still hold bytes from a prior record.
      *
      * @param row an array of byte.
      * @return a int.
@@ -0,0 +1,157 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only memory mapping of an input file. A single mapping can not exceed
+ * 2 GB so the file is mapped in windows of {@link #WINDOW_SIZE} bytes. Each
+ * window overlaps the next one by the maximum record size so that any record
+ * starting in a window can be read completely from that window. All of the
+ * windows are mapped when the file is opened and the file is closed right
+ * away, the mappings stay valid without it. So a mapped file does not hold a
+ * file descriptor.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class MappedFile
+{
+    static final private Logger logger      = LoggerFactory.getLogger(MappedFile.class);
+
+    static final int            WINDOW_SHIFT = 30;
+    static final long           WINDOW_SIZE  = 1L << WINDOW_SHIFT;
+    static final long           WINDOW_MASK  = WINDOW_SIZE - 1;
+
+    final File                  file;
+    final long                  length;
+    final int                   overlap;
+    final MappedByteBuffer[]    windows;
+
+    /**
+     * <p>
+     * Constructor for MappedFile.
+     * </p>
+     *
+     * @param _file a {@link java.io.File} object.
+     * @param maximumRecordSize the largest record that will be read. Windows
+     *            overlap by this much.
+     * @throws java.io.IOException if any.
+     */
+    public MappedFile(final File _file, final int maximumRecordSize) throws IOException
+    {
+        file = _file;
+        overlap = maximumRecordSize;
+        try (final RandomAccessFile raf = new RandomAccessFile(_file, "r"))
+        {
+            final FileChannel channel = raf.getChannel();
+            length = channel.size();
+            windows = new MappedByteBuffer[(int) ((length >>> WINDOW_SHIFT) + 1)];
+            for (int w = 0; w < windows.length; w++)
+            {
+                final long start = (long) w << WINDOW_SHIFT;
+                final long size = Math.min(WINDOW_SIZE + overlap, length - start);
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                logger.trace("mapped {} bytes at {} of {}", size, start, file.getName());
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * close.
+     * </p>
+     *
+     * @throws java.io.IOException if any.
+     */
+    public void close() throws IOException
+    {
+        /*
+         * The mappings are released when they are garbage collected.
+         */
+        for (int w = 0; w < windows.length; w++)
+            windows[w] = null;
+    }
+
+    /**
+     * <p>
+     * length.
+     * </p>
+     *
+     * @return a long.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * The offset within {@link #window(long)} of the position in the file.
+     *
+     * @param position a long.
+     * @return a int.
+     */
+    public int offset(final long position)
+    {
+        return (int) (position & WINDOW_MASK);
+    }
+
+    /**
+     * Copy bytes from the file into an array.
+     *
+     * @param position a long.
+     * @param bytes an array of byte.
+     * @param size a int.
+     * @return the number of bytes copied, -1 if the position is at or past the
+     *         end of the file.
+     * @throws java.io.IOException if any.
+     */
+    public int read(final long position, final byte[] bytes, final int size) throws IOException
+    {
+        return read(position, bytes, 0, size);
+    }
+
+    /**
+     * Copy bytes from the file into an array at an offset.
+     *
+     * @param position a long.
+     * @param bytes an array of byte.
+     * @param bytesOffset where the bytes are copied to in the array.
+     * @param size a int.
+     * @return the number of bytes copied, -1 if the position is at or past the
+     *         end of the file.
+     * @throws java.io.IOException if any.
+     */
+    public int read(final long position, final byte[] bytes, final int bytesOffset, final int size)
+            throws IOException
+    {
+        if (position >= length)
+            return -1;
+        final ByteBuffer window = window(position);
+        final int offset = offset(position);
+        final int readSize = Math.min(size, window.limit() - offset);
+        window.position(offset);
+        window.get(bytes, bytesOffset, readSize);
+        return readSize;
+    }
+
+    /**
+     * The window that contains the position. The bytes from the position
+     * through the maximum record size (or the end of the file) are all
+     * available in this window, starting at {@link #offset(long)}.
+     *
+     * @param position a long.
+     * @return a {@link java.nio.ByteBuffer} object.
+     * @throws java.io.IOException if any.
+     */
+    public ByteBuffer window(final long position) throws IOException
+    {
+        return windows[(int) (position >>> WINDOW_SHIFT)];
+    }
+}
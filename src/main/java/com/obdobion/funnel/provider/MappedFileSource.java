@@ -0,0 +1,81 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * The original input files, memory mapped, so that a publisher can fetch each
+ * original record with a memory copy rather than a seek and a read.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class MappedFileSource implements RandomAccessInputSource
+{
+    static final private Logger logger = LoggerFactory.getLogger(MappedFileSource.class);
+
+    final FunnelContext         context;
+    MappedFile[]                mappedFile;
+
+    /**
+     * <p>
+     * Constructor for MappedFileSource.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @throws java.text.ParseException if any.
+     * @throws java.io.IOException if any.
+     */
+    public MappedFileSource(final FunnelContext _context) throws ParseException, IOException
+    {
+        context = _context;
+        mappedFile = new MappedFile[context.inputFileCount()];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException, ParseException
+    {
+        for (int i = 0; i < context.inputFileCount(); i++)
+        {
+            mappedFile[i].close();
+            logger.debug("releasing original input source " + context.getInputFile(i).getAbsolutePath());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open() throws IOException, ParseException
+    {
+        final int maximumRecordSize = Math.max(
+                context.getFixedRecordLengthIn(),
+                VariableLengthMappedReader.MAXIMUM_RECORD_SIZE);
+
+        for (int i = 0; i < context.inputFileCount(); i++)
+        {
+            mappedFile[i] = new MappedFile(context.getInputFile(i), maximumRecordSize);
+            logger.debug("mapping original input source " + context.getInputFile(i).getAbsolutePath());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(
+            final int originalInputFileIndex,
+            final byte[] originalBytes,
+            final int offset,
+            final long originalLocation,
+            final int originalSize)
+                    throws IOException
+    {
+        int readSize = originalSize;
+        if (originalBytes.length - offset < originalSize)
+            readSize = originalBytes.length - offset;
+        return mappedFile[originalInputFileIndex].read(originalLocation, originalBytes, offset, readSize);
+    }
+}
@@ -0,0 +1,231 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.FunnelDataProvider;
+import com.obdobion.funnel.FunnelDataPublisher;
+import com.obdobion.funnel.FunnelItem;
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * Finds the stretches of the input that are already in order during the first
+ * pass.
+ * <p>
+ * The rows of each phase are read into a buffer the size of the top row of the
+ * funnel before the funnel sees them. If every row of the buffer is at least
+ * the one before it, the buffer is published as it is, and the rows after it
+ * are published too for as long as they stay in order. A run like that becomes
+ * one segment of any length instead of being shaken through the funnel one
+ * phase at a time. A buffer that is not in order is handed to the top row of
+ * the funnel and sorted as usual.
+ * </p>
+ * <p>
+ * When the output is written in this pass, a run is only published if it is
+ * the whole input; the input is sorted and nothing is shaken at all.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class NaturalRunProvider implements FunnelDataProvider
+{
+    static final private Logger logger = LoggerFactory.getLogger(NaturalRunProvider.class);
+
+    final FunnelDataProvider    source;
+    final FunnelItem            reader;
+    final SourceProxyRecord[]   buffer;
+    int                         count;
+    int                         position;
+    boolean                     ascending;
+    boolean                     endOfInput;
+    /*
+     * The row after a full buffer or the row that ended the last run, it
+     * starts the next buffer.
+     */
+    SourceProxyRecord           pending;
+    long                        runCount;
+    long                        runRows;
+    boolean                     funnelUsed;
+
+    /**
+     * <p>
+     * Constructor for NaturalRunProvider.
+     * </p>
+     *
+     * @param _source the provider of the original input.
+     * @param size the number of rows in the top row of the funnel.
+     */
+    public NaturalRunProvider(final FunnelDataProvider _source, final int size)
+    {
+        source = _source;
+        reader = new FunnelItem();
+        source.attachTo(reader);
+        buffer = new SourceProxyRecord[size];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long actualNumberOfRows()
+    {
+        return source.actualNumberOfRows();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void attachTo(final FunnelItem item)
+    {
+        item.setProvider(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException, ParseException
+    {
+        if (runCount > 0)
+            logger.debug("{} rows published from {} natural runs", runRows, runCount);
+        source.close();
+    }
+
+    /**
+     * Read the rows of the next phase into the buffer.
+     *
+     * @return false if there are no more rows.
+     * @throws java.io.IOException if any.
+     * @throws java.text.ParseException if any.
+     */
+    boolean fill() throws IOException, ParseException
+    {
+        count = 0;
+        position = 0;
+        ascending = true;
+        if (pending != null)
+        {
+            buffer[count++] = pending;
+            pending = null;
+        }
+        while (count < buffer.length)
+        {
+            final SourceProxyRecord row = read();
+            if (row == null)
+                break;
+            if (ascending && count > 0 && buffer[count - 1].compareTo(row) > 0)
+                ascending = false;
+            buffer[count++] = row;
+        }
+        /*
+         * Look ahead one row so that a full buffer knows if it is the end of
+         * the input.
+         */
+        if (count == buffer.length)
+            pending = read();
+        return count > 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long maximumNumberOfRows()
+    {
+        return source.maximumNumberOfRows();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next(final FunnelItem item, final long phase) throws IOException, ParseException
+    {
+        /*
+         * Only return 1 row per phase per item.
+         */
+        if (item.getPhase() == phase || position >= count)
+        {
+            item.setEndOfData(true);
+            return false;
+        }
+        item.setPhase(phase);
+        item.setData(buffer[position]);
+        buffer[position++] = null;
+        return true;
+    }
+
+    /**
+     * Publish the runs that are at the front of the rest of the input and
+     * then fill the buffer for the funnel. This is called before the top row
+     * of the funnel is primed for a phase.
+     *
+     * @param publisher the publisher of this pass.
+     * @param finalPass true if the publisher writes the output.
+     * @param phase a long.
+     * @throws java.lang.Exception if any.
+     */
+    public void publishRuns(final FunnelDataPublisher publisher, final boolean finalPass, final long phase)
+            throws Exception
+    {
+        while (fill())
+        {
+            if (!ascending)
+                break;
+            if (finalPass && (funnelUsed || !endOfInput))
+                break;
+            publishRun(publisher, phase);
+        }
+        if (count > 0)
+            funnelUsed = true;
+    }
+
+    private void publishRun(final FunnelDataPublisher publisher, final long phase) throws Exception
+    {
+        runCount++;
+        runRows += count;
+        for (int r = 0; r < count; r++)
+            publisher.publish(buffer[r], phase);
+        /*
+         * The publisher keeps the last row it was given until it is given
+         * another one, so it can still be compared.
+         */
+        SourceProxyRecord last = buffer[count - 1];
+        Arrays.fill(buffer, 0, count, null);
+        count = 0;
+
+        while (true)
+        {
+            SourceProxyRecord row = pending;
+            pending = null;
+            if (row == null)
+                row = read();
+            if (row == null)
+                break;
+            if (last.compareTo(row) > 0)
+            {
+                pending = row;
+                break;
+            }
+            runRows++;
+            publisher.publish(row, phase);
+            last = row;
+        }
+    }
+
+    private SourceProxyRecord read() throws IOException, ParseException
+    {
+        if (endOfInput)
+            return null;
+        if (!reader.next(1))
+        {
+            endOfInput = true;
+            return null;
+        }
+        final SourceProxyRecord row = reader.getData();
+        reader.reset();
+        return row;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() throws IOException, ParseException
+    {
+        source.reset();
+    }
+}
@@ -0,0 +1,345 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.FunnelItem;
+import com.obdobion.funnel.parameters.FunnelContext;
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * Moves the per record work of a provider - column extraction, --where and
+ * --stopWhen evaluation and sort key packing - off of the sorting thread.
+ * <p>
+ * The sorting thread still reads the input, which is now mostly delimiter
+ * scanning and copying, and cuts it into chunks of consecutive records. A chunk
+ * never spans two input files. Since chunks are cut in order, every record
+ * already has its record numbers when it is handed to an ingest thread. Each
+ * ingest thread parses a whole chunk with its own {@link RecordParser}. The
+ * finished chunks are consumed in the order they were cut, so the funnel sees
+ * exactly the records, record numbers and statistics that a single threaded
+ * provider would have produced. The number of chunks in flight is bounded.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+class ParallelIngest
+{
+    static final Logger logger        = LoggerFactory.getLogger(ParallelIngest.class);
+
+    static final int    CHUNK_RECORDS = 1 << 10;
+
+    static class Chunk
+    {
+        final int           fileIndex;
+        int                 count;
+        byte[]              data;
+        int                 dataUsed;
+        final int[]         dataOffset       = new int[CHUNK_RECORDS];
+        final int[]         byteCount        = new int[CHUNK_RECORDS];
+        final long[]        startPosition    = new long[CHUNK_RECORDS];
+        final long[]        recordNumber     = new long[CHUNK_RECORDS];
+        final long[]        fileRecordNumber = new long[CHUNK_RECORDS];
+        /*
+         * The rest of the fields are results.
+         */
+        SourceProxyRecord[] proxy            = new SourceProxyRecord[CHUNK_RECORDS];
+        /*
+         * The index of the record that made the --stopWhen true.
+         */
+        int                 stopAt           = -1;
+        /*
+         * When this is the last chunk of a file this is the number of records
+         * that were read from it.
+         */
+        boolean             lastOfFile;
+        long                fileRecordCount;
+
+        Chunk(final int _fileIndex, final int initialDataSize)
+        {
+            fileIndex = _fileIndex;
+            data = new byte[initialDataSize];
+        }
+
+        void add(
+                final byte[] row,
+                final int rowByteCount,
+                final long rowStartPosition,
+                final long rowRecordNumber,
+                final long rowFileRecordNumber)
+        {
+            if (dataUsed + rowByteCount > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataUsed + rowByteCount));
+            System.arraycopy(row, 0, data, dataUsed, rowByteCount);
+            dataOffset[count] = dataUsed;
+            byteCount[count] = rowByteCount;
+            startPosition[count] = rowStartPosition;
+            recordNumber[count] = rowRecordNumber;
+            fileRecordNumber[count] = rowFileRecordNumber;
+            dataUsed += rowByteCount;
+            count++;
+        }
+    }
+
+    final AbstractProvider             provider;
+    final FunnelContext                context;
+    final int                          threads;
+    final ExecutorService              workers;
+    final ArrayDeque<Future<Chunk>>    pending;
+    final int                          maximumPending;
+    BlockingQueue<RecordParser>        parsers;
+
+    /*
+     * The record counters of the reading side, ahead of the counters in the
+     * provider which are only advanced as records are consumed.
+     */
+    long                               readContinuousRecordNumber;
+    long                               readThisFileRecordNumber;
+    boolean                            inputExhausted;
+
+    Chunk                              current;
+    int                                currentIndex;
+
+    ParallelIngest(final AbstractProvider _provider, final int _threads)
+    {
+        provider = _provider;
+        context = _provider.context;
+        threads = _threads;
+        maximumPending = 2 * threads;
+        pending = new ArrayDeque<>(maximumPending);
+        readContinuousRecordNumber = provider.getContinuousRecordNumber();
+        readThisFileRecordNumber = provider.getThisFileRecordNumber();
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "funnel-ingest-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        logger.debug("{} ingest threads", threads);
+    }
+
+    void close()
+    {
+        for (final Future<Chunk> future : pending)
+            future.cancel(true);
+        pending.clear();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Parse every record of the chunk. Unselected records have no proxy. A
+     * record that makes the --stopWhen true ends the chunk.
+     */
+    Chunk parse(final Chunk chunk) throws Exception
+    {
+        final RecordParser parser = parsers.take();
+        try
+        {
+            for (int r = 0; r < chunk.count; r++)
+            {
+                final int byteCount = chunk.byteCount[r];
+                System.arraycopy(chunk.data, chunk.dataOffset[r], parser.row, 0, byteCount);
+
+                if (parser.rejects(parser.row, byteCount))
+                    continue;
+
+                provider.preSelectionExtract(parser, parser.row, byteCount, chunk.recordNumber[r]);
+
+                if (parser.stopIsTrue())
+                {
+                    chunk.stopAt = r;
+                    break;
+                }
+                if (!parser.whereIsTrue())
+                    continue;
+
+                chunk.proxy[r] = provider.newProxy(parser, parser.row, byteCount, chunk.recordNumber[r],
+                        chunk.fileIndex, chunk.startPosition[r]);
+            }
+        } finally
+        {
+            parsers.put(parser);
+        }
+        /*
+         * Only the proxies are needed from here on.
+         */
+        chunk.data = null;
+        return chunk;
+    }
+
+    /**
+     * Read the next chunk of records on this thread. This follows the same
+     * steps, in the same order, as the single threaded provider up to the
+     * point where the columns are extracted.
+     */
+    Chunk read() throws Exception
+    {
+        final Chunk chunk = new Chunk(context.inputFileIndex(), provider.row.length);
+        while (chunk.count < CHUNK_RECORDS)
+        {
+            final long startPosition = provider.reader.position();
+            final int byteCount = provider.reader.read(provider.row);
+
+            if (byteCount == -1)
+            {
+                chunk.lastOfFile = true;
+                chunk.fileRecordCount = readThisFileRecordNumber;
+                /*
+                 * See if there are more files to be read.
+                 */
+                if (context.startNextInput())
+                {
+                    if (context.isInPlaceSort())
+                        readContinuousRecordNumber = 0;
+                    readThisFileRecordNumber = 0;
+                    provider.reader.close();
+                    provider.reader.open(context.getInputFile(context.inputFileIndex()));
+                } else
+                    inputExhausted = true;
+                break;
+            }
+            if (context.headerHelper.isWaitingForInput())
+            {
+                context.headerHelper.extract(context, provider.row, readContinuousRecordNumber, byteCount,
+                        provider.getCachedEquations());
+                continue;
+            }
+            /*
+             * Putting this incrementer here causes the record number to be 1
+             * relative.
+             */
+            readThisFileRecordNumber++;
+            readContinuousRecordNumber++;
+
+            if (!provider.recordLengthOK(byteCount))
+                continue;
+
+            if (!provider.isRowSelected(byteCount))
+                continue;
+
+            chunk.add(provider.row, byteCount, startPosition, readContinuousRecordNumber, readThisFileRecordNumber);
+        }
+        return chunk;
+    }
+
+    /**
+     * Keep the workers busy by cutting chunks until the limit of chunks in
+     * flight is reached.
+     */
+    private void fillPending() throws Exception
+    {
+        while (!inputExhausted && pending.size() < maximumPending)
+        {
+            final Chunk chunk = read();
+            if (parsers == null)
+            {
+                /*
+                 * The copies are made after the first chunk has been read so
+                 * that the header, if there is one, has already been parsed.
+                 */
+                parsers = new ArrayBlockingQueue<>(threads);
+                for (int t = 0; t < threads; t++)
+                    parsers.put(provider.getParser().newCopy(provider.row.length));
+            }
+            pending.add(workers.submit(new Callable<Chunk>()
+            {
+                @Override
+                public Chunk call() throws Exception
+                {
+                    return parse(chunk);
+                }
+            }));
+        }
+    }
+
+    private void endOfFile(final Chunk chunk) throws ParseException, IOException
+    {
+        provider.setThisFileRecordNumber(chunk.fileRecordCount);
+        provider.logStatistics(chunk.fileIndex);
+        provider.unselectedCount = 0;
+    }
+
+    boolean next(final FunnelItem item) throws IOException, ParseException
+    {
+        try
+        {
+            while (true)
+            {
+                if (current != null && currentIndex < current.count)
+                {
+                    final int r = currentIndex++;
+                    if (r == current.stopAt)
+                    {
+                        /*
+                         * The termination record is not counted.
+                         */
+                        provider.setThisFileRecordNumber(current.fileRecordNumber[r] - 1);
+                        provider.setContinuousRecordNumber(current.recordNumber[r] - 1);
+                        logger.debug("stopWhen triggered at row " + provider.getContinuousRecordNumber());
+
+                        item.setEndOfData(true);
+                        provider.logStatistics(current.fileIndex);
+                        provider.close();
+                        return false;
+                    }
+                    provider.setThisFileRecordNumber(current.fileRecordNumber[r]);
+                    provider.setContinuousRecordNumber(current.recordNumber[r]);
+
+                    final SourceProxyRecord wrapped = current.proxy[r];
+                    if (wrapped == null)
+                    {
+                        provider.unselectedCount++;
+                        continue;
+                    }
+                    current.proxy[r] = null;
+                    item.setData(wrapped);
+                    return true;
+                }
+                if (current != null && current.lastOfFile)
+                    endOfFile(current);
+                current = null;
+
+                fillPending();
+                if (pending.isEmpty())
+                {
+                    item.setEndOfData(true);
+                    provider.close();
+                    return false;
+                }
+                current = pending.poll().get();
+                currentIndex = 0;
+            }
+        } catch (final ExecutionException e)
+        {
+            logger.error(e.getCause().getMessage(), e.getCause());
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (final IOException | ParseException e)
+        {
+            throw e;
+        } catch (final Exception e)
+        {
+            logger.error(e.getMessage(), e);
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
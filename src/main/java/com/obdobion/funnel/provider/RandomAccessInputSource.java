@@ -33,9 +33,7 @@ public interface RandomAccessInputSource
     public void open() throws IOException, ParseException;
 
     /**
-     * <p>
-     * read.
-     * </p>
+     * Copy an original record into the front of an array.
      *
      * @param originalInputFileIndex a int.
      * @param originalBytes an array of byte.
@@ -44,6 +42,28 @@ public interface RandomAccessInputSource
      * @return a int.
      * @throws java.io.IOException if any.
      */
-    public int read(int originalInputFileIndex, byte[] originalBytes, long originalLocation, int originalSize)
+    default public int read(
+            final int originalInputFileIndex,
+            final byte[] originalBytes,
+            final long originalLocation,
+            final int originalSize)
+                    throws IOException
+    {
+        return read(originalInputFileIndex, originalBytes, 0, originalLocation, originalSize);
+    }
+
+    /**
+     * Copy an original record into an array at an offset, such as the end of
+     * an output buffer.
+     *
+     * @param originalInputFileIndex a int.
+     * @param bytes an array of byte.
+     * @param offset where the record is copied to in the array.
+     * @param originalLocation a long.
+     * @param originalSize a int.
+     * @return the number of bytes copied.
+     * @throws java.io.IOException if any.
+     */
+    public int read(int originalInputFileIndex, byte[] bytes, int offset, long originalLocation, int originalSize)
             throws IOException;
 }
@@ -0,0 +1,269 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sequential reads of an input file. When read ahead buffers are requested a
+ * background thread reads the file into a ring of large buffers ahead of the
+ * caller, so that the caller only copies from memory and a slow disk read
+ * overlaps with the work being done on the records already read. Without read
+ * ahead buffers the reads go directly to the file. The file may also be a
+ * stream, such as SYSIN, whose length is not known.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class ReadAheadFile
+{
+    static final private Logger logger      = LoggerFactory.getLogger(ReadAheadFile.class);
+
+    static final int            BUFFER_SIZE = 1 << 20;
+
+    static class Block
+    {
+        final byte[] bytes;
+        /*
+         * -1 marks the end of the file.
+         */
+        int          length;
+
+        Block(final int size)
+        {
+            bytes = new byte[size];
+        }
+    }
+
+    final String               name;
+    final InputStream          in;
+    final long                 length;
+    final BlockingQueue<Block> filled;
+    final BlockingQueue<Block> empty;
+    final Thread               filler;
+    volatile IOException       failure;
+
+    Block                      current;
+    int                        currentPointer;
+    long                       filePointer;
+
+    /**
+     * <p>
+     * Constructor for ReadAheadFile.
+     * </p>
+     *
+     * @param _file a {@link java.io.File} object.
+     * @param readAheadBuffers the number of buffers to keep filled ahead of
+     *            the caller, 0 for none.
+     * @throws java.io.IOException if any.
+     */
+    public ReadAheadFile(final File _file, final int readAheadBuffers) throws IOException
+    {
+        this(new FileInputStream(_file), _file.getName(), _file.length(), readAheadBuffers);
+    }
+
+    /**
+     * <p>
+     * Constructor for ReadAheadFile.
+     * </p>
+     *
+     * @param _in the stream to be read.
+     * @param _name the name of the stream for messages.
+     * @param _length the length of the stream, -1 if it is not known.
+     * @param readAheadBuffers the number of buffers to keep filled ahead of
+     *            the caller, 0 for none.
+     */
+    public ReadAheadFile(final InputStream _in, final String _name, final long _length, final int readAheadBuffers)
+    {
+        name = _name;
+        in = _in;
+        length = _length;
+
+        if (readAheadBuffers <= 0)
+        {
+            filled = null;
+            empty = null;
+            filler = null;
+            return;
+        }
+        /*
+         * The ring holds one more than the buffers so that the end of file
+         * marker always fits.
+         */
+        filled = new ArrayBlockingQueue<>(readAheadBuffers + 1);
+        empty = new ArrayBlockingQueue<>(readAheadBuffers + 1);
+        for (int b = 0; b < readAheadBuffers; b++)
+            empty.add(new Block(BUFFER_SIZE));
+
+        filler = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                fill();
+            }
+        }, "funnel-readahead-" + _name);
+        filler.setDaemon(true);
+        filler.start();
+        logger.debug("reading ahead {} buffers of {}", readAheadBuffers, _name);
+    }
+
+    /**
+     * <p>
+     * close.
+     * </p>
+     *
+     * @throws java.io.IOException if any.
+     */
+    public void close() throws IOException
+    {
+        if (filler != null)
+        {
+            filler.interrupt();
+            try
+            {
+                filler.join();
+            } catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        in.close();
+    }
+
+    /**
+     * Runs on the read ahead thread.
+     */
+    void fill()
+    {
+        try
+        {
+            while (true)
+            {
+                final Block block = empty.take();
+                block.length = in.read(block.bytes);
+                filled.put(block);
+                if (block.length == -1)
+                    return;
+            }
+        } catch (final InterruptedException e)
+        {
+            // closed before the end of the file was reached
+        } catch (final IOException e)
+        {
+            failure = e;
+            final Block endOfFile = new Block(0);
+            endOfFile.length = -1;
+            filled.offer(endOfFile);
+        }
+    }
+
+    /**
+     * The position in the file of the next byte that will be read.
+     *
+     * @return a long.
+     * @throws java.io.IOException if any.
+     */
+    public long getFilePointer() throws IOException
+    {
+        return filePointer;
+    }
+
+    /**
+     * <p>
+     * length.
+     * </p>
+     *
+     * @return a long, -1 if the length is not known.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * <p>
+     * read.
+     * </p>
+     *
+     * @param bytes an array of byte.
+     * @return the number of bytes read, -1 at the end of the file.
+     * @throws java.io.IOException if any.
+     */
+    public int read(final byte[] bytes) throws IOException
+    {
+        return read(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Fill the array from the file as far as possible. Fewer bytes than asked
+     * for are only returned at the end of the file.
+     *
+     * @param bytes an array of byte.
+     * @param offset where to put the first byte.
+     * @param size the number of bytes wanted.
+     * @return the number of bytes read, -1 at the end of the file.
+     * @throws java.io.IOException if any.
+     */
+    public int read(final byte[] bytes, final int offset, final int size) throws IOException
+    {
+        if (filler == null)
+            return readDirectly(bytes, offset, size);
+
+        int copied = 0;
+        while (copied < size)
+        {
+            if (current == null || currentPointer >= current.length)
+            {
+                if (current != null && current.length == -1)
+                    break;
+                if (current != null)
+                    empty.offer(current);
+                try
+                {
+                    current = filled.take();
+                } catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while reading " + name, e);
+                }
+                currentPointer = 0;
+                if (failure != null)
+                    throw failure;
+                continue;
+            }
+            final int count = Math.min(size - copied, current.length - currentPointer);
+            System.arraycopy(current.bytes, currentPointer, bytes, offset + copied, count);
+            currentPointer += count;
+            copied += count;
+        }
+        if (copied == 0 && size > 0)
+            return -1;
+        filePointer += copied;
+        return copied;
+    }
+
+    /**
+     * A stream, unlike a file, may return fewer bytes than are available.
+     */
+    private int readDirectly(final byte[] bytes, final int offset, final int size) throws IOException
+    {
+        int copied = 0;
+        while (copied < size)
+        {
+            final int count = in.read(bytes, offset + copied, size - copied);
+            if (count == -1)
+                break;
+            copied += count;
+        }
+        if (copied == 0 && size > 0)
+            return -1;
+        filePointer += copied;
+        return copied;
+    }
+}
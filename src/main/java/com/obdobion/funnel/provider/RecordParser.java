@@ -0,0 +1,222 @@
+package com.obdobion.funnel.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.algebrain.Equ;
+import com.obdobion.funnel.columns.ColumnHelper;
+import com.obdobion.funnel.columns.CompiledPredicate;
+import com.obdobion.funnel.columns.RawFilter;
+import com.obdobion.funnel.orderby.KeyHelper;
+import com.obdobion.funnel.orderby.KeyPart;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * The state needed to turn a raw input record into its columns, the results of
+ * the --where and --stopWhen equations, and its sort key. Columns, keys and
+ * equations all hold the values of the most recent record so a parser can only
+ * be used by one thread at a time. The parser of the sorting thread uses the
+ * helpers in the context; each ingest thread has its own copies.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class RecordParser
+{
+    static final private Logger logger = LoggerFactory.getLogger(RecordParser.class);
+
+    final FunnelContext         context;
+    final ColumnHelper          columnHelper;
+    final KeyHelper             keyHelper;
+    final List<Equ>             whereEqu;
+    final List<Equ>             stopEqu;
+    final CompiledPredicate[]   where;
+    final CompiledPredicate[]   stop;
+    /*
+     * Null when the where equations can not be checked on the raw records or
+     * when every record has to be parsed for the stop equations.
+     */
+    final RawFilter             rawFilter;
+    /*
+     * The where and stop equations that could not be compiled. Columns are
+     * assigned to these as variables.
+     */
+    final Equ[]                 equations;
+    /*
+     * Only used by copies, records are moved here from an ingest chunk.
+     */
+    byte[]                      row;
+    /*
+     * Only used by the csv provider, created on first use.
+     */
+    CsvTokenizer                csvTokenizer;
+
+    /**
+     * <p>
+     * Constructor for RecordParser.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     */
+    public RecordParser(final FunnelContext _context)
+    {
+        this(_context, _context.columnHelper, _context.keyHelper, _context.getWhereEqu(), _context.getStopEqu());
+        for (final CompiledPredicate predicate : where)
+            logger.debug("where \"{}\" is {}", predicate.getEqu().toString(), predicate.isCompiled()
+                    ? "compiled"
+                    : "interpreted");
+        for (final CompiledPredicate predicate : stop)
+            logger.debug("stopWhen \"{}\" is {}", predicate.getEqu().toString(), predicate.isCompiled()
+                    ? "compiled"
+                    : "interpreted");
+        if (rawFilter != null)
+            logger.debug("{} where comparisons are checked before the columns are extracted", rawFilter.size());
+    }
+
+    private RecordParser(
+            final FunnelContext _context,
+            final ColumnHelper _columnHelper,
+            final KeyHelper _keyHelper,
+            final List<Equ> _whereEqu,
+            final List<Equ> _stopEqu)
+    {
+        context = _context;
+        columnHelper = _columnHelper;
+        keyHelper = _keyHelper;
+        whereEqu = _whereEqu;
+        stopEqu = _stopEqu;
+        where = compile(whereEqu, "--where");
+        stop = compile(stopEqu, "--stopWhen");
+
+        final List<Equ> interpreted = new ArrayList<>();
+        for (final CompiledPredicate predicate : where)
+            if (!predicate.isCompiled())
+                interpreted.add(predicate.getEqu());
+        for (final CompiledPredicate predicate : stop)
+            if (!predicate.isCompiled())
+                interpreted.add(predicate.getEqu());
+        equations = interpreted.toArray(new Equ[interpreted.size()]);
+        /*
+         * Only the columns used by the equations are needed before the records
+         * are sorted.
+         */
+        final List<Equ> all = new ArrayList<>();
+        if (whereEqu != null)
+            all.addAll(whereEqu);
+        if (stopEqu != null)
+            all.addAll(stopEqu);
+        columnHelper.extractOnly(ColumnHelper.variablesOf(all.toArray(new Equ[all.size()])));
+
+        final RawFilter filter = new RawFilter(where);
+        if (stopEqu == null && !filter.isEmpty())
+            rawFilter = filter;
+        else
+            rawFilter = null;
+    }
+
+    private CompiledPredicate[] compile(final List<Equ> equs, final String clause)
+    {
+        if (equs == null)
+            return new CompiledPredicate[0];
+        final CompiledPredicate[] predicates = new CompiledPredicate[equs.size()];
+        for (int e = 0; e < predicates.length; e++)
+            predicates[e] = CompiledPredicate.compile(equs.get(e), clause, columnHelper, context.headerHelper);
+        return predicates;
+    }
+
+    private List<Equ> copyOf(final List<Equ> original) throws Exception
+    {
+        if (original == null)
+            return null;
+        final List<Equ> myCopy = new ArrayList<>();
+        for (final Equ equ : original)
+        {
+            final Equ equCopy = Equ.getInstance(true);
+            equCopy.compile(equ.toString());
+            /*
+             * Header columns are only read once, before any copies are made.
+             */
+            for (final KeyPart headerCol : context.headerHelper.getColumns())
+                if (headerCol.getContents() != null)
+                    equCopy.getSupport().assignVariable(headerCol.columnName, headerCol.getContents());
+            myCopy.add(equCopy);
+        }
+        return myCopy;
+    }
+
+    /**
+     * A parser with its own copies of the columns, keys and equations.
+     *
+     * @param rowSize the largest record that will be parsed.
+     * @return a {@link com.obdobion.funnel.provider.RecordParser} object.
+     * @throws java.lang.Exception if any.
+     */
+    public RecordParser newCopy(final int rowSize) throws Exception
+    {
+        final RecordParser myCopy = new RecordParser(
+                context,
+                columnHelper.newCopy(),
+                keyHelper.newCopy(),
+                copyOf(whereEqu),
+                copyOf(stopEqu));
+        myCopy.row = new byte[rowSize];
+        return myCopy;
+    }
+
+    /**
+     * A record that can not be selected is rejected before its columns are
+     * extracted. It is not seen by the stop equations, so this is only done
+     * when there are none.
+     *
+     * @param data the bytes of the record.
+     * @param byteCount the length of the record.
+     * @return true if the record is not selected.
+     */
+    public boolean rejects(final byte[] data, final int byteCount)
+    {
+        return rawFilter != null && rawFilter.rejects(data, byteCount);
+    }
+
+    /**
+     * <p>
+     * stopIsTrue.
+     * </p>
+     *
+     * @return a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public boolean stopIsTrue() throws Exception
+    {
+        if (stopEqu == null)
+            return false;
+        /*
+         * All of the stop equations must be true.
+         */
+        for (final CompiledPredicate predicate : stop)
+            if (!predicate.isTrue())
+                return false;
+        return true;
+    }
+
+    /**
+     * <p>
+     * whereIsTrue.
+     * </p>
+     *
+     * @return a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    public boolean whereIsTrue() throws Exception
+    {
+        /*
+         * All of the where equations must be true.
+         */
+        for (final CompiledPredicate predicate : where)
+            if (!predicate.isTrue())
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,262 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * A copy of SYSIN that is made while SYSIN is being sorted, so that the
+ * original records can be read back when the sorted output is published.
+ * <p>
+ * The copy is kept in memory until it grows past the --sysinSpill limit. It is
+ * then moved to a spill file in the work directory and everything after that
+ * is appended to the file. A piped input is therefore no longer limited by the
+ * size of the heap.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class SysinSpool implements RandomAccessInputSource
+{
+    static final private Logger logger     = LoggerFactory.getLogger(SysinSpool.class);
+
+    static final int            BlockShift = 20;
+    static final int            BlockSize  = 1 << BlockShift;
+    static final int            BlockMask  = BlockSize - 1;
+
+    /**
+     * Start reading SYSIN through a new spool, which becomes the source of the
+     * original records for the publisher.
+     *
+     * @param context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @return a {@link com.obdobion.funnel.provider.ReadAheadFile} object.
+     */
+    static public ReadAheadFile openSysin(final FunnelContext context)
+    {
+        context.sysinSpool = new SysinSpool(context);
+        return new ReadAheadFile(context.sysinSpool.spooling(System.in), "SYSIN", -1, 0);
+    }
+
+    final FunnelContext         context;
+    final long                  memoryLimit;
+    final List<byte[]>          blocks;
+    long                        length;
+
+    File                        spillFile;
+    RandomAccessFile            spill;
+    /*
+     * Appends to the spill file are gathered here.
+     */
+    byte[]                      writeBuffer;
+    int                         writeBufferUsed;
+
+    /**
+     * <p>
+     * Constructor for SysinSpool.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     */
+    public SysinSpool(final FunnelContext _context)
+    {
+        context = _context;
+        memoryLimit = (long) _context.getSysinSpill() << 20;
+        blocks = new ArrayList<>();
+    }
+
+    /**
+     * Add bytes to the end of the copy.
+     *
+     * @param bytes an array of byte.
+     * @param offset the first byte to be added.
+     * @param count the number of bytes to be added.
+     * @throws java.io.IOException if any.
+     */
+    public synchronized void append(final byte[] bytes, final int offset, final int count) throws IOException
+    {
+        if (spill == null && length + count > memoryLimit)
+            spillToDisk();
+
+        if (spill != null)
+        {
+            int appended = 0;
+            while (appended < count)
+            {
+                if (writeBufferUsed == writeBuffer.length)
+                    flush();
+                final int piece = Math.min(count - appended, writeBuffer.length - writeBufferUsed);
+                System.arraycopy(bytes, offset + appended, writeBuffer, writeBufferUsed, piece);
+                writeBufferUsed += piece;
+                appended += piece;
+            }
+            length += count;
+            return;
+        }
+
+        int appended = 0;
+        while (appended < count)
+        {
+            final int blockOffset = (int) (length & BlockMask);
+            if (blockOffset == 0)
+                blocks.add(new byte[BlockSize]);
+            final int piece = Math.min(count - appended, BlockSize - blockOffset);
+            System.arraycopy(bytes, offset + appended, blocks.get(blocks.size() - 1), blockOffset, piece);
+            appended += piece;
+            length += piece;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        blocks.clear();
+        if (spill != null)
+        {
+            spill.close();
+            spill = null;
+            if (!spillFile.delete())
+                logger.warn("unable to delete {}", spillFile.getAbsolutePath());
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        if (writeBufferUsed == 0)
+            return;
+        spill.seek(spill.length());
+        spill.write(writeBuffer, 0, writeBufferUsed);
+        writeBufferUsed = 0;
+    }
+
+    /**
+     * <p>
+     * isSpilled.
+     * </p>
+     *
+     * @return true if the copy has been moved to the spill file.
+     */
+    public boolean isSpilled()
+    {
+        return spillFile != null;
+    }
+
+    /**
+     * <p>
+     * length.
+     * </p>
+     *
+     * @return the number of bytes that have been added.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open() throws IOException
+    {
+        // Intentionally empty
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized int read(
+            final int originalInputFileIndex,
+            final byte[] originalBytes,
+            final int offset,
+            final long originalLocation,
+            final int originalSize)
+                    throws IOException
+    {
+        int readSize = originalSize;
+        if (originalBytes.length - offset < originalSize)
+            readSize = originalBytes.length - offset;
+        if (originalLocation + readSize > length)
+            readSize = (int) (length - originalLocation);
+
+        if (spill != null)
+        {
+            flush();
+            spill.seek(originalLocation);
+            spill.readFully(originalBytes, offset, readSize);
+            return readSize;
+        }
+
+        int copied = 0;
+        long position = originalLocation;
+        while (copied < readSize)
+        {
+            final byte[] block = blocks.get((int) (position >>> BlockShift));
+            final int blockOffset = (int) (position & BlockMask);
+            final int piece = Math.min(readSize - copied, BlockSize - blockOffset);
+            System.arraycopy(block, blockOffset, originalBytes, offset + copied, piece);
+            copied += piece;
+            position += piece;
+        }
+        return readSize;
+    }
+
+    private void spillToDisk() throws IOException
+    {
+        spillFile = File.createTempFile("funnel.", ".sysin", context.getWorkDirectory());
+        spillFile.deleteOnExit();
+        spill = new RandomAccessFile(spillFile, "rw");
+        writeBuffer = new byte[BlockSize];
+
+        long remaining = length;
+        for (final byte[] block : blocks)
+        {
+            final int count = (int) Math.min(remaining, BlockSize);
+            spill.write(block, 0, count);
+            remaining -= count;
+        }
+        blocks.clear();
+        logger.debug("SYSIN spilled to {} after {} bytes", spillFile.getAbsolutePath(), length);
+    }
+
+    /**
+     * A stream that adds everything that is read from the source to this
+     * copy.
+     *
+     * @param source a {@link java.io.InputStream} object.
+     * @return a {@link java.io.InputStream} object.
+     */
+    public InputStream spooling(final InputStream source)
+    {
+        return new FilterInputStream(source)
+        {
+            @Override
+            public int read() throws IOException
+            {
+                final int b = super.read();
+                if (b != -1)
+                    append(new byte[] {
+                            (byte) b
+                    }, 0, 1);
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int count) throws IOException
+            {
+                final int bytesRead = super.read(bytes, offset, count);
+                if (bytesRead > 0)
+                    append(bytes, offset, bytesRead);
+                return bytesRead;
+            }
+        };
+    }
+}
@@ -22,6 +22,11 @@ public class VariableLengthCacheReader implements InputReader
     static final Logger logger = LoggerFactory.getLogger(VariableLengthCacheReader.class);
 
     final FunnelContext context;
+    /*
+     * The cache of the current file is kept for the publisher, so the reader
+     * must not close it.
+     */
+    boolean             cacheKept;
 
     /**
      * <p>
@@ -37,6 +42,7 @@ public class VariableLengthCacheReader implements InputReader
     {
         context = _context;
         logger.debug("variable length cache reader activated");
+        context.inputCaches = new InputCacheSet(context);
         loadDataToCache();
     }
 
@@ -44,8 +50,8 @@ public class VariableLengthCacheReader implements InputReader
     @Override
     public void close() throws IOException
     {
-        // intentionally. Cached input is opened and closed when the instance is
-        // made.
+        if (context.inputCache != null && !cacheKept)
+            context.inputCache.close();
     }
 
     /** {@inheritDoc} */
@@ -57,18 +63,32 @@ public class VariableLengthCacheReader implements InputReader
 
     void loadDataToCache() throws IOException, ParseException
     {
-        try (final FileInputStream inputStream = new FileInputStream(context.getInputFile(context.inputFileIndex())))
+        final int inputFileIndex = context.inputFileIndex();
+        final File inputFile = context.getInputFile(inputFileIndex);
+        if (context.isInPlaceSort())
+        {
+            /*
+             * The input file is replaced by the output, and some systems
+             * (Windows) will not replace a file that is still mapped.
+             */
+            try (final FileInputStream inputStream = new FileInputStream(inputFile))
+            {
+                context.inputCache = new VariableLengthInputCache(context, inputStream);
+            }
+            logger.debug("loaded " + inputFile.getAbsolutePath());
+        } else
         {
-            context.inputCache = new VariableLengthInputCache(context, inputStream);
-            logger.debug("loaded " + context.getInputFile(context.inputFileIndex()).getAbsolutePath());
+            context.inputCache = new VariableLengthInputCache(context, inputFile);
+            logger.debug("mapped " + inputFile.getAbsolutePath());
         }
+        cacheKept = !context.isFullRecordSort() && context.inputCaches.keep(inputFileIndex, context.inputCache);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void open(final File inputFile) throws IOException
+    public void open(final File inputFile) throws IOException, ParseException
     {
-        throw new IOException("the cacheInput option is not allowed with multiple input files");
+        loadDataToCache();
     }
 
     /** {@inheritDoc} */
@@ -84,54 +104,6 @@ public class VariableLengthCacheReader implements InputReader
     {
         if (context.inputCache.eof())
             return -1;
-        /*
-         * Clear the row before reading.
-         */
-        for (int b = 0; b < row.length; b++)
-            row[b] = 0x00;
-
-        int rowNextPointer = 0;
-        int sepNextPointer = 0;
-        while (!context.inputCache.eof())
-        {
-            final byte b = context.inputCache.readNextByte();
-            /*
-             * Then see of this character is the next expected character in the
-             * end of row sequence.
-             */
-            if (b == context.getEndOfRecordDelimiterIn()[sepNextPointer])
-            {
-                if (sepNextPointer == context.getEndOfRecordDelimiterIn().length - 1)
-                    return rowNextPointer;
-                sepNextPointer++;
-                continue;
-            }
-            /*
-             * Something that started to look like the end of row turned out not
-             * to be. So give it to the caller.
-             */
-            if (sepNextPointer > 0)
-            {
-                for (int sp = 0; sp < sepNextPointer; sp++)
-                    row[rowNextPointer++] = context.getEndOfRecordDelimiterIn()[sp];
-                sepNextPointer = 0;
-            }
-            /*
-             * transfer the byte to the row.
-             */
-            row[rowNextPointer++] = b;
-        }
-        if (context.inputCache.eof())
-            /*
-             * end of file without end of record, this is ok.
-             */
-            if (rowNextPointer == 0)
-                return -1;
-        /*
-         * We have hit the end of the file and did not find an end of line for
-         * the last bytes we did find. Return the row for what is there.
-         */
-        logger.warn("assuming a line terminator at end of file where {} unterminated bytes were found", rowNextPointer);
-        return rowNextPointer;
+        return ((VariableLengthInputCache) context.inputCache).readRecord(row, context.getEndOfRecordDelimiterIn());
     }
 }
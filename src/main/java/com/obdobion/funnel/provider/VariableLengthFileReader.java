@@ -2,7 +2,8 @@ package com.obdobion.funnel.provider;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.ParseException;
 
 import org.slf4j.Logger;
@@ -24,9 +25,13 @@ public class VariableLengthFileReader implements InputReader
     static int          defaultCharBufferSize = 32768;
     final FunnelContext context;
     File                inFile;
-    RandomAccessFile    raf;
+    ReadAheadFile       raf;
     long                startPosition;
     final byte          bb[];
+    /*
+     * A view of bb so that the delimiter can be searched for a long at a time.
+     */
+    final ByteBuffer    bbView;
     int                 bbInUse;
     final byte[]        separator;
     int                 bbNextPointer;
@@ -64,9 +69,10 @@ public class VariableLengthFileReader implements InputReader
         assert sz > 0 : "Buffer size <= 0";
         context = _context;
         bb = new byte[sz];
+        bbView = ByteBuffer.wrap(bb).order(ByteOrder.nativeOrder());
         separator = context.getEndOfRecordDelimiterIn();
 
-        open(_context.getInputFile(context.inputFileIndex()));
+        openSource();
     }
 
     /** {@inheritDoc} */
@@ -77,14 +83,25 @@ public class VariableLengthFileReader implements InputReader
         logger.debug("loaded " + inFile.getAbsolutePath());
     }
 
+    /**
+     * Bytes that have not been consumed yet are moved to the front of the
+     * buffer before it is refilled. This keeps a delimiter that was split by
+     * the end of the buffer together.
+     */
     private int fillBB() throws IOException
     {
-        startPosition = raf.getFilePointer();
-        bbInUse = raf.read(bb);
+        final int unconsumed = bbInUse - bbNextPointer;
+        if (unconsumed > 0)
+            System.arraycopy(bb, bbNextPointer, bb, 0, unconsumed);
+        startPosition = raf.getFilePointer() - unconsumed;
         bbNextPointer = 0;
-        if (bbInUse == -1)
-            eof = true;
-        return bbInUse;
+        bbInUse = unconsumed;
+
+        final int bytesRead = raf.read(bb, unconsumed, bb.length - unconsumed);
+        if (bytesRead == -1)
+            return -1;
+        bbInUse += bytesRead;
+        return bytesRead;
     }
 
     /** {@inheritDoc} */
@@ -94,13 +111,27 @@ public class VariableLengthFileReader implements InputReader
         return raf.length();
     }
 
+    /**
+     * The current input file.
+     */
+    ReadAheadFile newSource() throws IOException, ParseException
+    {
+        inFile = context.getInputFile(context.inputFileIndex());
+        return new ReadAheadFile(inFile, context.getReadAhead());
+    }
+
     /** {@inheritDoc} */
     @Override
     public void open(final File inputFile) throws IOException, ParseException
+    {
+        openSource();
+    }
+
+    private void openSource() throws IOException, ParseException
     {
         bbNextPointer = 0;
-        inFile = context.getInputFile(context.inputFileIndex());
-        raf = new RandomAccessFile(inFile, "r");
+        bbInUse = 0;
+        raf = newSource();
         eof = false;
         fillBB();
     }
@@ -120,65 +151,52 @@ public class VariableLengthFileReader implements InputReader
             return -1;
 
         int rowNextPointer = 0;
-        int sepNextPointer = 0;
-
-        /*
-         * Clear the row before reading.
-         */
-        for (int b = 0; b < row.length; b++)
-            row[b] = 0x00;
-
-        for (rowNextPointer = 0;; bbNextPointer++)
+        while (true)
         {
-            /*
-             * First see of the buffer is empty - refill it.
-             */
-            if (bbNextPointer >= bbInUse)
-                if (fillBB() <= 0)
-                {
-                    /*
-                     * end of file without end of record, this is ok.
-                     */
-                    if (rowNextPointer == 0)
-                        return -1;
-                    /*
-                     * We have hit the end of the file and did not find an end
-                     * of line for the last bytes we did find. Return the row
-                     * for what is there.
-                     */
-                    logger.warn("assuming a line terminator at end of file where "
-                            + rowNextPointer
-                            + " unterminated bytes were found");
-                    return rowNextPointer;
-                }
-            /*
-             * Then see of this character is the next expected character in the
-             * end of row sequence.
-             */
-            if (bb[bbNextPointer] == separator[sepNextPointer])
+            final int delimiterPosition = DelimiterScanner.indexOf(bbView, bbNextPointer, bbInUse, separator);
+            if (delimiterPosition >= 0)
             {
-                if (sepNextPointer == separator.length - 1)
-                {
-                    bbNextPointer++;
-                    return rowNextPointer;
-                }
-                sepNextPointer++;
-                continue;
+                rowNextPointer = transferToRow(row, rowNextPointer, delimiterPosition);
+                bbNextPointer = delimiterPosition + separator.length;
+                return rowNextPointer;
             }
             /*
-             * Something that started to look like the end of row turned out not
-             * to be. So give it to the caller.
+             * The end of the buffer might hold the beginning of a delimiter. It
+             * stays in the buffer until after the refill.
              */
-            if (sepNextPointer > 0)
+            rowNextPointer = transferToRow(row, rowNextPointer,
+                    Math.max(bbNextPointer, bbInUse - separator.length + 1));
+
+            if (fillBB() <= 0)
             {
-                for (int sp = 0; sp < sepNextPointer; sp++)
-                    row[rowNextPointer++] = separator[sp];
-                sepNextPointer = 0;
+                eof = true;
+                rowNextPointer = transferToRow(row, rowNextPointer, bbInUse);
+                /*
+                 * end of file without end of record, this is ok.
+                 */
+                if (rowNextPointer == 0)
+                    return -1;
+                /*
+                 * We have hit the end of the file and did not find an end of
+                 * line for the last bytes we did find. Return the row for what
+                 * is there.
+                 */
+                logger.warn("assuming a line terminator at end of file where "
+                        + rowNextPointer
+                        + " unterminated bytes were found");
+                return rowNextPointer;
             }
-            /*
-             * transfer the byte to the row.
-             */
-            row[rowNextPointer++] = bb[bbNextPointer];
         }
     }
+
+    private int transferToRow(final byte[] row, final int rowNextPointer, final int bbEndPointer)
+            throws IOException
+    {
+        final int count = bbEndPointer - bbNextPointer;
+        if (rowNextPointer + count > row.length)
+            throw new IOException("variable length record exceeds " + row.length + " bytes");
+        System.arraycopy(bb, bbNextPointer, row, rowNextPointer, count);
+        bbNextPointer = bbEndPointer;
+        return rowNextPointer + count;
+    }
 }
@@ -1,7 +1,12 @@
 package com.obdobion.funnel.provider;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.obdobion.funnel.parameters.FunnelContext;
 
@@ -14,6 +19,23 @@ import com.obdobion.funnel.parameters.FunnelContext;
  */
 public class VariableLengthInputCache extends AbstractInputCache
 {
+    static final private Logger logger = LoggerFactory.getLogger(VariableLengthInputCache.class);
+
+    /**
+     * <p>
+     * Constructor for VariableLengthInputCache.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @param _file a {@link java.io.File} object.
+     * @throws java.io.IOException if any.
+     */
+    public VariableLengthInputCache(final FunnelContext _context, final File _file) throws IOException
+    {
+        super(_context, _file);
+    }
+
     /**
      * <p>
      * Constructor for VariableLengthInputCache.
@@ -29,9 +51,112 @@ public class VariableLengthInputCache extends AbstractInputCache
         super(_context, _source);
     }
 
+    /**
+     * Is the delimiter at this position? The delimiter may continue into the
+     * following buffers.
+     */
+    private boolean isDelimiterAt(final int bufferIndex, final int position, final byte[] delimiter)
+            throws IOException
+    {
+        int b = bufferIndex;
+        ByteBuffer buffer = buffer(b);
+        int p = position;
+        for (int d = 1; d < delimiter.length; d++)
+        {
+            if (++p >= buffer.limit())
+            {
+                if (++b >= sourceBuffersSize)
+                    return false;
+                buffer = buffer(b);
+                p = 0;
+            }
+            if (buffer.get(p) != delimiter[d])
+                return false;
+        }
+        return true;
+    }
+
+    private void nextBuffer() throws IOException
+    {
+        currentBufferIndex++;
+        buffer(currentBufferIndex).position(0);
+    }
+
     @Override
     void postOpenVerification() throws IOException
     {
         // nothing to do here
     }
+
+    /**
+     * Copy the bytes up to the next delimiter into the row and consume the
+     * delimiter. Each buffer is searched a long at a time and the bytes of the
+     * record are moved with bulk copies. This method should not be called if
+     * there are no bytes available. Use !eof() first.
+     *
+     * @param row an array of byte.
+     * @param delimiter the end of record delimiter.
+     * @return the number of bytes put in the row. If the input ends without a
+     *         delimiter the remaining bytes are returned as the last record.
+     * @throws java.io.IOException if the record does not fit in the row.
+     */
+    public int readRecord(final byte[] row, final byte[] delimiter) throws IOException
+    {
+        int rowNextPointer = 0;
+        int skip = 0;
+        while (true)
+        {
+            currentBuffer = buffer(currentBufferIndex);
+            final int from = currentBuffer.position();
+            final int to = currentBuffer.limit();
+            /*
+             * Consume the rest of a delimiter that started in a previous
+             * buffer.
+             */
+            if (skip > 0)
+            {
+                final int skipped = Math.min(skip, to - from);
+                currentBuffer.position(from + skipped);
+                currentFilePosition += skipped;
+                skip -= skipped;
+                if (skip == 0)
+                    return rowNextPointer;
+                nextBuffer();
+                continue;
+            }
+
+            int end = from;
+            while ((end = DelimiterScanner.indexOf(currentBuffer, end, to, delimiter[0])) >= 0)
+            {
+                if (isDelimiterAt(currentBufferIndex, end, delimiter))
+                    break;
+                end++;
+            }
+            final boolean found = end >= 0;
+            if (!found)
+                end = to;
+
+            final int count = end - from;
+            if (rowNextPointer + count > row.length)
+                throw new IOException("variable length record exceeds " + row.length + " bytes");
+            currentBuffer.get(row, rowNextPointer, count);
+            rowNextPointer += count;
+            currentFilePosition += count;
+
+            if (found)
+                skip = delimiter.length;
+            else if (currentBufferIndex + 1 >= sourceBuffersSize)
+            {
+                /*
+                 * We have hit the end of the file and did not find an end of
+                 * line for the last bytes we did find. Return the row for what
+                 * is there.
+                 */
+                logger.warn("assuming a line terminator at end of file where {} unterminated bytes were found",
+                        rowNextPointer);
+                return rowNextPointer;
+            } else
+                nextBuffer();
+        }
+    }
 }
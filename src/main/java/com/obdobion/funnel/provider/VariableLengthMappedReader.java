@@ -0,0 +1,123 @@
+package com.obdobion.funnel.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * Reads variable length records from a memory mapped input file. The end of
+ * record delimiter is searched for directly in the mapped region, a long at a
+ * time, and each record is copied into the row with a single bulk transfer.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class VariableLengthMappedReader implements InputReader
+{
+    static final Logger logger               = LoggerFactory.getLogger(VariableLengthMappedReader.class);
+
+    /**
+     * Windows of the mapped file overlap by this much. It must be larger than
+     * any single record.
+     */
+    static final int    MAXIMUM_RECORD_SIZE = 1 << 16;
+
+    final FunnelContext context;
+    final byte[]        separator;
+    File                inFile;
+    MappedFile          mappedFile;
+    long                nextPosition;
+
+    /**
+     * <p>
+     * Constructor for VariableLengthMappedReader.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @throws java.io.IOException if any.
+     * @throws java.text.ParseException if any.
+     */
+    public VariableLengthMappedReader(final FunnelContext _context) throws IOException, ParseException
+    {
+        context = _context;
+        separator = context.getEndOfRecordDelimiterIn();
+
+        open(_context.getInputFile(context.inputFileIndex()));
+        logger.debug("variable length mapped reader activated");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException, ParseException
+    {
+        mappedFile.close();
+        logger.debug("loaded " + inFile.getAbsolutePath());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws IOException
+    {
+        return mappedFile.length();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void open(final File inputFile) throws IOException, ParseException
+    {
+        inFile = inputFile;
+        mappedFile = new MappedFile(inputFile, MAXIMUM_RECORD_SIZE);
+        nextPosition = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long position() throws IOException
+    {
+        return nextPosition;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(final byte[] row) throws IOException
+    {
+        if (nextPosition >= mappedFile.length())
+            return -1;
+
+        final ByteBuffer window = mappedFile.window(nextPosition);
+        final int start = mappedFile.offset(nextPosition);
+        final int limit = window.limit();
+
+        final int end = DelimiterScanner.indexOf(window, start, limit, separator);
+        int recordLength = end - start;
+        int skip = separator.length;
+        if (end == -1)
+        {
+            recordLength = limit - start;
+            if (nextPosition + recordLength < mappedFile.length())
+                throw new IOException("variable length record exceeds " + MAXIMUM_RECORD_SIZE + " bytes");
+            /*
+             * We have hit the end of the file and did not find an end of line
+             * for the last bytes we did find. Return the row for what is there.
+             */
+            logger.warn("assuming a line terminator at end of file where "
+                    + recordLength
+                    + " unterminated bytes were found");
+            skip = 0;
+        }
+        if (recordLength > row.length)
+            throw new IOException("variable length record exceeds " + row.length + " bytes");
+
+        window.position(start);
+        window.get(row, 0, recordLength);
+
+        nextPosition += recordLength + skip;
+        return recordLength;
+    }
+}
@@ -38,10 +38,14 @@ public class VariableLengthProvider extends AbstractProvider
 
     void assignReaderInstance() throws IOException, ParseException
     {
-        if (context.isSysin())
+        if (context.isSysinSpooled())
+            reader = new VariableLengthSysinStreamReader(context);
+        else if (context.isSysin())
             reader = new VariableLengthSysinReader(context);
         else if (context.isCacheInput())
             reader = new VariableLengthCacheReader(context);
+        else if (context.isMappedInput())
+            reader = new VariableLengthMappedReader(context);
         else
             reader = new VariableLengthFileReader(context);
     }
@@ -0,0 +1,58 @@
+package com.obdobion.funnel.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * Reads variable length records from SYSIN as they arrive. The bytes are
+ * copied to a {@link com.obdobion.funnel.provider.SysinSpool} on the way
+ * through.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class VariableLengthSysinStreamReader extends VariableLengthFileReader
+{
+    static final private Logger _logger = LoggerFactory.getLogger(VariableLengthSysinStreamReader.class);
+
+    /**
+     * <p>
+     * Constructor for VariableLengthSysinStreamReader.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @throws java.io.IOException if any.
+     * @throws java.text.ParseException if any.
+     */
+    public VariableLengthSysinStreamReader(final FunnelContext _context) throws IOException, ParseException
+    {
+        super(_context, defaultCharBufferSize);
+        _logger.debug("variable length sysin stream reader activated");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        raf.close();
+        _logger.debug("loaded SYSIN, {} bytes", context.sysinSpool.length());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws IOException
+    {
+        return context.sysinSpool.length();
+    }
+
+    @Override
+    ReadAheadFile newSource() throws IOException
+    {
+        return SysinSpool.openSysin(context);
+    }
+}
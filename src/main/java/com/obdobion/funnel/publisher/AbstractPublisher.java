@@ -3,7 +3,9 @@ package com.obdobion.funnel.publisher;
 import java.io.DataOutput;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
 import java.util.Arrays;
 
@@ -15,9 +17,11 @@ import com.obdobion.funnel.Funnel;
 import com.obdobion.funnel.FunnelDataPublisher;
 import com.obdobion.funnel.aggregation.Aggregate;
 import com.obdobion.funnel.columns.ColumnWriter;
+import com.obdobion.funnel.columns.OutputFormatHelper;
 import com.obdobion.funnel.parameters.DuplicateDisposition;
 import com.obdobion.funnel.parameters.FunnelContext;
 import com.obdobion.funnel.provider.FileSource;
+import com.obdobion.funnel.provider.MappedFileSource;
 import com.obdobion.funnel.provider.RandomAccessInputSource;
 import com.obdobion.funnel.segment.SourceProxyRecord;
 
@@ -39,11 +43,25 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
     SourceProxyRecord           previousItem;
     byte[]                      previousOriginalBytes;
     RandomAccessInputSource     originalFile;
+    OriginalGather              gather;
+    /*
+     * Formats the rows on other threads, null when that is done here.
+     */
+    ParallelPublish             parallel;
+    /*
+     * The original records are copied to the output as they are, they are
+     * not loaded into the columns.
+     */
+    boolean                     passthrough;
     byte[]                      originalBytes;
     byte[]                      writeBuffer;
     ByteBuffer                  bb;
     long                        writeCount;
     long                        duplicateCount;
+    /*
+     * The rows of the current group that have been written, for --groupLimit.
+     */
+    long                        groupRowCount;
 
     /**
      * <p>
@@ -71,6 +89,17 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
     @Override
     public void close() throws Exception
     {
+        if (gather != null)
+        {
+            publishGathered();
+            gather.close();
+            gather = null;
+        }
+        if (parallel != null)
+        {
+            parallel.finish();
+            parallel = null;
+        }
         if (context.isAggregating() && previousItem != null)
             /*
              * Write last aggregation to disk
@@ -78,7 +107,8 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
             formatOutputAndWrite(previousItem, previousOriginalBytes);
         if (bb.position() != 0)
             flushWritesToDisk();
-        originalFile.close();
+        if (originalFile != null)
+            originalFile.close();
 
         context.outputCounters(duplicateCount, writeCount);
 
@@ -87,6 +117,45 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
         logger.debug(Funnel.ByteFormatter.format(writeCount) + " rows written");
     }
 
+    /**
+     * Copy bytes of an original input file to the output without formatting
+     * them. From an input file to an output file they are transferred between
+     * the channels, otherwise they are read straight into the write buffer.
+     */
+    void copyOriginalBytes(final int originalFileNumber, final long location, final long length)
+            throws IOException
+    {
+        if (originalFile instanceof FileSource && writer instanceof RandomAccessFile)
+        {
+            if (bb.position() != 0)
+                flushWritesToDisk();
+            final FileChannel in = ((FileSource) originalFile).channel(originalFileNumber);
+            final FileChannel out = ((RandomAccessFile) writer).getChannel();
+            long copied = 0;
+            while (copied < length)
+            {
+                final long count = in.transferTo(location + copied, length - copied, out);
+                if (count <= 0)
+                    throw new IOException("original input ended at " + (location + copied));
+                copied += count;
+            }
+            return;
+        }
+        long copied = 0;
+        while (copied < length)
+        {
+            if (bb.position() == WriteBufferSize)
+                flushWritesToDisk();
+            final int piece = (int) Math.min(length - copied, WriteBufferSize - bb.position());
+            final int count = originalFile.read(originalFileNumber, writeBuffer, bb.position(), location + copied,
+                    piece);
+            if (count <= 0)
+                throw new IOException("original input ended at " + (location + copied));
+            bb.position(bb.position() + count);
+            copied += count;
+        }
+    }
+
     void flushWritesToDisk() throws IOException
     {
         writer.write(bb.array(), 0, bb.position());
@@ -108,6 +177,19 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
         Aggregate.reset(context);
     }
 
+    /**
+     * Format a row that is to be written. This is the part of
+     * formatOutputAndWrite that does not depend on the other rows, so it can
+     * also be run by a publishing thread with its own copy of the helper.
+     */
+    abstract void formatRow(
+            final OutputFormatHelper helper,
+            final ColumnWriter out,
+            final byte[] rawData,
+            final int originalSize,
+            final long recordNumber)
+                    throws Exception;
+
     /** {@inheritDoc} */
     @Override
     public long getDuplicateCount()
@@ -124,11 +206,43 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
 
     private void initialize() throws ParseException, IOException
     {
-        if (context.isCacheInput() || context.isSysin())
+        if (context.isFullRecordSort())
+            /*
+             * The records come with their keys, the input is not reread.
+             */
+            originalFile = null;
+        else if (context.isSysinSpooled())
+            originalFile = context.sysinSpool;
+        else if (context.isSysin())
             originalFile = context.inputCache;
+        else if (context.isCacheInput())
+            originalFile = context.inputCaches;
+        else if (context.isMappedInput())
+            originalFile = new MappedFileSource(context);
         else
             originalFile = new FileSource(context);
 
+        if (context.getGatherWindow() > 0 && originalFile instanceof FileSource)
+            gather = new OriginalGather(
+                    (FileSource) originalFile,
+                    context.getMaxOpenFiles(),
+                    context.getGatherWindow());
+
+        if (parallel != null)
+            parallel.close();
+        parallel = null;
+        if (context.getPublishThreads() > 0
+                && context.getFormatOutDefs() != null
+                && context.getHexDumps() == null
+                && !context.isAggregating())
+            parallel = new ParallelPublish(this, context.getPublishThreads());
+
+        passthrough = originalFile != null
+                && gather == null
+                && context.getFormatOutDefs() == null
+                && context.getHexDumps() == null
+                && !context.isAggregating();
+
         try
         {
             openOutput(context);
@@ -139,10 +253,30 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
         writeCount = duplicateCount = 0;
     }
 
+    /**
+     * Count the row in its group. The rows of a group arrive together since
+     * the group is the front of the key.
+     */
+    boolean isWithinGroupLimit(final SourceProxyRecord item)
+    {
+        if (context.getGroupLimit() == 0)
+            return true;
+        if (previousItem == null || !previousItem.isSameGroup(item))
+            groupRowCount = 0;
+        groupRowCount++;
+        return groupRowCount <= context.getGroupLimit();
+    }
+
     void loadOriginalBytes(final int originalFileNumber, final SourceProxyRecord item)
             throws IOException
     {
-        originalFile.read(originalFileNumber, originalBytes, item.originalLocation, item.originalSize);
+        if (item.originalRecord != null)
+            System.arraycopy(item.originalRecord, 0, originalBytes, 0,
+                    Math.min(item.originalSize, originalBytes.length));
+        else if (gather != null)
+            gather.copyNext(originalBytes);
+        else
+            originalFile.read(originalFileNumber, originalBytes, item.originalLocation, item.originalSize);
     }
 
     /**
@@ -159,7 +293,8 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
     {
         try
         {
-            originalFile.open();
+            if (originalFile != null)
+                originalFile.open();
         } catch (final IOException e)
         {
             App.abort(-1, e);
@@ -180,11 +315,38 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
         final int originalFileNumber = item.originalInputFileIndex;
         item.originalInputFileIndex = 0;
 
+        if (gather == null)
+            return publishOriginal(originalFileNumber, item);
+        /*
+         * The order is checked as the rows arrive, the original records are
+         * only read when the window is full.
+         */
+        if (gather.lastAdded() != null && gather.lastAdded().compareTo(item, false) > 0)
+            return false;
+        gather.add(originalFileNumber, item);
+        if (gather.isFull())
+            publishGathered();
+        return true;
+    }
+
+    void publishGathered() throws Exception
+    {
+        gather.read();
+        for (int r = 0; r < gather.getCount(); r++)
+            publishOriginal(gather.fileIndexOf(r), gather.itemOf(r));
+        gather.clear();
+    }
+
+    boolean publishOriginal(final int originalFileNumber, final SourceProxyRecord item) throws Exception
+    {
         int comparison = 0;
 
-        loadOriginalBytes(originalFileNumber, item);
-        item.getFunnelContext().columnHelper
-                .loadColumnsFromBytes(originalBytes, item.originalSize, item.getOriginalRecordNumber());
+        if (!passthrough)
+        {
+            loadOriginalBytes(originalFileNumber, item);
+            item.getFunnelContext().columnHelper
+                    .loadColumnsFromBytes(originalBytes, item.originalSize, item.getOriginalRecordNumber());
+        }
 
         if (previousItem != null)
         {
@@ -265,8 +427,18 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
                     .loadColumnsFromBytes(originalBytes, item.originalSize, item.getOriginalRecordNumber());
             Aggregate.aggregate(context, item.originalSize, item.getOriginalRecordNumber());
 
-        } else
-            formatOutputAndWrite(item, originalBytes);
+        } else if (isWithinGroupLimit(item))
+        {
+            if (passthrough)
+                writeOriginal(originalFileNumber, item);
+            else if (parallel == null)
+                formatOutputAndWrite(item, originalBytes);
+            else
+            {
+                writeCount++;
+                parallel.add(item, originalBytes);
+            }
+        }
         /*
          * Return the instance for reuse.
          */
@@ -274,7 +446,8 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
             previousItem.release();
 
         previousItem = item;
-        previousOriginalBytes = Arrays.copyOf(originalBytes, item.originalSize);
+        if (context.isAggregating())
+            previousOriginalBytes = Arrays.copyOf(originalBytes, item.originalSize);
         return true;
     }
 
@@ -305,6 +478,23 @@ abstract public class AbstractPublisher implements FunnelDataPublisher, ColumnWr
     {
         if (length + bb.position() >= WriteBufferSize)
             flushWritesToDisk();
-        bb.put(sourceBytes, offset, length);
+        if (length >= WriteBufferSize)
+            /*
+             * Too big for the buffer, like the rows formatted by the
+             * publishing threads.
+             */
+            writer.write(sourceBytes, offset, length);
+        else
+            bb.put(sourceBytes, offset, length);
+    }
+
+    /**
+     * Write an original record that is not formatted. The bytes are loaded
+     * here unless a publisher can copy them more directly.
+     */
+    void writeOriginal(final int originalFileNumber, final SourceProxyRecord item) throws Exception
+    {
+        loadOriginalBytes(originalFileNumber, item);
+        formatOutputAndWrite(item, originalBytes);
     }
 }
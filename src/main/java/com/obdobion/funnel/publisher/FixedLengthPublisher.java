@@ -3,6 +3,8 @@ package com.obdobion.funnel.publisher;
 import java.io.IOException;
 import java.text.ParseException;
 
+import com.obdobion.funnel.columns.ColumnWriter;
+import com.obdobion.funnel.columns.OutputFormatHelper;
 import com.obdobion.funnel.parameters.FunnelContext;
 import com.obdobion.funnel.segment.SourceProxyRecord;
 
@@ -15,6 +17,14 @@ import com.obdobion.funnel.segment.SourceProxyRecord;
  */
 abstract public class FixedLengthPublisher extends AbstractPublisher
 {
+    /*
+     * The original records that are next to each other in an input file and
+     * have not been written yet.
+     */
+    int  runFileNumber;
+    long runLocation;
+    long runLength;
+
     /**
      * <p>
      * Constructor for FixedLengthPublisher.
@@ -31,14 +41,34 @@ abstract public class FixedLengthPublisher extends AbstractPublisher
         this.originalBytes = new byte[Math.max(_context.getFixedRecordLengthOut(), _context.getFixedRecordLengthIn())];
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws Exception
+    {
+        writeRun();
+        super.close();
+    }
+
     @Override
     void formatOutputAndWrite(final SourceProxyRecord item, final byte[] rawData)
             throws IOException, Exception
     {
-        context.formatOutHelper.format(this, originalBytes, context.getFixedRecordLengthOut(), item, false);
+        formatRow(context.formatOutHelper, this, originalBytes, item.originalSize, item.getOriginalRecordNumber());
         super.formatOutputAndWrite(item, rawData);
     }
 
+    @Override
+    void formatRow(
+            final OutputFormatHelper helper,
+            final ColumnWriter out,
+            final byte[] rawData,
+            final int originalSize,
+            final long recordNumber)
+                    throws Exception
+    {
+        helper.format(out, context, rawData, context.getFixedRecordLengthOut(), originalSize, recordNumber, false);
+    }
+
     @Override
     void loadOriginalBytes(final int originalFileNumber, final SourceProxyRecord item)
             throws IOException
@@ -50,4 +80,38 @@ abstract public class FixedLengthPublisher extends AbstractPublisher
             originalBytes[b] = ' ';
         super.loadOriginalBytes(originalFileNumber, item);
     }
+
+    /**
+     * A record that is as long as the output records is the same in the output
+     * as in the input. Records that are next to each other in the input are
+     * copied together.
+     */
+    @Override
+    void writeOriginal(final int originalFileNumber, final SourceProxyRecord item) throws Exception
+    {
+        if (item.originalRecord != null
+                || item.originalSize != context.getFixedRecordLengthOut()
+                || context.getFixedRecordLengthIn() != context.getFixedRecordLengthOut())
+        {
+            writeRun();
+            super.writeOriginal(originalFileNumber, item);
+            return;
+        }
+        if (runLength == 0 || originalFileNumber != runFileNumber || item.originalLocation != runLocation + runLength)
+        {
+            writeRun();
+            runFileNumber = originalFileNumber;
+            runLocation = item.originalLocation;
+        }
+        runLength += item.originalSize;
+        writeCount++;
+    }
+
+    private void writeRun() throws IOException
+    {
+        if (runLength == 0)
+            return;
+        copyOriginalBytes(runFileNumber, runLocation, runLength);
+        runLength = 0;
+    }
 }
@@ -0,0 +1,314 @@
+package com.obdobion.funnel.publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.provider.FileSource;
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * Reads the original records of a window of sorted rows together.
+ * <p>
+ * The rows arrive in key order, which is a random order in the input files.
+ * Once the window is full the rows are put in file and location order and the
+ * records that are near each other are read with one positional read. The
+ * reads are spread over a small pool of threads. The publisher then writes the
+ * rows in key order, copying each original record from memory.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class OriginalGather
+{
+    static final private Logger logger     = LoggerFactory.getLogger(OriginalGather.class);
+
+    static final int            Threads    = 4;
+    /*
+     * Records that are no further apart than this are read with one read.
+     */
+    static final int            GapSize    = 1 << 16;
+    static final int            MaxRunSize = 1 << 20;
+
+    final FileSource            source;
+    final int                   maxOpenFiles;
+    final SourceProxyRecord[]   items;
+    final int[]                 fileIndex;
+    final byte[][]              bytes;
+    final Integer[]             order;
+    final ExecutorService       readers;
+    int                         count;
+    int                         next;
+    SourceProxyRecord           lastAdded;
+
+    /**
+     * <p>
+     * Constructor for OriginalGather.
+     * </p>
+     *
+     * @param _source the input files.
+     * @param _maxOpenFiles the most input files that may be open at once.
+     * @param window the number of rows that are read together.
+     */
+    public OriginalGather(final FileSource _source, final int _maxOpenFiles, final int window)
+    {
+        source = _source;
+        maxOpenFiles = _maxOpenFiles;
+        items = new SourceProxyRecord[window];
+        fileIndex = new int[window];
+        bytes = new byte[window][];
+        order = new Integer[window];
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        readers = Executors.newFixedThreadPool(Threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "funnel-gather-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        logger.debug("gathering original records {} rows at a time", window);
+    }
+
+    /**
+     * Add a row to the window.
+     *
+     * @param originalInputFileIndex the input file of the row.
+     * @param item a {@link com.obdobion.funnel.segment.SourceProxyRecord}
+     *            object.
+     */
+    public void add(final int originalInputFileIndex, final SourceProxyRecord item)
+    {
+        items[count] = item;
+        fileIndex[count] = originalInputFileIndex;
+        count++;
+        lastAdded = item;
+    }
+
+    /**
+     * Empty the window after its rows have been written.
+     */
+    public void clear()
+    {
+        Arrays.fill(items, 0, count, null);
+        count = 0;
+        next = 0;
+    }
+
+    /**
+     * <p>
+     * close.
+     * </p>
+     */
+    public void close()
+    {
+        readers.shutdownNow();
+    }
+
+    /**
+     * Copy the original record of the next row to be written.
+     *
+     * @param originalBytes where the record goes.
+     * @return the number of bytes copied.
+     */
+    public int copyNext(final byte[] originalBytes)
+    {
+        final int copySize = Math.min(items[next].originalSize, originalBytes.length);
+        System.arraycopy(bytes[next], 0, originalBytes, 0, copySize);
+        next++;
+        return copySize;
+    }
+
+    /**
+     * The input file of a row in the window.
+     *
+     * @param row the position of the row in the window.
+     * @return the index of the input file.
+     */
+    public int fileIndexOf(final int row)
+    {
+        return fileIndex[row];
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>count</code>.
+     * </p>
+     *
+     * @return the number of rows in the window.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * <p>
+     * isFull.
+     * </p>
+     *
+     * @return a boolean.
+     */
+    public boolean isFull()
+    {
+        return count == items.length;
+    }
+
+    /**
+     * A row in the window.
+     *
+     * @param row the position of the row in the window.
+     * @return a {@link com.obdobion.funnel.segment.SourceProxyRecord} object.
+     */
+    public SourceProxyRecord itemOf(final int row)
+    {
+        return items[row];
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>lastAdded</code>.
+     * </p>
+     *
+     * @return the most recent row added to the window, or null.
+     */
+    public SourceProxyRecord lastAdded()
+    {
+        return lastAdded;
+    }
+
+    /**
+     * Read the original records of all of the rows in the window.
+     *
+     * @throws java.io.IOException if any.
+     */
+    public void read() throws IOException
+    {
+        for (int r = 0; r < count; r++)
+        {
+            order[r] = r;
+            if (bytes[r] == null || bytes[r].length < items[r].originalSize)
+                bytes[r] = new byte[items[r].originalSize];
+        }
+        Arrays.sort(order, 0, count, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(final Integer row1, final Integer row2)
+            {
+                if (fileIndex[row1] != fileIndex[row2])
+                    return fileIndex[row1] < fileIndex[row2]
+                            ? -1
+                            : 1;
+                return Long.compare(items[row1].originalLocation, items[row2].originalLocation);
+            }
+        });
+
+        /*
+         * A batch of reads uses no more than --maxOpenFiles files so that none
+         * of them is closed while it is being read.
+         */
+        final List<Future<Void>> reads = new ArrayList<>();
+        final Set<Integer> batchFiles = new HashSet<>();
+        int runStart = 0;
+        while (runStart < count)
+        {
+            final int file = fileIndex[order[runStart]];
+            final long start = items[order[runStart]].originalLocation;
+            long end = start + items[order[runStart]].originalSize;
+            int runEnd = runStart + 1;
+            while (runEnd < count)
+            {
+                final SourceProxyRecord item = items[order[runEnd]];
+                if (fileIndex[order[runEnd]] != file
+                        || item.originalLocation > end + GapSize
+                        || item.originalLocation + item.originalSize - start > MaxRunSize)
+                    break;
+                end = Math.max(end, item.originalLocation + item.originalSize);
+                runEnd++;
+            }
+
+            if (!batchFiles.contains(file) && batchFiles.size() == maxOpenFiles)
+            {
+                waitFor(reads);
+                batchFiles.clear();
+            }
+            batchFiles.add(file);
+            reads.add(readers.submit(readRun(source.channel(file), runStart, runEnd, start, end)));
+            runStart = runEnd;
+        }
+        waitFor(reads);
+    }
+
+    /**
+     * One positional read for the records of the rows from runStart up to
+     * runEnd, in location order, which are all within start and end.
+     */
+    private Callable<Void> readRun(
+            final FileChannel channel,
+            final int runStart,
+            final int runEnd,
+            final long start,
+            final long end)
+    {
+        return new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                final ByteBuffer run = ByteBuffer.allocate((int) (end - start));
+                while (run.hasRemaining())
+                    if (channel.read(run, start + run.position()) == -1)
+                        break;
+                final byte[] runBytes = run.array();
+                final int runLength = run.position();
+
+                for (int r = runStart; r < runEnd; r++)
+                {
+                    final SourceProxyRecord item = items[order[r]];
+                    final int offset = (int) (item.originalLocation - start);
+                    final int length = Math.max(0, Math.min(item.originalSize, runLength - offset));
+                    System.arraycopy(runBytes, offset, bytes[order[r]], 0, length);
+                }
+                return null;
+            }
+        };
+    }
+
+    private void waitFor(final List<Future<Void>> reads) throws IOException
+    {
+        try
+        {
+            for (final Future<Void> read : reads)
+                read.get();
+        } catch (final ExecutionException e)
+        {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading original records", e);
+        } finally
+        {
+            reads.clear();
+        }
+    }
+}
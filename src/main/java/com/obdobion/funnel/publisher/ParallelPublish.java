@@ -0,0 +1,250 @@
+package com.obdobion.funnel.publisher;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.columns.ColumnWriter;
+import com.obdobion.funnel.columns.OutputFormatHelper;
+import com.obdobion.funnel.parameters.FunnelContext;
+import com.obdobion.funnel.segment.SourceProxyRecord;
+
+/**
+ * Moves the --formatOut work of a publisher - column parsing and equation
+ * evaluation - off of the sorting thread.
+ * <p>
+ * The sorting thread still reads the original records, in order, and decides
+ * which of them are written. Duplicates and the --groupLimit depend on the rows
+ * that came before, so that is not changed. The records that are to be written
+ * are copied into batches of consecutive rows. Each publishing thread formats a
+ * whole batch into the output buffer of the batch with its own copy of the
+ * {@link OutputFormatHelper}. The batches are written in the order they were
+ * made, so the output is exactly what a single threaded publisher would have
+ * written. The number of batches in flight is bounded.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+class ParallelPublish
+{
+    static final Logger logger     = LoggerFactory.getLogger(ParallelPublish.class);
+
+    static final int    BATCH_ROWS = 1 << 10;
+
+    static class Batch implements ColumnWriter
+    {
+        byte[]       data;
+        int          dataUsed;
+        int          count;
+        final int[]  dataOffset   = new int[BATCH_ROWS];
+        final int[]  originalSize = new int[BATCH_ROWS];
+        final long[] recordNumber = new long[BATCH_ROWS];
+        /*
+         * The rest of the fields are results.
+         */
+        byte[]       output;
+        int          outputUsed;
+
+        Batch(final int initialDataSize)
+        {
+            data = new byte[initialDataSize];
+        }
+
+        void add(final byte[] row, final int rowOriginalSize, final long rowRecordNumber)
+        {
+            if (dataUsed + rowOriginalSize > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataUsed + rowOriginalSize));
+            System.arraycopy(row, 0, data, dataUsed, rowOriginalSize);
+            dataOffset[count] = dataUsed;
+            originalSize[count] = rowOriginalSize;
+            recordNumber[count] = rowRecordNumber;
+            dataUsed += rowOriginalSize;
+            count++;
+        }
+
+        boolean isFull()
+        {
+            return count == BATCH_ROWS;
+        }
+
+        @Override
+        public void write(final byte[] sourceBytes, final int off, final int len)
+        {
+            if (outputUsed + len > output.length)
+                output = Arrays.copyOf(output, Math.max(output.length * 2, outputUsed + len));
+            System.arraycopy(sourceBytes, off, output, outputUsed, len);
+            outputUsed += len;
+        }
+    }
+
+    /**
+     * The copy of the output helper and the record buffer of one publishing
+     * thread.
+     */
+    static class RowFormatter
+    {
+        final OutputFormatHelper helper;
+        byte[]                   row;
+
+        RowFormatter(final OutputFormatHelper _helper)
+        {
+            helper = _helper;
+            row = new byte[1024];
+        }
+    }
+
+    final AbstractPublisher            publisher;
+    final FunnelContext                context;
+    final int                          threads;
+    final ExecutorService              workers;
+    final ArrayDeque<Future<Batch>>    pending;
+    final int                          maximumPending;
+    BlockingQueue<RowFormatter>        formatters;
+
+    Batch                              current;
+
+    ParallelPublish(final AbstractPublisher _publisher, final int _threads)
+    {
+        publisher = _publisher;
+        context = _publisher.context;
+        threads = _threads;
+        maximumPending = 2 * threads;
+        pending = new ArrayDeque<>(maximumPending);
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "funnel-publish-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        logger.debug("{} publish threads", threads);
+    }
+
+    /**
+     * Queue a record to be formatted and written. The bytes are copied.
+     */
+    void add(final SourceProxyRecord item, final byte[] originalBytes) throws Exception
+    {
+        if (current == null)
+            current = new Batch(1 << 16);
+        current.add(originalBytes, item.originalSize, item.getOriginalRecordNumber());
+        if (current.isFull())
+            submit();
+    }
+
+    void close()
+    {
+        for (final Future<Batch> future : pending)
+            future.cancel(true);
+        pending.clear();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Write the oldest batch, waiting for it to be formatted if needed.
+     */
+    private void commit() throws Exception
+    {
+        try
+        {
+            final Batch batch = pending.poll().get();
+            publisher.write(batch.output, 0, batch.outputUsed);
+        } catch (final ExecutionException e)
+        {
+            logger.error(e.getCause().getMessage(), e.getCause());
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Write every record that has been added, then stop the publishing
+     * threads.
+     */
+    void finish() throws Exception
+    {
+        try
+        {
+            if (current != null)
+                submit();
+            while (!pending.isEmpty())
+                commit();
+        } finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Format every record of the batch into its output buffer.
+     */
+    Batch format(final Batch batch) throws Exception
+    {
+        batch.output = new byte[Math.max(1024, batch.dataUsed + batch.dataUsed / 4)];
+        final RowFormatter formatter = formatters.take();
+        try
+        {
+            for (int r = 0; r < batch.count; r++)
+            {
+                final int originalSize = batch.originalSize[r];
+                if (originalSize >= formatter.row.length)
+                    formatter.row = new byte[originalSize + 1024];
+                System.arraycopy(batch.data, batch.dataOffset[r], formatter.row, 0, originalSize);
+                formatter.row[originalSize] = 0x00;
+
+                publisher.formatRow(formatter.helper, batch, formatter.row, originalSize, batch.recordNumber[r]);
+            }
+        } finally
+        {
+            formatters.put(formatter);
+        }
+        /*
+         * Only the output is needed from here on.
+         */
+        batch.data = null;
+        return batch;
+    }
+
+    private void submit() throws Exception
+    {
+        if (formatters == null)
+        {
+            /*
+             * The copies are made when the first batch is full so that the
+             * header, if there is one, has already been parsed.
+             */
+            formatters = new ArrayBlockingQueue<>(threads);
+            for (int t = 0; t < threads; t++)
+                formatters.put(new RowFormatter(context.formatOutHelper.newCopy(context)));
+        }
+        while (pending.size() >= maximumPending)
+            commit();
+
+        final Batch batch = current;
+        current = null;
+        pending.add(workers.submit(new Callable<Batch>()
+        {
+            @Override
+            public Batch call() throws Exception
+            {
+                return format(batch);
+            }
+        }));
+    }
+}
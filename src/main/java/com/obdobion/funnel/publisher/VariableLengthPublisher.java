@@ -6,6 +6,8 @@ import java.io.StringWriter;
 import java.text.ParseException;
 import java.util.Formatter;
 
+import com.obdobion.funnel.columns.ColumnWriter;
+import com.obdobion.funnel.columns.OutputFormatHelper;
 import com.obdobion.funnel.orderby.KeyPart;
 import com.obdobion.funnel.parameters.FunnelContext;
 import com.obdobion.funnel.parameters.HexDump;
@@ -151,8 +153,7 @@ abstract public class VariableLengthPublisher extends AbstractPublisher
              * unless a --hexdump is requested. In that case we would not write
              * the row.
              */
-            context.formatOutHelper.format(this, rawData, item.originalSize, item, true);
-            newLine();
+            formatRow(context.formatOutHelper, this, rawData, item.originalSize, item.getOriginalRecordNumber());
         }
 
         super.formatOutputAndWrite(item, rawData);
@@ -161,6 +162,19 @@ abstract public class VariableLengthPublisher extends AbstractPublisher
             formatHexDumpAndWrite(item, rawData);
     }
 
+    @Override
+    void formatRow(
+            final OutputFormatHelper helper,
+            final ColumnWriter out,
+            final byte[] rawData,
+            final int originalSize,
+            final long recordNumber)
+                    throws Exception
+    {
+        helper.format(out, context, rawData, originalSize, originalSize, recordNumber, true);
+        out.write(context.getEndOfRecordDelimiterOut(), 0, context.getEndOfRecordDelimiterOut().length);
+    }
+
     private void hexDump(final byte[] bytesToDump, final int fieldOffsetInRow) throws IOException
     {
         hexDump(bytesToDump, fieldOffsetInRow, bytesToDump.length);
@@ -288,4 +302,25 @@ abstract public class VariableLengthPublisher extends AbstractPublisher
             newLine();
         }
     }
+
+    /**
+     * The record is read straight into the write buffer and trimmed there.
+     */
+    @Override
+    void writeOriginal(final int originalFileNumber, final SourceProxyRecord item) throws Exception
+    {
+        final int eolLength = context.getEndOfRecordDelimiterOut().length;
+        if (item.originalRecord != null || item.originalSize + eolLength >= WriteBufferSize)
+        {
+            super.writeOriginal(originalFileNumber, item);
+            return;
+        }
+        if (item.originalSize + eolLength + bb.position() >= WriteBufferSize)
+            flushWritesToDisk();
+        final int start = bb.position();
+        originalFile.read(originalFileNumber, writeBuffer, start, item.originalLocation, item.originalSize);
+        bb.position(start + OutputFormatHelper.lengthToWrite(writeBuffer, start, item.originalSize, true));
+        newLine();
+        writeCount++;
+    }
 }
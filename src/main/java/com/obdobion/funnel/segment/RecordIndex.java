@@ -0,0 +1,92 @@
+package com.obdobion.funnel.segment;
+
+import java.util.Arrays;
+
+/**
+ * Where each selected input record is, in the order the records were read. A
+ * reverse copy publishes the records from the end of this index to the start
+ * instead of sorting them on a descending record number. It takes 24 bytes per
+ * record rather than a source proxy and a key.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class RecordIndex
+{
+    static final int InitialSize = 1 << 12;
+
+    int[]            originalInputFileIndex;
+    long[]           originalRecordNumber;
+    long[]           originalLocation;
+    int[]            originalSize;
+    int              count;
+
+    /**
+     * <p>
+     * Constructor for RecordIndex.
+     * </p>
+     */
+    public RecordIndex()
+    {
+        originalInputFileIndex = new int[InitialSize];
+        originalRecordNumber = new long[InitialSize];
+        originalLocation = new long[InitialSize];
+        originalSize = new int[InitialSize];
+    }
+
+    /**
+     * Add the location of a record to the end of the index.
+     *
+     * @param proxy a {@link com.obdobion.funnel.segment.SourceProxyRecord}
+     *            object.
+     */
+    public void add(final SourceProxyRecord proxy)
+    {
+        if (count == originalSize.length)
+        {
+            final int newSize = count * 2;
+            originalInputFileIndex = Arrays.copyOf(originalInputFileIndex, newSize);
+            originalRecordNumber = Arrays.copyOf(originalRecordNumber, newSize);
+            originalLocation = Arrays.copyOf(originalLocation, newSize);
+            originalSize = Arrays.copyOf(originalSize, newSize);
+        }
+        originalInputFileIndex[count] = proxy.originalInputFileIndex;
+        originalRecordNumber[count] = proxy.getOriginalRecordNumber();
+        originalLocation[count] = proxy.originalLocation;
+        originalSize[count] = proxy.originalSize;
+        count++;
+    }
+
+    /**
+     * Fill a proxy with the location of a record. The key of the proxy is its
+     * position in the output so that the publisher sees the records in order.
+     *
+     * @param entry the position of the record in this index.
+     * @param outputPosition the position of the record in the output.
+     * @param proxy a {@link com.obdobion.funnel.segment.SourceProxyRecord}
+     *            object.
+     */
+    public void load(final int entry, final long outputPosition, final SourceProxyRecord proxy)
+    {
+        proxy.originalInputFileIndex = originalInputFileIndex[entry];
+        proxy.setOriginalRecordNumber(originalRecordNumber[entry]);
+        proxy.originalLocation = originalLocation[entry];
+        proxy.originalSize = originalSize[entry];
+        proxy.originalRecord = null;
+        proxy.size = 8;
+        proxy.sortKey = new byte[8];
+        for (int b = 0; b < 8; b++)
+            proxy.sortKey[b] = (byte) (outputPosition >>> (56 - 8 * b));
+    }
+
+    /**
+     * <p>
+     * size.
+     * </p>
+     *
+     * @return the number of records in the index.
+     */
+    public int size()
+    {
+        return count;
+    }
+}
@@ -37,6 +37,24 @@ class Segment implements FunnelDataProvider
         nextRow = 0;
     }
 
+    /**
+     * A segment that was already written to the work file by an earlier run,
+     * see {@link com.obdobion.funnel.segment.SegmentManifest}.
+     *
+     * @param _workfile a {@link com.obdobion.funnel.segment.WorkRepository}
+     *            object.
+     * @param _startingPosition a long.
+     * @param _rowsInSegment a long.
+     */
+    Segment(final WorkRepository _workfile, final long _startingPosition, final long _rowsInSegment)
+    {
+        workfile = _workfile;
+        startingPosition = _startingPosition;
+        nextPosition = startingPosition;
+        rowsInSegment = _rowsInSegment;
+        nextRow = 0;
+    }
+
     /** {@inheritDoc} */
     @Override
     public long actualNumberOfRows()
@@ -0,0 +1,199 @@
+package com.obdobion.funnel.segment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.Properties;
+import java.util.Stack;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * A checkpoint of a multi-pass sort. After each intermediate pass the segments
+ * that were written to the work file are recorded here, in the work directory,
+ * along with the options fingerprint of the
+ * {@link com.obdobion.funnel.parameters.FunnelContext}. If the sort fails in a
+ * later pass, running the same command again with --resume will continue from
+ * the last completed pass rather than reading the original input again.
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class SegmentManifest
+{
+    static final private Logger logger = LoggerFactory.getLogger(SegmentManifest.class);
+
+    final FunnelContext         context;
+    final String                fingerprint;
+    final File                  manifestFile;
+    int                         pass;
+
+    /**
+     * <p>
+     * Constructor for SegmentManifest.
+     * </p>
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @throws java.text.ParseException if any.
+     * @throws java.io.IOException if any.
+     */
+    public SegmentManifest(final FunnelContext _context) throws ParseException, IOException
+    {
+        context = _context;
+        fingerprint = _context.getOptionsFingerprint();
+        manifestFile = new File(_context.getWorkDirectory(), "funnel." + fingerprint + ".manifest");
+    }
+
+    /**
+     * Remove the manifest. This is done when the sort completes normally.
+     */
+    public void delete()
+    {
+        if (manifestFile.delete())
+            logger.debug("deleted " + manifestFile.getAbsolutePath());
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>manifestFile</code>.
+     * </p>
+     *
+     * @return a {@link java.io.File} object.
+     */
+    public File getManifestFile()
+    {
+        return manifestFile;
+    }
+
+    /**
+     * The last pass that was completed by the run that wrote this manifest.
+     *
+     * @return a int.
+     */
+    public int getPass()
+    {
+        return pass;
+    }
+
+    /**
+     * Rebuild the segmented provider of the last completed pass. The input
+     * counters and any header that was read in the first pass are restored to
+     * the context.
+     *
+     * @return null if there is no compatible manifest for this sort.
+     * @throws java.io.IOException if any.
+     */
+    public SegmentedPublisherAndProvider restore() throws IOException
+    {
+        if (!manifestFile.exists())
+            return null;
+
+        final Properties props = new Properties();
+        try (final InputStream in = new FileInputStream(manifestFile))
+        {
+            props.load(in);
+        }
+
+        if (!fingerprint.equals(props.getProperty("fingerprint")))
+        {
+            logger.warn("ignoring {}, it was written for different options", manifestFile.getAbsolutePath());
+            return null;
+        }
+
+        final File workFile = new File(props.getProperty("workFile"));
+        if (!workFile.exists() || workFile.length() != Long.parseLong(props.getProperty("workFileLength")))
+        {
+            logger.warn("ignoring {}, work file {} is missing or incomplete", manifestFile.getAbsolutePath(),
+                    workFile.getAbsolutePath());
+            return null;
+        }
+
+        final WorkRepository workRepository = new WorkFile(context, workFile);
+        final int segmentCount = Integer.parseInt(props.getProperty("segments"));
+        final Stack<Segment> segments = new Stack<>();
+        for (int s = 0; s < segmentCount; s++)
+            segments.push(new Segment(workRepository,
+                    Long.parseLong(props.getProperty("segment." + s + ".start")),
+                    Long.parseLong(props.getProperty("segment." + s + ".rows"))));
+
+        try
+        {
+            if (props.getProperty("headerIn") != null)
+                context.headerHelper.setOriginalHeaderRow(Hex.decodeHex(props.getProperty("headerIn").toCharArray()));
+            if (props.getProperty("csvHeader") != null)
+                context.getCsv().headerContents = Hex.decodeHex(props.getProperty("csvHeader").toCharArray());
+        } catch (final DecoderException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        context.inputCounters(
+                Long.parseLong(props.getProperty("unselectedCount")),
+                Long.parseLong(props.getProperty("recordCount")));
+
+        pass = Integer.parseInt(props.getProperty("pass"));
+
+        logger.info("resuming after pass {} with {} segments from {}", pass, segmentCount, workFile.getAbsolutePath());
+        return new SegmentedPublisherAndProvider(workRepository, segments);
+    }
+
+    /**
+     * Record the segments of a completed pass. The manifest is written to a
+     * temporary file and then moved into place so that a failure while writing
+     * it does not lose the previous checkpoint.
+     *
+     * @param _pass a int.
+     * @param publisher a
+     *            {@link com.obdobion.funnel.segment.SegmentedPublisherAndProvider}
+     *            object that has been closed.
+     * @throws java.io.IOException if any.
+     */
+    public void write(final int _pass, final SegmentedPublisherAndProvider publisher) throws IOException
+    {
+        final File workFile = ((WorkFile) publisher.workRepository).file;
+        final Stack<Segment> segments = publisher.segments;
+
+        final Properties props = new Properties();
+        props.setProperty("fingerprint", fingerprint);
+        props.setProperty("pass", Integer.toString(_pass));
+        props.setProperty("workFile", workFile.getAbsolutePath());
+        props.setProperty("workFileLength", Long.toString(workFile.length()));
+        props.setProperty("recordCount", Long.toString(context.getRecordCount()));
+        props.setProperty("unselectedCount", Long.toString(context.getUnselectedCount()));
+        if (context.headerHelper.getOriginalHeaderRow() != null)
+            props.setProperty("headerIn", Hex.encodeHexString(context.headerHelper.getOriginalHeaderRow()));
+        if (context.getCsv() != null && context.getCsv().headerContents != null)
+            props.setProperty("csvHeader", Hex.encodeHexString(context.getCsv().headerContents));
+
+        final int segmentCount = segments == null
+                ? 0
+                : segments.size();
+        props.setProperty("segments", Integer.toString(segmentCount));
+        for (int s = 0; s < segmentCount; s++)
+        {
+            props.setProperty("segment." + s + ".start", Long.toString(segments.get(s).startingPosition));
+            props.setProperty("segment." + s + ".rows", Long.toString(segments.get(s).rowsInSegment));
+        }
+
+        final File tempFile = new File(manifestFile.getAbsolutePath() + ".tmp");
+        try (final OutputStream out = new FileOutputStream(tempFile))
+        {
+            props.store(out, "funnel segment manifest");
+        }
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        pass = _pass;
+        logger.debug("pass({}) checkpointed in {}", _pass, manifestFile.getAbsolutePath());
+    }
+}
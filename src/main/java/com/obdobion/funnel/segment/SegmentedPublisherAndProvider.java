@@ -54,6 +54,20 @@ public class SegmentedPublisherAndProvider implements FunnelDataPublisher, Funne
             workRepository = new WorkFile(context);
     }
 
+    /**
+     * Rebuild the state of a publisher that was checkpointed by an earlier run,
+     * see {@link com.obdobion.funnel.segment.SegmentManifest}.
+     *
+     * @param _workRepository
+     * @param _segments
+     */
+    SegmentedPublisherAndProvider(final WorkRepository _workRepository, final Stack<Segment> _segments)
+    {
+        workRepository = _workRepository;
+        segments = _segments;
+        actualNumberOfRows = _segments.size();
+    }
+
     /**
      * <p>
      * actAsProvider.
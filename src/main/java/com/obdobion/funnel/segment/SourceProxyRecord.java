@@ -40,6 +40,8 @@ public class SourceProxyRecord
                 return new SourceProxyRecord(context);
             final SourceProxyRecord proxy = AvailableInstances.pop();
             proxy.context = context;
+            proxy.originalRecord = null;
+            proxy.groupKeyLength = 0;
             return proxy;
         }
     }
@@ -51,6 +53,16 @@ public class SourceProxyRecord
     public int            originalSize;
     public int            size;
     public byte[]         sortKey;
+    /*
+     * The whole original record, only when it travels through the sort with
+     * its key.
+     */
+    public byte[]         originalRecord;
+    /*
+     * The number of bytes at the front of the sortKey that are the group of
+     * --groupLimit.
+     */
+    public int            groupKeyLength;
 
     private SourceProxyRecord(final FunnelContext _context)
     {
@@ -178,6 +190,24 @@ public class SourceProxyRecord
         return result;
     }
 
+    /**
+     * <p>
+     * isSameGroup.
+     * </p>
+     *
+     * @param o a {@link com.obdobion.funnel.segment.SourceProxyRecord} object.
+     * @return true if both rows have the same group key.
+     */
+    public boolean isSameGroup(final SourceProxyRecord o)
+    {
+        if (groupKeyLength != o.groupKeyLength)
+            return false;
+        for (int b = 0; b < groupKeyLength; b++)
+            if (sortKey[b] != o.sortKey[b])
+                return false;
+        return true;
+    }
+
     /**
      * <p>
      * release.
@@ -0,0 +1,119 @@
+package com.obdobion.funnel.segment;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The first (--top) or the last (--bottom) N rows in the order of the keys.
+ * <p>
+ * The rows are kept in a heap with the row that would be dropped next at its
+ * head. Once the heap holds N rows a new row either replaces the head or is
+ * dropped itself, so the input is read in one pass in memory without any work
+ * files.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ */
+public class TopRows
+{
+    static final Comparator<SourceProxyRecord> Ascending  = new Comparator<SourceProxyRecord>()
+    {
+        @Override
+        public int compare(final SourceProxyRecord row1, final SourceProxyRecord row2)
+        {
+            return row1.compareTo(row2);
+        }
+    };
+
+    static final Comparator<SourceProxyRecord> Descending = new Comparator<SourceProxyRecord>()
+    {
+        @Override
+        public int compare(final SourceProxyRecord row1, final SourceProxyRecord row2)
+        {
+            return row2.compareTo(row1);
+        }
+    };
+
+    final int                                  limit;
+    final Comparator<SourceProxyRecord>        dropOrder;
+    final PriorityQueue<SourceProxyRecord>     heap;
+    long                                       droppedCount;
+
+    /**
+     * <p>
+     * Constructor for TopRows.
+     * </p>
+     *
+     * @param _limit the number of rows that are kept.
+     * @param bottom true to keep the last rows rather than the first ones.
+     */
+    public TopRows(final int _limit, final boolean bottom)
+    {
+        limit = _limit;
+        dropOrder = bottom
+                ? Ascending
+                : Descending;
+        heap = new PriorityQueue<>(Math.min(_limit, 1 << 16), dropOrder);
+    }
+
+    /**
+     * Keep a row if it is one of the N rows seen so far. The row that it
+     * replaces, or the row itself, is dropped and released.
+     *
+     * @param row a {@link com.obdobion.funnel.segment.SourceProxyRecord}
+     *            object.
+     */
+    public void add(final SourceProxyRecord row)
+    {
+        if (heap.size() < limit)
+        {
+            heap.add(row);
+            return;
+        }
+        droppedCount++;
+        if (dropOrder.compare(row, heap.peek()) > 0)
+        {
+            heap.poll().release();
+            heap.add(row);
+        } else
+            row.release();
+    }
+
+    /**
+     * <p>
+     * Getter for the field <code>droppedCount</code>.
+     * </p>
+     *
+     * @return the number of rows that did not qualify.
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * <p>
+     * size.
+     * </p>
+     *
+     * @return the number of rows that are kept.
+     */
+    public int size()
+    {
+        return heap.size();
+    }
+
+    /**
+     * Empty the heap.
+     *
+     * @return the rows that were kept, in the order of the keys.
+     */
+    public SourceProxyRecord[] sorted()
+    {
+        final SourceProxyRecord[] rows = heap.toArray(new SourceProxyRecord[heap.size()]);
+        heap.clear();
+        Arrays.sort(rows, Ascending);
+        return rows;
+    }
+}
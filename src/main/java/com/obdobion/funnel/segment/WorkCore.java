@@ -25,6 +25,11 @@ public class WorkCore implements WorkRepository
     static final int            WriteBufferIncrement = 32768;
 
     final FunnelContext         context;
+    final boolean               fullRecord;
+    /*
+     * The length of the group key is only kept for --groupLimit.
+     */
+    final int                   headerSize;
     final List<ByteBuffer>      writeBuffers;
     final List<Integer>         writeBufferLengths;
     long[]                      bufferStartingPosition;
@@ -43,6 +48,10 @@ public class WorkCore implements WorkRepository
     public WorkCore(final FunnelContext _context) throws IOException
     {
         context = _context;
+        fullRecord = _context.isFullRecordSort();
+        headerSize = _context.getGroupLimit() > 0
+                ? RecordHeaderSize + 4
+                : RecordHeaderSize;
         writeBuffers = new ArrayList<>();
         writeBufferLengths = new ArrayList<>();
         writeFilePointer = 0L;
@@ -120,10 +129,16 @@ public class WorkCore implements WorkRepository
         rec.originalLocation = currentBuffer.getLong();
         rec.originalSize = currentBuffer.getInt();
         rec.size = currentBuffer.getInt();
+        if (headerSize > RecordHeaderSize)
+            rec.groupKeyLength = currentBuffer.getInt();
         rec.sortKey = new byte[rec.size];
         currentBuffer.get(rec.sortKey);
+        if (!fullRecord)
+            return headerSize + rec.size;
 
-        return RecordHeaderSize + rec.size;
+        rec.originalRecord = new byte[rec.originalSize];
+        currentBuffer.get(rec.originalRecord);
+        return headerSize + rec.size + rec.originalSize;
     }
 
     /** {@inheritDoc} */
@@ -167,13 +182,16 @@ public class WorkCore implements WorkRepository
     @Override
     public long write(final SourceProxyRecord rec) throws IOException
     {
-        final int sizeThisTime = RecordHeaderSize + rec.size;
+        int sizeThisTime = headerSize + rec.size;
+        if (fullRecord)
+            sizeThisTime += rec.originalSize;
 
         if (sizeThisTime + currentBuffer.position() >= currentBuffer.capacity())
         {
             writeBuffers.add(currentBuffer);
             writeBufferLengths.add(currentBuffer.position());
-            currentBuffer = ByteBuffer.wrap(new byte[WriteBufferIncrement], 0, WriteBufferIncrement);
+            final int bufferSize = Math.max(WriteBufferIncrement, sizeThisTime + 1);
+            currentBuffer = ByteBuffer.wrap(new byte[bufferSize], 0, bufferSize);
         }
 
         currentBuffer.putInt(rec.originalInputFileIndex);
@@ -181,7 +199,11 @@ public class WorkCore implements WorkRepository
         currentBuffer.putLong(rec.originalLocation);
         currentBuffer.putInt(rec.originalSize);
         currentBuffer.putInt(rec.size);
+        if (headerSize > RecordHeaderSize)
+            currentBuffer.putInt(rec.groupKeyLength);
         currentBuffer.put(rec.sortKey, 0, rec.size);
+        if (fullRecord)
+            currentBuffer.put(rec.originalRecord, 0, rec.originalSize);
 
         final long startingPointer = writeFilePointer;
         writeFilePointer += sizeThisTime;
@@ -25,6 +25,11 @@ public class WorkFile implements WorkRepository
     static final int            WriteBufferSize  = 32768;
 
     final FunnelContext         context;
+    final boolean               fullRecord;
+    /*
+     * The length of the group key is only kept for --groupLimit.
+     */
+    final int                   headerSize;
     final File                  file;
     private RandomAccessFile    raf;
     final byte[]                writeBuffer;
@@ -43,14 +48,45 @@ public class WorkFile implements WorkRepository
     public WorkFile(final FunnelContext _context) throws IOException
     {
         context = _context;
+        fullRecord = _context.isFullRecordSort();
+        headerSize = _context.getGroupLimit() > 0
+                ? RecordHeaderSize + 4
+                : RecordHeaderSize;
         file = File.createTempFile("funnel.", ".tmp", _context.getWorkDirectory());
-        file.deleteOnExit();
+        /*
+         * A resumable sort must leave its work files behind if it fails. They
+         * are deleted as soon as the next pass has been checkpointed.
+         */
+        if (!_context.isResume())
+            file.deleteOnExit();
         writeBuffer = new byte[WriteBufferSize];
         bb = ByteBuffer.wrap(writeBuffer, 0, WriteBufferSize);
 
         logger.debug("buffer size is " + WriteBufferSize + " bytes");
     }
 
+    /**
+     * Reattach to a work file that was written by an earlier run of the same
+     * sort, see {@link com.obdobion.funnel.segment.SegmentManifest}.
+     *
+     * @param _context a {@link com.obdobion.funnel.parameters.FunnelContext}
+     *            object.
+     * @param _file a {@link java.io.File} object.
+     */
+    WorkFile(final FunnelContext _context, final File _file)
+    {
+        context = _context;
+        fullRecord = _context.isFullRecordSort();
+        headerSize = _context.getGroupLimit() > 0
+                ? RecordHeaderSize + 4
+                : RecordHeaderSize;
+        file = _file;
+        writeBuffer = new byte[WriteBufferSize];
+        bb = ByteBuffer.wrap(writeBuffer, 0, WriteBufferSize);
+
+        logger.debug("reusing " + _file.getAbsolutePath());
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException
@@ -117,17 +153,25 @@ public class WorkFile implements WorkRepository
         rec.originalLocation = raf.readLong();
         rec.originalSize = raf.readInt();
         rec.size = raf.readInt();
+        if (headerSize > RecordHeaderSize)
+            rec.groupKeyLength = raf.readInt();
         rec.sortKey = new byte[rec.size];
         final int readSize = raf.read(rec.sortKey);
+        if (!fullRecord)
+            return headerSize + readSize;
 
-        return RecordHeaderSize + readSize;
+        rec.originalRecord = new byte[rec.originalSize];
+        raf.readFully(rec.originalRecord);
+        return headerSize + readSize + rec.originalSize;
     }
 
     /** {@inheritDoc} */
     @Override
     public long write(final SourceProxyRecord rec) throws IOException
     {
-        final int sizeThisTime = RecordHeaderSize + rec.size;
+        int sizeThisTime = headerSize + rec.size;
+        if (fullRecord)
+            sizeThisTime += rec.originalSize;
 
         if (sizeThisTime + bb.position() >= WriteBufferSize)
             flushWritesToDisk();
@@ -137,7 +181,21 @@ public class WorkFile implements WorkRepository
         bb.putLong(rec.originalLocation);
         bb.putInt(rec.originalSize);
         bb.putInt(rec.size);
+        if (headerSize > RecordHeaderSize)
+            bb.putInt(rec.groupKeyLength);
         bb.put(rec.sortKey, 0, rec.size);
+        if (fullRecord)
+        {
+            /*
+             * A record that does not fit in the buffer is written directly.
+             */
+            if (rec.originalSize > bb.remaining())
+            {
+                flushWritesToDisk();
+                raf.write(rec.originalRecord, 0, rec.originalSize);
+            } else
+                bb.put(rec.originalRecord, 0, rec.originalSize);
+        }
 
         final long startingPointer = writeFilePointer;
         writeFilePointer += sizeThisTime;
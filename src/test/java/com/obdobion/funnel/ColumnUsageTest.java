@@ -0,0 +1,106 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ColumnUsageTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ColumnUsageTest
+{
+    static final String Columns = " --col(string -o0 -l1 -n key)(int -o2 -l3 -n n)(int -o6 -l3 -n w)";
+
+    private List<String> input()
+    {
+        final List<String> in = new ArrayList<>();
+        in.add("b 007 100");
+        in.add("a 003 200");
+        in.add("a 009 010");
+        in.add("b 001 300");
+        in.add("a 006 020");
+        return in;
+    }
+
+    /**
+     * <p>
+     * aggregateColumn.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void aggregateColumn() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where 'n > 5'"
+                + " --orderby(key asc)"
+                + " --sum(w -n total)"
+                + " --format(key)(-s1)(-e total -l3 -d '%03d')");
+
+        Assert.assertEquals("records", 2L, context.getWriteCount());
+
+        final List<String> exp = new ArrayList<>();
+        exp.add("a 030");
+        exp.add("b 100");
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * formatEquation.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void formatEquation() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where 'n > 2'"
+                + " --orderby(key asc)(n asc)"
+                + " --format(key)(-s1)(--equ \"w + recordnumber\" -l3 -d '%03d')");
+
+        Assert.assertEquals("records", 4L, context.getWriteCount());
+
+        final List<String> exp = new ArrayList<>();
+        exp.add("a 202");
+        exp.add("a 025");
+        exp.add("a 013");
+        exp.add("b 101");
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
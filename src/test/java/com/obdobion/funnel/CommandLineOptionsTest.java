@@ -171,12 +171,12 @@ public class CommandLineOptionsTest
          * This will change if the number of class files changes.
          */
         ctx = new FunnelContext(Helper.config(), "**/main/**/funnel/*.java");
-        Assert.assertEquals("file count", 6, ctx.getInputFiles().files().size());
+        Assert.assertEquals("file count", 7, ctx.getInputFiles().files().size());
         /*
          * This will change if the number of class files changes.
          */
         ctx = new FunnelContext(Helper.config(), "**/main/**/funnel/*.java", "**/main/**/segment/*.java");
-        Assert.assertEquals("file count", 12, ctx.getInputFiles().files().size());
+        Assert.assertEquals("file count", 16, ctx.getInputFiles().files().size());
     }
 
     /**
@@ -0,0 +1,173 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * CompiledPredicateTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class CompiledPredicateTest
+{
+    static final String Columns = " --col(Integer -o0 -l4 -n n)(String -o5 -l3 -n name)(Float -o9 -l6 -n price)"
+            + " --orderby(n asc)";
+
+    static final String[] Names = { "abc", "xyz", "b" };
+
+    /**
+     * <p>
+     * arithmetic.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void arithmetic() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        /*
+         * Division is in doubles, a float column compared with integer
+         * arithmetic is compared in doubles.
+         */
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where 'n / 4 > 10.5 && price - n * 1.5 = 0 && recordnumber % 2 = 1'");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 44; r < 200; r += 2)
+            exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private List<String> input()
+    {
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 200; r++)
+            in.add(row(r));
+        return in;
+    }
+
+    /**
+     * <p>
+     * interpretedAndCompiled.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void interpretedAndCompiled() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        /*
+         * The function is left to the interpreter, both must be true.
+         */
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where \"rtrim(name) = 'b'\" 'n >= 100'");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 100; r < 200; r++)
+            if (r % 3 == 2)
+                exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String row(final int r)
+    {
+        return String.format("%04d %-3s %6.1f", r, Names[r % 3], r * 1.5);
+    }
+
+    /**
+     * <p>
+     * stopWhen.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void stopWhen() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --stopWhen 'recordsize > 0 && n = 50'");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 0; r < 50; r++)
+            exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * stringEquality.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void stringEquality() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where \"name = 'xyz' || n <= -(-3)\"");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 0; r < 200; r++)
+            if (r % 3 == 1 || r <= 3)
+                exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
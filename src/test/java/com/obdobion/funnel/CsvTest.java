@@ -2,6 +2,7 @@ package com.obdobion.funnel;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.StringBufferInputStream;
@@ -347,6 +348,93 @@ public class CsvTest
         Assert.assertEquals("extract field 0", "field1", new String(result[0]));
     }
 
+    /**
+     * <p>
+     * field1SurroundingSpacesIgnored.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1SurroundingSpacesIgnored() throws Throwable
+    {
+        final byte[] csvData = "  field1 \t, \"field2\" ".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                true
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat().withIgnoreSurroundingSpaces(true);
+        final byte[][] result = csv.decodeCsv(csvData, csvData.length, format);
+
+        Assert.assertEquals("extract field 0", "field1", new String(result[0]));
+        Assert.assertEquals("extract field 1", "field2", new String(result[1]));
+    }
+
+    /**
+     * <p>
+     * field1DoubledQuote.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1DoubledQuote() throws Throwable
+    {
+        final byte[] csvData = "\"field\"\"1\",field2".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                false
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat();
+        final byte[][] result = csv.decodeCsv(csvData, csvData.length, format);
+
+        Assert.assertEquals("extract field 0", "field\"1", new String(result[0]));
+    }
+
+    /**
+     * <p>
+     * field1EscapedDelimiter.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1EscapedDelimiter() throws Throwable
+    {
+        final byte[] csvData = "field\\,1,field2".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                true
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat().withEscape('\\');
+        final byte[][] result = csv.decodeCsv(csvData, csvData.length, format);
+
+        Assert.assertEquals("extract field 0", "field,1", new String(result[0]));
+        Assert.assertEquals("extract field 1", "field2", new String(result[1]));
+    }
+
+    /**
+     * <p>
+     * field1NullString.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1NullString() throws Throwable
+    {
+        final byte[] csvData = "N/A,field2".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                true
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat().withNullString("n/a");
+        final byte[][] result = csv.decodeCsv(csvData, csvData.length, format);
+
+        Assert.assertNull("extract field 0", result[0]);
+        Assert.assertEquals("extract field 1", "field2", new String(result[1]));
+    }
+
     /**
      * <p>
      * field1TrimNeeded.
@@ -371,6 +459,68 @@ public class CsvTest
         Assert.assertEquals("extract field 0", " \tfield1\t , ", new String(result[0]));
     }
 
+    /**
+     * <p>
+     * field1WithMalformedFieldAfterIt.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1WithMalformedFieldAfterIt() throws Throwable
+    {
+        final byte[] csvData = "field1,field2,\"unterminated".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                false
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat();
+        try
+        {
+            csv.decodeCsv(csvData, csvData.length, format);
+            Assert.fail("Expected an IOException");
+
+        } catch (final IOException e)
+        {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("EOF reached before encapsulated token finished"));
+        }
+    }
+
+    /**
+     * <p>
+     * field1WithMalformedFieldAfterItInFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1WithMalformedFieldAfterItInFile() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("a,1");
+        in.add("b,\"2");
+        in.add("c,3");
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+        try
+        {
+            Funnel.sort(Helper.config(), file.getAbsolutePath()
+                    + " -o " + output.getAbsolutePath()
+                    + " --csv() --col(string -f1 -n s)");
+            Assert.fail("Expected an IOException");
+
+        } catch (final IOException e)
+        {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("EOF reached before encapsulated token finished"));
+        }
+        Assert.assertTrue(file.delete());
+        output.delete();
+    }
+
     /**
      * <p>
      * field1WithQuotedComma.
@@ -395,6 +545,28 @@ public class CsvTest
         Assert.assertEquals("extract field 0", "field1,", new String(result[0]));
     }
 
+    /**
+     * <p>
+     * field1WithUnwantedFieldsAfterIt.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void field1WithUnwantedFieldsAfterIt() throws Throwable
+    {
+        final byte[] csvData = "field1,field2,\"field3\"".getBytes();
+        final CsvProvider csv = new CsvProvider(new boolean[] {
+                true,
+                false
+        });
+        final CSVFormat format = CSVFormat.Predefined.Default.getFormat();
+        final byte[][] result = csv.decodeCsv(csvData, csvData.length, format);
+
+        Assert.assertEquals("extract field 0", "field1", new String(result[0]));
+        Assert.assertNull("extract field 1", result[1]);
+    }
+
     /**
      * <p>
      * field2.
@@ -0,0 +1,112 @@
+package com.obdobion.funnel;
+
+import java.util.Calendar;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.funnel.columns.FormatPattern;
+
+/**
+ * <p>
+ * FormatPatternTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class FormatPatternTest
+{
+    private void assertSame(final String format, final Object value)
+    {
+        final StringBuilder out = new StringBuilder();
+        FormatPattern.compile(format).format(value, out);
+        Assert.assertEquals(format + " " + value, String.format(format, value), out.toString());
+    }
+
+    /**
+     * <p>
+     * floats.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void floats() throws Throwable
+    {
+        final String[] formats = { "%.2f", "%5.0f", "%03.0f", "%08.3f", "%-8.1f", "%f", "$%.2f each" };
+        final double[] values = { -0.001, -0.0, 0.0, 0.125, 1.005, 2.5, -2.5, -7.45, 123456.789, 1e15, Double.NaN };
+        for (final String format : formats)
+            for (final double value : values)
+                assertSame(format, value);
+
+        final Random random = new Random(48);
+        for (int r = 0; r < 20000; r++)
+        {
+            final double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+            assertSame(formats[r % formats.length], value);
+        }
+    }
+
+    /**
+     * <p>
+     * integers.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void integers() throws Throwable
+    {
+        final String[] formats = { "%d", "%5d", "%05d", "%-5d|", "(%d)", "%1d" };
+        final long[] values = { 0, 7, -7, 42, -42, 123456, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (final String format : formats)
+            for (final long value : values)
+                assertSame(format, value);
+    }
+
+    /**
+     * <p>
+     * leftToFormatter.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void leftToFormatter() throws Throwable
+    {
+        final Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(1462838400000L);
+        assertSame("%1$tm/%<td/%<tY", date);
+        assertSame("%,d", 1234567L);
+        assertSame("%x", 255L);
+        assertSame("%.3s", "abcdef");
+        assertSame("%5.1f%%", 12.34);
+        try
+        {
+            FormatPattern.compile("%d").format(1.5, new StringBuilder());
+            Assert.fail("expected an exception");
+        } catch (final java.util.IllegalFormatConversionException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * strings.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void strings() throws Throwable
+    {
+        final String[] formats = { "%s", "%8s", "%-8s|", "[%s]" };
+        final Object[] values = { "abc", "", 12L, 1.5, Boolean.TRUE };
+        for (final String format : formats)
+            for (final Object value : values)
+                assertSame(format, value);
+    }
+}
@@ -0,0 +1,211 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * FullRecordTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class FullRecordTest
+{
+    /**
+     * <p>
+     * fixedShortRecordsAutomatically.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedShortRecordsAutomatically() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add("r" + ((r * 7919) % 5000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 5000; r++)
+            out.append("r" + (r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 7);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7 --power 4 --nocacheinput");
+
+        Assert.assertTrue("full record", context.isFullRecordSort());
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedShortRecordsWithLimitOff.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedShortRecordsWithLimitOff() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add("r" + ((r * 7919) % 5000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 5000; r++)
+            out.append("r" + (r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 7);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7 --fullRecordLimit 0 --power 4 --nocacheinput");
+
+        Assert.assertFalse("full record", context.isFullRecordSort());
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedWithinRaisedLimit.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedWithinRaisedLimit() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 500; r++)
+            in.add(longRow((r * 7919) % 500 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 500; r++)
+            out.append(longRow(r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 80);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 80 --fullRecordLimit 80 --power 4 --nocacheinput");
+
+        Assert.assertTrue("full record", context.isFullRecordSort());
+        Assert.assertEquals("records", 500L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableNotByDefault.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableNotByDefault() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("line 2");
+        in.add("line 1");
+        final List<String> out = new ArrayList<>();
+        out.add("line 1");
+        out.add("line 2");
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath());
+
+        Assert.assertFalse("full record", context.isFullRecordSort());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableOnDisk.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableOnDisk() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 3000; r++)
+            in.add(varyingRow((r * 7919) % 3000 + 1000));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 3000; r++)
+            out.add(varyingRow(r + 1000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc)"
+                + " --fullRecord --power 4 --diskWork --nocacheinput");
+
+        Assert.assertTrue("full record", context.isFullRecordSort());
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String longRow(final int value)
+    {
+        final StringBuilder sb = new StringBuilder("r").append(value);
+        while (sb.length() < 80)
+            sb.append('.');
+        return sb.toString();
+    }
+
+    private String varyingRow(final int value)
+    {
+        return "row " + value + " of varying length" + (value % 2 == 0
+                ? ""
+                : " and then some");
+    }
+}
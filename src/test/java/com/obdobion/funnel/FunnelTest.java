@@ -93,6 +93,44 @@ public class FunnelTest
         Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
     }
 
+    /**
+     * <p>
+     * copyOriginalStreamed.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void copyOriginalStreamed() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+        {
+            in.add("row " + (r + 1000));
+        }
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 5000; r += 2)
+        {
+            out.add(in.get(r));
+        }
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+        final FunnelContext context = Funnel.sort(Helper.config(),
+                file.getAbsolutePath() + " -o " + output.getAbsolutePath() + " --power 2 -c original"
+                        + " --col(-nc Integer -o4 -l4) --where 'c % 2 = 0'");
+
+        Assert.assertTrue("streamed", context.isStreamingCopy());
+        Assert.assertEquals("records", 5000L, context.getRecordCount());
+        Assert.assertEquals("records", 2500L, context.getWriteCount());
+        Helper.compare(output, out);
+        Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+        Assert.assertTrue("delete " + output.getAbsolutePath(), output.delete());
+    }
+
     /**
      * <p>
      * copyOriginalVar1000.
@@ -227,6 +265,43 @@ public class FunnelTest
         Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
     }
 
+    /**
+     * <p>
+     * copyReverseStreamed.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void copyReverseStreamed() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 50000; r++)
+        {
+            in.add("row " + (r + 100000));
+        }
+        final List<String> out = new ArrayList<>();
+        for (int r = 39999; r >= 0; r--)
+        {
+            out.add(in.get(r));
+        }
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+        final FunnelContext context = Funnel.sort(Helper.config(),
+                file.getAbsolutePath() + " -o " + output.getAbsolutePath() + " -c reverse --nocacheinput"
+                        + " --stopWhen 'recordNumber = 40001'");
+
+        Assert.assertTrue("streamed", context.isStreamingCopy());
+        Assert.assertEquals("records", 40000L, context.getWriteCount());
+        Helper.compare(output, out);
+        Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+        Assert.assertTrue("delete " + output.getAbsolutePath(), output.delete());
+    }
+
     /**
      * <p>
      * copyReverseVar.
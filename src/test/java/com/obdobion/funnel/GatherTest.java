@@ -0,0 +1,131 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * GatherTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class GatherTest
+{
+    /**
+     * <p>
+     * duplicatesAcrossWindows.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void duplicatesAcrossWindows() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add("key" + (r % 7) + " row " + (1000 + r));
+        final List<String> out = new ArrayList<>();
+        for (int k = 0; k < 7; k++)
+            out.add("key" + k + " row " + (1000 + k));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(string -o0 -l4 -n key) --orderBy(key asc) --dup firstonly"
+                + " --nocacheinput --gatherWindow 10");
+
+        Assert.assertEquals("records", 1000L, context.getRecordCount());
+        Assert.assertEquals("records", 7L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedPartialWindow.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedPartialWindow() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add("r" + ((r * 7919) % 5000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 5000; r++)
+            out.append("r" + (r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 7);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7 --nocacheinput --gatherWindow 300");
+
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableThreeFilesOneOpen.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableThreeFilesOneOpen() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<File> files = new ArrayList<>();
+        for (int f = 0; f < 3; f++)
+        {
+            final List<String> in = new ArrayList<>();
+            for (int r = 0; r < 20000; r++)
+                in.add("r" + (100000 + ((r * 7919) % 20000) * 3 + f) + " padding the record");
+            files.add(Helper.createUnsortedFile(testName, in));
+        }
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 60000; r++)
+            out.add("r" + (100000 + r) + " padding the record");
+
+        final FunnelContext context = Funnel.sort(Helper.config(), files.get(0).getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --nocacheinput --maxOpenFiles 1 --gatherWindow 4096");
+
+        Assert.assertEquals("records", 60000L, context.getRecordCount());
+        Assert.assertEquals("records", 60000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        for (final File file : files)
+            Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
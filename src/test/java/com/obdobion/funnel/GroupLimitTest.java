@@ -0,0 +1,163 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * GroupLimitTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class GroupLimitTest
+{
+    static final String Keys = " --col(String -o0 -l3 -n cust)(Integer -o4 -l4 -n amount)"
+            + " --orderby(cust asc)(amount desc)";
+
+    /**
+     * <p>
+     * duplicatesFirstOnly.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void duplicatesFirstOnly() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        /*
+         * Every row is in the input twice, the duplicates are not counted.
+         */
+        final List<String> in = new ArrayList<>();
+        in.addAll(input());
+        in.addAll(input());
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Keys + " --groupLimit 3 --dup firstonly");
+
+        Assert.assertEquals("records", 15L, context.getWriteCount());
+        Helper.compare(output, expected(3));
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private List<String> expected(final int limit)
+    {
+        final List<String> out = new ArrayList<>();
+        for (int c = 0; c < 5; c++)
+            for (int a = 999; a > 999 - limit; a--)
+                out.add(row(c, a));
+        return out;
+    }
+
+    /**
+     * <p>
+     * groupKeysMoreThanOrderBy.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void groupKeysMoreThanOrderBy() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        try
+        {
+            Funnel.sort(Helper.config(), file.getAbsolutePath() + Keys + " --groupLimit 2 --groupKeys 3");
+            Assert.fail("Exception expected");
+        } catch (final ParseException e)
+        {
+            Assert.assertEquals("--groupKeys can not be more than the number of --orderBy keys", e.getMessage());
+        }
+        Assert.assertTrue(file.delete());
+    }
+
+    private List<String> input()
+    {
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add(row(r % 5, (r / 5 * 7919) % 1000));
+        return in;
+    }
+
+    /**
+     * <p>
+     * moreGroupsThanMemory.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void moreGroupsThanMemory() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Keys + " --groupLimit 2 --maxGroups 2 --power 3 --diskWork");
+
+        Assert.assertEquals("records", 10L, context.getWriteCount());
+        Helper.compare(output, expected(2));
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String row(final int customer, final int amount)
+    {
+        return "c" + customer + (customer % 2 == 0
+                ? "x"
+                : "y") + " " + (amount + 1000) + " amount";
+    }
+
+    /**
+     * <p>
+     * topOfEachGroup.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void topOfEachGroup() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Keys + " --groupLimit 4 --power 4");
+
+        Assert.assertEquals("records", 20L, context.getWriteCount());
+        Helper.compare(output, expected(4));
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
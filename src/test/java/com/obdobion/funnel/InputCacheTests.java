@@ -7,6 +7,8 @@ import java.io.FileReader;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.StringBufferInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -14,6 +16,7 @@ import org.junit.Test;
 import com.obdobion.Helper;
 import com.obdobion.funnel.parameters.FunnelContext;
 import com.obdobion.funnel.provider.AbstractInputCache;
+import com.obdobion.funnel.provider.VariableLengthInputCache;
 
 /**
  * <p>
@@ -183,6 +186,60 @@ public class InputCacheTests
         Assert.assertTrue(file.delete());
     }
 
+    /**
+     * <p>
+     * mappedFileByArrayAndByte.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void mappedFileByArrayAndByte() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final int minRow = 100000;
+        final int maxRows = 104106;
+
+        final List<String> in = new ArrayList<>();
+        for (long num = minRow; num < maxRows; num++)
+            in.add("" + num);
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File out = Helper.outFileWhenInIsSysin();
+        try (final PrintStream outputStream = new PrintStream(new FileOutputStream(out)))
+        {
+            final FunnelContext context = createDummyContext(new StringBufferInputStream(""), outputStream);
+            final VariableLengthInputCache cache = new VariableLengthInputCache(context, file);
+            final int rowSize = 6 + System.getProperty("line.separator").length();
+            Assert.assertEquals("length", file.length(), cache.length());
+
+            final byte[] testBytes = new byte[6];
+            for (long num = maxRows - 1; num >= minRow; num--)
+            {
+                cache.read(0, testBytes, (num - minRow) * rowSize, 6);
+                Assert.assertEquals("" + num, new String(testBytes));
+            }
+            cache.read(0, testBytes, 0, 1);
+            for (long num = minRow; num < maxRows; num++)
+            {
+                if (num != minRow)
+                    for (int b = 0; b < rowSize - 6; b++)
+                        cache.readNextByte();
+                for (int b = num == minRow
+                        ? 1
+                        : 0; b < 6; b++)
+                    testBytes[b] = cache.readNextByte();
+                Assert.assertEquals("" + num, new String(testBytes));
+            }
+            Assert.assertTrue("only the line separator is left", cache.position() == cache.length()
+                    - (rowSize - 6));
+            cache.close();
+        }
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(out.delete());
+    }
+
     /**
      * <p>
      * sortWith2Buffers.
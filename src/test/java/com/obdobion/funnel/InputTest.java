@@ -1,5 +1,6 @@
 package com.obdobion.funnel;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
@@ -474,6 +475,217 @@ public class InputTest
         Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
     }
 
+    /**
+     * <p>
+     * sysinSpillFixed.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sysinSpillFixed() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final StringBuilder in = new StringBuilder();
+        for (int r = 0; r < 200000; r++)
+            in.append("r" + ((r * 7919) % 200000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 200000; r++)
+            out.append("r" + (r + 100000));
+        System.setIn(new ByteArrayInputStream(in.toString().getBytes()));
+
+        final File file = Helper.outFileWhenInIsSysin();
+
+        final FunnelContext context = Funnel.sort(Helper.config(), "-o" + file.getAbsolutePath()
+                + " --fixedIn 7 --sysinSpill 0");
+
+        Assert.assertTrue("spilled", context.sysinSpool.isSpilled());
+        Assert.assertEquals("records", 200000L, context.getRecordCount());
+        Assert.assertEquals("records", 200000L, context.getWriteCount());
+        Helper.compareFixed(file, out.toString());
+        Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+    }
+
+    /**
+     * <p>
+     * sysinSpillInMemory.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sysinSpillInMemory() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> out = new ArrayList<>();
+        out.add("line 1");
+        out.add("line 2");
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("line 2").append(System.getProperty("line.separator"));
+        sb.append("line 1").append(System.getProperty("line.separator"));
+        System.setIn(new ByteArrayInputStream(sb.toString().getBytes()));
+
+        final File file = Helper.outFileWhenInIsSysin();
+
+        final FunnelContext context = Funnel.sort(Helper.config(), "-o" + file.getAbsolutePath()
+                + " --sysinSpill 16");
+
+        Assert.assertFalse("spilled", context.sysinSpool.isSpilled());
+        Assert.assertEquals("records", 2L, context.getRecordCount());
+        Helper.compare(file, out);
+        Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+    }
+
+    /**
+     * <p>
+     * sysinSpillRequiresSysin.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sysinSpillRequiresSysin() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("line 1");
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        try
+        {
+            Funnel.sort(Helper.config(), file.getAbsolutePath() + " -r --sysinSpill 1");
+            Assert.fail("Expected error");
+        } catch (final ParseException e)
+        {
+            Assert.assertEquals("error msg", "--sysinSpill requires redirected or piped input, not --inputFile",
+                    e.getMessage());
+        } finally
+        {
+            Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+        }
+    }
+
+    /**
+     * <p>
+     * sysinSpillVariable.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sysinSpillVariable() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        /*
+         * About 3 MB, so that part of it is in memory when it spills.
+         */
+        final StringBuilder in = new StringBuilder();
+        for (int r = 0; r < 100000; r++)
+            in.append("row " + ((r * 7919) % 100000 + 100000) + " padding the record")
+                    .append(System.getProperty("line.separator"));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 100000; r++)
+            out.add("row " + (r + 100000) + " padding the record");
+        System.setIn(new ByteArrayInputStream(in.toString().getBytes()));
+
+        final File file = Helper.outFileWhenInIsSysin();
+
+        final FunnelContext context = Funnel.sort(Helper.config(), "-o" + file.getAbsolutePath()
+                + " --sysinSpill 1 --ingestThreads 2");
+
+        Assert.assertTrue("spilled", context.sysinSpool.isSpilled());
+        Assert.assertEquals("records", 100000L, context.getRecordCount());
+        Assert.assertEquals("records", 100000L, context.getWriteCount());
+        Helper.compare(file, out);
+        Assert.assertTrue("delete " + file.getAbsolutePath(), file.delete());
+    }
+
+    /**
+     * <p>
+     * variableDelimiterSplitAcrossBuffers.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableDelimiterSplitAcrossBuffers() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final StringBuilder padding = new StringBuilder();
+        for (int p = 0; p < 92; p++)
+            padding.append('x');
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add(((r * 7919) % 1000 + 1000) + padding.toString());
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add((r + 1000) + padding.toString());
+
+        final File file = Helper.createUnsortedFile(testName, Helper.DOS_EOL, in, false);
+        final File output = Helper.outFile(testName);
+
+        for (final String readerOption : new String[] { "", " --nocache", " --mappedInput" })
+        {
+            final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                    + " -o " + output.getAbsolutePath()
+                    + " --variableIn CR LF --variableOut LF"
+                    + readerOption);
+
+            Assert.assertEquals("records" + readerOption, 1000L, context.getRecordCount());
+            Assert.assertEquals("records" + readerOption, 1000L, context.getWriteCount());
+            Helper.compare(output, out);
+        }
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableShortRecordAfterLongRecord.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableShortRecordAfterLongRecord() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("b    99");
+        in.add("a");
+        in.add("c    10");
+
+        final List<String> out = new ArrayList<>();
+        out.add("a");
+        out.add("c    10");
+        out.add("b    99");
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -r --col(-n amt int -o5 -l2) --orderby(amt)");
+
+        Assert.assertEquals("records", 3L, context.getRecordCount());
+        Assert.assertEquals("records", 3L, context.getWriteCount());
+        Helper.compare(file, out);
+        Assert.assertTrue(file.delete());
+    }
+
     /**
      * <p>
      * variableSysinSysout.
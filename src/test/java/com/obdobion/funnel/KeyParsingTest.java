@@ -0,0 +1,195 @@
+package com.obdobion.funnel;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.funnel.orderby.CompiledDateFormat;
+import com.obdobion.funnel.orderby.DateKey;
+import com.obdobion.funnel.orderby.DisplayFloatKey;
+import com.obdobion.funnel.orderby.DisplayIntKey;
+
+/**
+ * <p>
+ * KeyParsingTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class KeyParsingTest
+{
+    static final String[] Patterns = { "yyyyMMdd", "yyyy-MM-dd", "MM/dd/yyyy HH:mm:ss", "yyyyMMddHHmmssSSS" };
+
+    private void assertSameDates(final String zone) throws Throwable
+    {
+        final TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        try
+        {
+            final Random random = new Random(46);
+            for (final String pattern : Patterns)
+            {
+                final CompiledDateFormat compiled = CompiledDateFormat.compile(pattern);
+                Assert.assertNotNull(pattern, compiled);
+                final SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+                final DateKey key = dateKey(pattern);
+                int compiledCount = 0;
+                for (int r = 0; r < 2000; r++)
+                {
+                    final String text = sdf.format(new Date(random.nextLong()
+                            % (200L * 365 * 24 * 60 * 60 * 1000)
+                            + 30L * 365 * 24 * 60 * 60 * 1000));
+                    if (compiled.parse(text.getBytes(), 0, text.length()) != CompiledDateFormat.NotParsed)
+                        compiledCount++;
+                    key.parseObjectFromRawData(text.getBytes());
+                    Assert.assertEquals(pattern + " " + text, sdf.parse(text).getTime(),
+                            ((Calendar) key.getContents()).getTimeInMillis());
+                }
+                Assert.assertTrue(pattern + " compiled " + compiledCount, compiledCount > 1900);
+            }
+        } finally
+        {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    private DateKey dateKey(final String pattern)
+    {
+        final DateKey key = new DateKey();
+        key.offset = 0;
+        key.length = 30;
+        key.parseFormat = pattern;
+        return key;
+    }
+
+    /**
+     * <p>
+     * datesInDaylightSavingZone.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void datesInDaylightSavingZone() throws Throwable
+    {
+        assertSameDates("America/New_York");
+    }
+
+    /**
+     * <p>
+     * datesInUtc.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void datesInUtc() throws Throwable
+    {
+        assertSameDates("UTC");
+    }
+
+    /**
+     * <p>
+     * datesLeftToSimpleDateFormat.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void datesLeftToSimpleDateFormat() throws Throwable
+    {
+        Assert.assertNull(CompiledDateFormat.compile("yyMMdd"));
+        Assert.assertNull(CompiledDateFormat.compile("dd MMM yyyy"));
+        Assert.assertNull(CompiledDateFormat.compile("yyyy'T'MM"));
+
+        final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        final DateKey key = dateKey("yyyy-MM-dd");
+        for (final String text : new String[] { "2015-02-29", "2016-13-01", "2016-5-1", "1500-01-01", " 2016-05-10 " })
+        {
+            key.parseObjectFromRawData(text.getBytes());
+            Assert.assertEquals(text, sdf.parse(text.trim()).getTime(), (long) key.getContentsAsDouble());
+        }
+        key.parseObjectFromRawData("   ".getBytes());
+        Assert.assertEquals(0L, ((Calendar) key.getContents()).getTimeInMillis());
+    }
+
+    /**
+     * <p>
+     * floats.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void floats() throws Throwable
+    {
+        final DisplayFloatKey key = new DisplayFloatKey();
+        key.offset = 0;
+        key.length = 30;
+
+        final Random random = new Random(46);
+        for (int r = 0; r < 20000; r++)
+        {
+            final String text;
+            switch (r % 4)
+            {
+                case 0:
+                    text = Double.toString(random.nextDouble() * 1000000);
+                    break;
+                case 1:
+                    text = String.format("%.2f", (random.nextInt(2000000) - 1000000) / 100.0);
+                    break;
+                case 2:
+                    text = Long.toString(random.nextLong() >>> random.nextInt(64)) + "." + random.nextInt(1000);
+                    break;
+                default:
+                    text = "0." + Long.toString(random.nextLong() & 0xfffffffffffffL);
+                    break;
+            }
+            key.parseObjectFromRawData(text.getBytes());
+            Assert.assertEquals(text, Double.parseDouble(text), key.getContentsAsDouble(), 0);
+            Assert.assertEquals(text, Double.valueOf(Double.parseDouble(text)), key.getContents());
+        }
+
+        key.parseObjectFromRawData(" -1,234.5 ".getBytes());
+        Assert.assertEquals(-1234.5, key.getContentsAsDouble(), 0);
+        key.parseObjectFromRawData("12345678901234567890.5".getBytes());
+        Assert.assertEquals(12345678901234567890.5, key.getContentsAsDouble(), 0);
+    }
+
+    /**
+     * <p>
+     * integers.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void integers() throws Throwable
+    {
+        final DisplayIntKey key = new DisplayIntKey();
+        key.offset = 0;
+        key.length = 20;
+
+        final Random random = new Random(46);
+        for (int r = 0; r < 20000; r++)
+        {
+            final long expected = random.nextLong() >> random.nextInt(64);
+            key.parseObjectFromRawData(Long.toString(expected).getBytes());
+            Assert.assertEquals(Long.valueOf(expected), key.getContents());
+        }
+
+        key.parseObjectFromRawData(" 1,234-".getBytes());
+        Assert.assertEquals(Long.valueOf(-1234), key.getContents());
+        key.parseObjectFromRawData("12.9".getBytes());
+        Assert.assertEquals(Long.valueOf(12), key.getContents());
+        key.parseObjectFromRawData("abc".getBytes());
+        Assert.assertEquals(Long.valueOf(0), key.getContents());
+    }
+}
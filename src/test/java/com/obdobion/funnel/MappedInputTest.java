@@ -0,0 +1,327 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+import com.obdobion.funnel.provider.MappedFile;
+
+/**
+ * <p>
+ * MappedInputTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class MappedInputTest
+{
+    /**
+     * <p>
+     * dosLineEndings.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void dosLineEndings()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("line 3");
+        in.add("line 1");
+        in.add("line 2");
+        final List<String> out = new ArrayList<>();
+        out.add("line 1");
+        out.add("line 2");
+        out.add("line 3");
+
+        final File file = Helper.createUnsortedFile(testName, Helper.DOS_EOL, in, false);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --mappedInput --variableIn CR LF --variableOut LF");
+
+        Assert.assertEquals("records", 3L, context.getRecordCount());
+        Assert.assertEquals("records", 3L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedMultiplePasses.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedMultiplePasses()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add("row " + (1099 - r));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 100; r++)
+            out.append("row " + (r + 1000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 8);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --mappedInput --fixedIn 8 --power 3");
+
+        Assert.assertEquals("records", 100L, context.getRecordCount());
+        Assert.assertEquals("records", 100L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * More input files than --maxOpenFiles. A mapped file must not hold its
+     * file open or a job with many input files runs out of file descriptors.
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void manyInputFilesMapped()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<File> files = new ArrayList<>();
+        for (int f = 0; f < 40; f++)
+        {
+            final List<String> in = new ArrayList<>();
+            for (int r = 0; r < 25; r++)
+                in.add("r" + (100000 + ((r * 7) % 25) * 40 + f));
+            files.add(Helper.createUnsortedFile(testName, in));
+        }
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add("r" + (100000 + r));
+
+        final FunnelContext context = Funnel.sort(Helper.config(), files.get(0).getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --mappedInput --maxOpenFiles 4");
+
+        Assert.assertEquals("records", 1000L, context.getRecordCount());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        final File openFiles = new File("/proc/self/fd");
+        if (openFiles.isDirectory())
+        {
+            final int before = openFiles.list().length;
+            final List<MappedFile> mappedFiles = new ArrayList<>();
+            for (final File file : files)
+                mappedFiles.add(new MappedFile(file, 256));
+            Assert.assertTrue("open files", openFiles.list().length - before < files.size());
+            for (final MappedFile mappedFile : mappedFiles)
+                mappedFile.close();
+        }
+
+        for (final File file : files)
+            Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * notAllowedWithSysin.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void notAllowedWithSysin()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        try
+        {
+            Funnel.sort(Helper.config(), "--mappedInput");
+            Assert.fail("Exception expected");
+        } catch (final ParseException e)
+        {
+            Assert.assertEquals("--mappedInput requires --inputFile, redirection or piped input is not allowed",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * <p>
+     * replacedFixedFileIsNotMapped.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void replacedFixedFileIsNotMapped()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add(fixedRow((r * 7919) % 1000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 1000; r++)
+            out.append(fixedRow(r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 80);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " --replace --fixedIn 80");
+
+        Assert.assertFalse("mapped", context.inputCache.isMapped());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compareFixed(file, out.toString());
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * replacedVariableFileIsNotMapped.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void replacedVariableFileIsNotMapped()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add("row " + ((r * 7919) % 1000 + 100000));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add("row " + (r + 100000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath() + " --replace");
+
+        Assert.assertFalse("mapped", context.inputCache.isMapped());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(file, out);
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * twoInputFilesMerged.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void twoInputFilesMerged()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<String> in1 = new ArrayList<>();
+        in1.add("line 3");
+        in1.add("line 1");
+
+        final List<String> in2 = new ArrayList<>();
+        in2.add("line 4");
+        in2.add("line 2");
+
+        final List<String> expectedOutput = new ArrayList<>();
+        expectedOutput.add("line 1");
+        expectedOutput.add("line 2");
+        expectedOutput.add("line 3");
+        expectedOutput.add("line 4");
+
+        final File file = Helper.createUnsortedFile(testName, in1);
+        final File file2 = Helper.createUnsortedFile(testName, in2);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " --mappedInput"
+                + " -o " + output.getAbsolutePath()
+                + " --row 4 --variableOut LF");
+
+        Assert.assertEquals("records", 4L, context.getRecordCount());
+        Assert.assertEquals("records", 4L, context.getWriteCount());
+        Helper.compare(output, expectedOutput);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableMultiplePasses.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableMultiplePasses()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add("row " + ((r * 7919) % 1000 + 1000));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add("row " + (r + 1000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -r --mappedInput --power 4"
+                + " --col(-nc Integer -o4 -l4)"
+                + " --orderby(c asc)");
+
+        Assert.assertEquals("records", 1000L, context.getRecordCount());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(file, out);
+
+        Assert.assertTrue(file.delete());
+    }
+
+    private String fixedRow(final int value)
+    {
+        final StringBuilder sb = new StringBuilder("row ").append(value);
+        while (sb.length() < 80)
+            sb.append('.');
+        return sb.toString();
+    }
+}
@@ -20,22 +20,38 @@ import org.junit.runners.Suite.SuiteClasses;
         // BigTest.class,
         BinaryTest.class,
         ColumnTests.class,
+        ColumnUsageTest.class,
         CommandLineOptionsTest.class,
         CompareTests.class,
+        CompiledPredicateTest.class,
         CsvTest.class,
         DuplicateTest.class,
         ExampleTest.class,
         FormatOutputTest.class,
+        FormatPatternTest.class,
         FormatTests.class,
+        FullRecordTest.class,
         FunnelTest.class,
+        GatherTest.class,
+        GroupLimitTest.class,
         HeaderTests.class,
         HexDumpTest.class,
         InputCacheTests.class,
         InputTest.class,
+        MappedInputTest.class,
         MultiFileTest.class,
+        NaturalRunTest.class,
+        ParallelIngestTest.class,
+        ParallelPublishTest.class,
+        PassthroughTest.class,
+        ProxyBatchTest.class,
+        RawFilterTest.class,
+        ReadAheadTest.class,
         RecordNumberTest.class,
+        ResumeTest.class,
         StopWhenTest.class,
         StringTest.class,
+        TopRowsTest.class,
         WhereTest.class
 })
 public class MasterSuite
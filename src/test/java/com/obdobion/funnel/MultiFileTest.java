@@ -9,6 +9,8 @@ import org.junit.Test;
 
 import com.obdobion.Helper;
 import com.obdobion.funnel.parameters.FunnelContext;
+import com.obdobion.funnel.provider.AbstractInputCache;
+import com.obdobion.funnel.provider.VariableLengthInputCache;
 
 /**
  * <p>
@@ -21,6 +23,210 @@ import com.obdobion.funnel.parameters.FunnelContext;
 public class MultiFileTest
 {
 
+    /**
+     * More input files than --maxOpenFiles, all of them cached. A kept cache
+     * must not hold its file open or a job with many input files runs out of
+     * file descriptors.
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void manyInputFilesCached()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<File> files = new ArrayList<>();
+        for (int f = 0; f < 40; f++)
+        {
+            final List<String> in = new ArrayList<>();
+            for (int r = 0; r < 25; r++)
+                in.add("r" + (100000 + ((r * 7) % 25) * 40 + f));
+            files.add(Helper.createUnsortedFile(testName, in));
+        }
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add("r" + (100000 + r));
+
+        final FunnelContext context = Funnel.sort(Helper.config(), files.get(0).getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --maxOpenFiles 4");
+
+        Assert.assertTrue("cached", context.isCacheInput());
+        Assert.assertEquals("records", 1000L, context.getRecordCount());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        final File openFiles = new File("/proc/self/fd");
+        if (openFiles.isDirectory())
+        {
+            final int before = openFiles.list().length;
+            final List<AbstractInputCache> caches = new ArrayList<>();
+            for (final File file : files)
+                caches.add(new VariableLengthInputCache(context, file));
+            Assert.assertTrue("open files", openFiles.list().length - before < files.size());
+            for (final AbstractInputCache cache : caches)
+                cache.close();
+        }
+
+        for (final File file : files)
+            Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * threeFixedInputFilesCached.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void threeFixedInputFilesCached()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final File file = Helper.createFixedUnsortedFile(testName, threeFilesInput(0), 7);
+        final File file2 = Helper.createFixedUnsortedFile(testName, threeFilesInput(1), 7);
+        final File file3 = Helper.createFixedUnsortedFile(testName, threeFilesInput(2), 7);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7");
+
+        Assert.assertEquals("records", 3000L, context.getRecordCount());
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        final StringBuilder expectedOutput = new StringBuilder();
+        for (final String line : threeFilesOutput())
+            expectedOutput.append(line);
+        Helper.compareFixed(output, expectedOutput.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(file3.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * threeInputFilesCached.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void threeInputFilesCached()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final File file = Helper.createUnsortedFile(testName, threeFilesInput(0));
+        final File file2 = Helper.createUnsortedFile(testName, threeFilesInput(1));
+        final File file3 = Helper.createUnsortedFile(testName, threeFilesInput(2));
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath());
+
+        Assert.assertEquals("records", 3000L, context.getRecordCount());
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        Helper.compare(output, threeFilesOutput());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(file3.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * Each file is about 8 KB, a limit of 0 MB rereads all of them.
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void threeInputFilesOverCacheLimit()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final File file = Helper.createUnsortedFile(testName, threeFilesInput(0));
+        final File file2 = Helper.createUnsortedFile(testName, threeFilesInput(1));
+        final File file3 = Helper.createUnsortedFile(testName, threeFilesInput(2));
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --cacheInputLimit 0");
+
+        Assert.assertEquals("records", 3000L, context.getRecordCount());
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        Helper.compare(output, threeFilesOutput());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(file3.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * threeInputFilesWithOneOpenFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void threeInputFilesWithOneOpenFile()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final File file = Helper.createUnsortedFile(testName, threeFilesInput(0));
+        final File file2 = Helper.createUnsortedFile(testName, threeFilesInput(1));
+        final File file3 = Helper.createUnsortedFile(testName, threeFilesInput(2));
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --nocacheinput --maxOpenFiles 1");
+
+        Assert.assertEquals("records", 3000L, context.getRecordCount());
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        Helper.compare(output, threeFilesOutput());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(file3.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * The records of the three files interleave once they are sorted.
+     */
+    private List<String> threeFilesInput(final int fileNumber)
+    {
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add("r" + (100000 + ((r * 7919) % 1000) * 3 + fileNumber));
+        return in;
+    }
+
+    private List<String> threeFilesOutput()
+    {
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 3000; r++)
+            out.add("r" + (100000 + r));
+        return out;
+    }
+
     /**
      * <p>
      * twoInputFilesMerged.
@@ -0,0 +1,298 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * NaturalRunTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class NaturalRunTest
+{
+    /**
+     * <p>
+     * checkSortedInOrder.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void checkSortedInOrder() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add(row(r / 2));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --checkSorted");
+
+        Assert.assertEquals("unsorted record", 0L, context.getUnsortedRecordNumber());
+        Assert.assertEquals("records", 0L, context.getWriteCount());
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * checkSortedLeavesOutputFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void checkSortedLeavesOutputFile() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add(row(100 - r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+        final byte[] existing = "previous output".getBytes();
+        Files.write(output.toPath(), existing);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --checkSorted");
+
+        Assert.assertEquals("unsorted record", 2L, context.getUnsortedRecordNumber());
+        Assert.assertTrue("output", Arrays.equals(existing, Files.readAllBytes(output.toPath())));
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * checkSortedLeavesReplacedInput.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void checkSortedLeavesReplacedInput() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add(row(100 - r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final byte[] original = Files.readAllBytes(file.toPath());
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " --replace --col(-nc Integer -o4 -l4) --orderby(c asc) --checkSorted");
+
+        Assert.assertEquals("unsorted record", 2L, context.getUnsortedRecordNumber());
+        Assert.assertTrue("input", Arrays.equals(original, Files.readAllBytes(file.toPath())));
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * checkSortedReportsFirstViolation.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void checkSortedReportsFirstViolation() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add(row(r == 60 || r == 80
+                    ? 0
+                    : r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --checkSorted");
+
+        Assert.assertEquals("unsorted record", 61L, context.getUnsortedRecordNumber());
+        Assert.assertEquals("records", 0L, context.getWriteCount());
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * duplicatesLastOnly.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void duplicatesLastOnly() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 2000; r++)
+            in.add(row(r / 2) + (r % 2 == 0
+                    ? " first"
+                    : " last"));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add(row(r) + " last");
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --dup lastonly --power 4");
+
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * nearlySorted.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void nearlySorted() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        /*
+         * Long runs that overlap each other, with a stretch of shuffled rows.
+         */
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1500; r++)
+            in.add(row(2 * r));
+        for (int r = 0; r < 1000; r++)
+            in.add(row(2 * ((r * 7919) % 1000) + 1));
+        for (int r = 1000; r < 2500; r++)
+            in.add(row(2 * r + 1));
+        for (int r = 1500; r < 2500; r++)
+            in.add(row(2 * r));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            out.add(row(r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --power 4");
+
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * sortedFixedInOnePass.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sortedFixedInOnePass() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 1000; r++)
+        {
+            in.add("r" + (r + 100000));
+            out.append("r" + (r + 100000));
+        }
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 7);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7 --col(-nc String -o0 -l7) --orderby(c asc)");
+
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Assert.assertTrue("comparisons", context.comparisonCounter < 3000L);
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * sortedVariableAsOneSegment.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void sortedVariableAsOneSegment() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add(row(r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --power 4");
+
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Assert.assertTrue("comparisons", context.comparisonCounter < 20000L);
+        Helper.compare(output, in);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String row(final int value)
+    {
+        return "row " + (value + 1000) + " of varying length" + (value % 3 == 0
+                ? ""
+                : " and then some");
+    }
+}
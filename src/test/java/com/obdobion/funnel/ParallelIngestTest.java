@@ -0,0 +1,185 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ParallelIngestTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ParallelIngestTest
+{
+    /**
+     * <p>
+     * csvWithHeader.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void csvWithHeader() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("letters,numbers");
+        for (int r = 0; r < 3000; r++)
+            in.add("abc," + ((r * 7919) % 3000));
+        final List<String> out = new ArrayList<>();
+        out.add("letters,numbers");
+        for (int r = 0; r < 3000; r++)
+            out.add("abc," + r);
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --csv(-h) --col(String -f1 -nletters)(Int -f2 -nnumbers)"
+                + " --orderBy(numbers) --ingestThreads 2");
+
+        Assert.assertEquals("records", 3000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * headerInWhere.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void headerInWhere() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("20160608TEST");
+        for (int r = 0; r < 3000; r++)
+            in.add((r % 3 == 0
+                    ? "PROD"
+                    : "TEST") + "20160608" + (r % 10));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -r --col(string -l4 -n TYPE)"
+                + "      (date   -l8 -n DATE -d'yyyyMMdd')"
+                + "      (int    -l1 -n SEQ)"
+                + " --headerIn"
+                + "      (date   -l8 -n RUNDATE -d'yyyyMMdd')"
+                + "      (string -l4 -n RUNTYPE)"
+                + " --headerOut()"
+                + " --where 'runtype = type'"
+                + " --ingestThreads 3");
+
+        Assert.assertEquals("records", 3000L, context.getRecordCount());
+        Assert.assertEquals("unselected", 1000L, context.getUnselectedCount());
+        Assert.assertEquals("records", 2000L, context.getWriteCount());
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * twoInputFiles.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void twoInputFiles() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<String> in1 = new ArrayList<>();
+        final List<String> in2 = new ArrayList<>();
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 2500; r++)
+        {
+            in1.add("a" + (9999 - r));
+            in2.add("b" + (9999 - r));
+        }
+        for (int r = 7500; r < 10000; r++)
+            out.add("a" + r);
+        for (int r = 7500; r < 10000; r++)
+            out.add("b" + r);
+
+        final File file = Helper.createUnsortedFile(testName, in1);
+        final File file2 = Helper.createUnsortedFile(testName, in2);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --nocacheinput --ingestThreads 4");
+
+        Assert.assertEquals("records", 5000L, context.getRecordCount());
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * whereAndStopWhen.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void whereAndStopWhen() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        final List<Integer> selected = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+        {
+            final int value = (r * 7919) % 5000 + 1000;
+            in.add("row " + value);
+            if (r < 4000 && value > 3000)
+                selected.add(value);
+        }
+        Collections.sort(selected, Collections.reverseOrder());
+        final List<String> out = new ArrayList<>();
+        for (final Integer value : selected)
+            out.add("row " + value);
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -r --col(-nc Integer -o4 -l4) --orderby(c desc)"
+                + " --where 'c > 3000' --stopWhen 'recordNumber = 4001'"
+                + " --ingestThreads 4");
+
+        Assert.assertEquals("records", 4000L, context.getRecordCount());
+        Assert.assertEquals("unselected", 4000L - selected.size(), context.getUnselectedCount());
+        Assert.assertEquals("records", selected.size(), context.getWriteCount());
+        Helper.compare(file, out);
+
+        Assert.assertTrue(file.delete());
+    }
+}
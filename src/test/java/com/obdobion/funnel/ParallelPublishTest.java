@@ -0,0 +1,149 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ParallelPublishTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ParallelPublishTest
+{
+    /**
+     * Sort the file once on the sorting thread and once with publishing
+     * threads. The outputs must be the same.
+     */
+    static void assertSameOutput(final String testName, final File file, final String args) throws Throwable
+    {
+        final File single = Helper.outFile(testName);
+        final File parallel = new File(single.getAbsolutePath() + ".parallel");
+
+        final FunnelContext context1 = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + single.getAbsolutePath()
+                + args);
+        final FunnelContext context2 = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + parallel.getAbsolutePath()
+                + args
+                + " --publishThreads 3");
+
+        Assert.assertEquals("records", context1.getWriteCount(), context2.getWriteCount());
+        Assert.assertEquals("duplicates", context1.getDuplicateCount(), context2.getDuplicateCount());
+        Assert.assertArrayEquals("output", Files.readAllBytes(single.toPath()), Files.readAllBytes(parallel
+                .toPath()));
+
+        Assert.assertTrue(single.delete());
+        Assert.assertTrue(parallel.delete());
+    }
+
+    /**
+     * <p>
+     * duplicatesAndHeader.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void duplicatesAndHeader() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("20160608TEST");
+        for (int r = 0; r < 3000; r++)
+            in.add("TEST20160608" + String.format("%03d", (r * 7919) % 1000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        assertSameOutput(testName, file, ""
+                + " --col(string -l4 -n TYPE)"
+                + "      (date   -l8 -n DATE -d'yyyyMMdd')"
+                + "      (int    -l3 -n SEQ)"
+                + " --headerIn"
+                + "      (date   -l8 -n RUNDATE -d'yyyyMMdd')"
+                + "      (string -l4 -n RUNTYPE)"
+                + " --headerOut()"
+                + " --orderBy(SEQ asc) --dup firstonly"
+                + " --formatOut(TYPE)(-eRUNTYPE -l4)(DATE)(-eRUNDATE -l8 -d'%tY%1$tm%1$td')(RUNTYPE)(SEQ)");
+
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * equationOutput.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void equationOutput() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+        {
+            in.add(String.format("%04d", (r * 7919) % 5000));
+            out.add(String.format("%04d%06d", r, r * 2));
+        }
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(int -o0 -l4 -n num)"
+                + " --orderBy(num)"
+                + " --formatOut(num)(--equ \"num * 2\" -l6 -d '%06d')"
+                + " --publishThreads 4");
+
+        Assert.assertEquals("records", 5000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedLengthGroupLimit.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedLengthGroupLimit() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 3000; r++)
+            in.add(String.format("%02d%04d", r % 40, (r * 7919) % 3000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+
+        assertSameOutput(testName, file, ""
+                + " --col(int -o0 -l2 -n grp)(int -o2 -l4 -n num)"
+                + " --orderBy(grp)(num desc) --groupLimit 5"
+                + " --fixedOut 16"
+                + " --formatOut(num)(--equ \"grp + recordnumber\" -l8 -d '%8d')(grp)");
+
+        Assert.assertTrue(file.delete());
+    }
+}
@@ -0,0 +1,192 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * PassthroughTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class PassthroughTest
+{
+    /*
+     * Longer than the records that are sorted whole, so that the original
+     * records are reread.
+     */
+    static final int RowLength = 80;
+
+    /**
+     * Runs of 100 ascending records in descending order.
+     */
+    static List<String> nearlySorted(final StringBuilder out, final int outLength)
+    {
+        final List<String> in = new ArrayList<>();
+        for (int b = 9; b >= 0; b--)
+            for (int r = 0; r < 100; r++)
+                in.add("r" + (100000 + b * 100 + r));
+        for (int r = 0; r < 1000; r++)
+        {
+            out.append("r" + (100000 + r));
+            for (int fill = 7; fill < outLength; fill++)
+                out.append(' ');
+        }
+        return in;
+    }
+
+    static void sortFixed(final String args) throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final StringBuilder out = new StringBuilder();
+        final File file = Helper.createFixedUnsortedFile(testName, nearlySorted(out, RowLength), RowLength);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn " + RowLength + " --col(-nc String -o0 -l7) --orderby(c asc)"
+                + args);
+
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Assert.assertEquals("output size", 1000L * RowLength, output.length());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    static void sortVariable(final String args) throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+        {
+            in.add("r" + (100999 - r) + (r % 2 == 0
+                    ? "   "
+                    : ""));
+            out.add("r" + (100000 + r));
+        }
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc String -o0 -l7) --orderby(c asc)"
+                + args);
+
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Assert.assertEquals("output size", 1000L * (7 + System.lineSeparator().length()), output.length());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * fixedFromCache.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedFromCache() throws Throwable
+    {
+        sortFixed("");
+    }
+
+    /**
+     * <p>
+     * fixedFromFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedFromFile() throws Throwable
+    {
+        sortFixed(" --nocacheinput");
+    }
+
+    /**
+     * <p>
+     * fixedFromMappedFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedFromMappedFile() throws Throwable
+    {
+        sortFixed(" --mappedInput");
+    }
+
+    /**
+     * The output records are longer so they are not copied as they are.
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedOutLonger() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final StringBuilder out = new StringBuilder();
+        final File file = Helper.createFixedUnsortedFile(testName, nearlySorted(out, RowLength + 2), RowLength);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn " + RowLength + " --fixedOut " + (RowLength + 2)
+                + " --col(-nc String -o0 -l7) --orderby(c asc) --nocacheinput");
+
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Assert.assertEquals("output size", 1000L * (RowLength + 2), output.length());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableFromCache.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableFromCache() throws Throwable
+    {
+        sortVariable("");
+    }
+
+    /**
+     * <p>
+     * variableFromFile.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableFromFile() throws Throwable
+    {
+        sortVariable(" --nocacheinput");
+    }
+}
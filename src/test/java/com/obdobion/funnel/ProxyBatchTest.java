@@ -0,0 +1,131 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ProxyBatchTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ProxyBatchTest
+{
+    /*
+     * More than two batches.
+     */
+    static final int Rows = ProxyBatch.DefaultCapacity * 2 + 7;
+
+    private List<String> input()
+    {
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < Rows; r++)
+            in.add(String.format("%06d", (r * 7919) % Rows));
+        return in;
+    }
+
+    private void copy(final String order, final String more) throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = input();
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --copy " + order
+                + more);
+
+        final List<String> exp = new ArrayList<>();
+        if ("original".equals(order))
+            exp.addAll(in);
+        else
+            for (int r = in.size() - 1; r >= 0; r--)
+                exp.add(in.get(r));
+        Assert.assertEquals("records", Rows, context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * copyOriginal.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void copyOriginal() throws Throwable
+    {
+        copy("original", "");
+    }
+
+    /**
+     * <p>
+     * copyOriginalParallel.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void copyOriginalParallel() throws Throwable
+    {
+        copy("original", " --ingestThreads 2");
+    }
+
+    /**
+     * <p>
+     * copyReverse.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void copyReverse() throws Throwable
+    {
+        copy("reverse", "");
+    }
+
+    /**
+     * <p>
+     * topAcrossBatches.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void topAcrossBatches() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(int -o0 -l6 -n n) --orderby(n desc) --top 3");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = Rows - 1; r >= Rows - 3; r--)
+            exp.add(String.format("%06d", r));
+        Assert.assertEquals("records", 3L, context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
@@ -0,0 +1,183 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * RawFilterTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class RawFilterTest
+{
+    static final String Columns = " --col(Integer -o0 -l6 -n n)(String -o7 -l4 -n status)"
+            + " --orderby(n asc)";
+
+    static final String[] Statuses = { "A", "AB", "B", "A  B" };
+
+    private List<String> input()
+    {
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 400; r++)
+            in.add(row(r));
+        /*
+         * Too short for the status column, a comma in the number and a
+         * number that ends early.
+         */
+        in.add("-0,450");
+        in.add("000460");
+        in.add(" 1,450 A");
+        in.add("00470.9A");
+        return in;
+    }
+
+    /**
+     * <p>
+     * integerRange.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void integerRange() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where '(n >= 100 && 200 > n)' 'n != 150'");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 100; r < 200; r++)
+            if (r != 150)
+                exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * negativeAndEmpty.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void negativeAndEmpty() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where \"n < 0 || n > 1000 || n = 460\" \"status = ''\"");
+
+        final List<String> exp = new ArrayList<>();
+        exp.add("-0,450");
+        exp.add("000460");
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String row(final int r)
+    {
+        return String.format("%06d %s", r, Statuses[r % 4]);
+    }
+
+    /**
+     * <p>
+     * stopWhen.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void stopWhen() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        /*
+         * The stopping record is not one that would be selected.
+         */
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where \"status = 'AB'\" --stopWhen 'n = 102'");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 0; r < 102; r++)
+            if (r % 4 == 1)
+                exp.add(row(r));
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * stringEquality.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void stringEquality() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final File file = Helper.createUnsortedFile(testName, input());
+        final File output = Helper.outFile(testName);
+
+        /*
+         * Trailing blanks are trimmed, embedded ones are not.
+         */
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + Columns
+                + " --where \"('A' = status)\""
+                + " --ingestThreads 3");
+
+        final List<String> exp = new ArrayList<>();
+        for (int r = 0; r < 400; r += 4)
+            exp.add(row(r));
+        exp.add("00470.9A");
+        exp.add(" 1,450 A");
+        Assert.assertEquals("records", exp.size(), context.getWriteCount());
+        Helper.compare(output, exp);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
@@ -0,0 +1,103 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ReadAheadTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ReadAheadTest
+{
+    /**
+     * <p>
+     * fixedAcrossBuffers.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void fixedAcrossBuffers() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        /*
+         * 7 byte records do not divide evenly into the read ahead buffers.
+         */
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 200000; r++)
+            in.add("r" + ((r * 7919) % 200000 + 100000));
+        final StringBuilder out = new StringBuilder();
+        for (int r = 0; r < 200000; r++)
+            out.append("r" + (r + 100000));
+
+        final File file = Helper.createFixedUnsortedFile(testName, in, 7);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --fixedIn 7 --nocacheinput --readAhead 2");
+
+        Assert.assertEquals("records", 200000L, context.getRecordCount());
+        Assert.assertEquals("records", 200000L, context.getWriteCount());
+        Helper.compareFixed(output, out.toString());
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * variableTwoFiles.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void variableTwoFiles() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+        final File output = Helper.outFile(testName);
+
+        final List<String> in1 = new ArrayList<>();
+        final List<String> in2 = new ArrayList<>();
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 60000; r++)
+        {
+            in1.add("a" + ((r * 7919) % 60000 + 100000) + " padding the record");
+            in2.add("b" + ((r * 7919) % 60000 + 100000) + " padding the record");
+        }
+        for (int r = 0; r < 60000; r++)
+            out.add("a" + (r + 100000) + " padding the record");
+        for (int r = 0; r < 60000; r++)
+            out.add("b" + (r + 100000) + " padding the record");
+
+        final File file = Helper.createUnsortedFile(testName, in1);
+        final File file2 = Helper.createUnsortedFile(testName, in2);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getParent() + "/" + testName + "*"
+                + " -o " + output.getAbsolutePath()
+                + " --nocacheinput --readAhead 3 --ingestThreads 2");
+
+        Assert.assertEquals("records", 120000L, context.getRecordCount());
+        Assert.assertEquals("records", 120000L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file2.delete());
+        Assert.assertTrue(output.delete());
+    }
+}
@@ -0,0 +1,163 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * ResumeTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class ResumeTest
+{
+    static File workDirectory(final String testName)
+    {
+        final File dir = new File("target", testName + ".work");
+        dir.mkdirs();
+        for (final File leftOver : dir.listFiles())
+            leftOver.delete();
+        return dir;
+    }
+
+    /**
+     * <p>
+     * diskWorkRequired.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void diskWorkRequired()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add("row 1");
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        try
+        {
+            Funnel.sort(Helper.config(), file.getAbsolutePath() + " -r --resume");
+            Assert.fail("Exception expected");
+        } catch (final ParseException e)
+        {
+            Assert.assertEquals("--resume requires --diskWork", e.getMessage());
+        }
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * resumeAfterFailedLastPass.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void resumeAfterFailedLastPass()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            in.add("row " + ((r * 7919) % 1000 + 1000));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 1000; r++)
+            out.add("row " + (r + 1000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File work = workDirectory(testName);
+        final File output = Helper.outFile(testName);
+        /*
+         * A non-empty directory where the output belongs causes the last pass
+         * to fail after all of the intermediate passes have been checkpointed.
+         */
+        output.mkdirs();
+        final File blocker = new File(output, "blocker");
+        Assert.assertTrue(blocker.createNewFile());
+
+        final String args = file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --power 4 --diskWork --resume --workDirectory " + work.getAbsolutePath();
+        try
+        {
+            Funnel.sort(Helper.config(), args);
+            Assert.fail("Exception expected");
+        } catch (final IOException e)
+        {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("failed to rename"));
+        }
+        Assert.assertEquals("manifest", 1, work.list((dir, name) -> name.endsWith(".manifest")).length);
+        Assert.assertEquals("work file", 1, work.list((dir, name) -> name.endsWith(".tmp")).length);
+
+        Assert.assertTrue(blocker.delete());
+        Assert.assertTrue(output.delete());
+
+        final FunnelContext context = Funnel.sort(Helper.config(), args);
+
+        Assert.assertEquals("records", 1000L, context.getRecordCount());
+        Assert.assertEquals("records", 1000L, context.getWriteCount());
+        Helper.compare(output, out);
+        Assert.assertEquals("work files", 0, work.list().length);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+        Assert.assertTrue(work.delete());
+    }
+
+    /**
+     * <p>
+     * resumeIgnoresManifestForOtherInput.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void resumeIgnoresManifestForOtherInput()
+            throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            in.add("row " + (1099 - r));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 100; r++)
+            out.add("row " + (r + 1000));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File work = workDirectory(testName);
+
+        final File stale = new File(work, "funnel.0123456789abcdef.manifest");
+        Assert.assertTrue(stale.createNewFile());
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -r --power 4 --diskWork --resume --workDirectory " + work.getAbsolutePath());
+
+        Assert.assertEquals("records", 100L, context.getRecordCount());
+        Assert.assertEquals("records", 100L, context.getWriteCount());
+        Helper.compare(file, out);
+        Assert.assertEquals("work files", 1, work.list().length);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(stale.delete());
+        Assert.assertTrue(work.delete());
+    }
+}
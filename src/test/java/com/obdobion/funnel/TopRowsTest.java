@@ -0,0 +1,171 @@
+package com.obdobion.funnel;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.obdobion.Helper;
+import com.obdobion.funnel.parameters.FunnelContext;
+
+/**
+ * <p>
+ * TopRowsTest class.
+ * </p>
+ *
+ * @author Chris DeGreef fedupforone@gmail.com
+ * @since 1.6.6
+ */
+public class TopRowsTest
+{
+    /**
+     * <p>
+     * bottom.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void bottom() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 5000; r++)
+            in.add(row((r * 7919) % 5000));
+        final List<String> out = new ArrayList<>();
+        for (int r = 4990; r < 5000; r++)
+            out.add(row(r));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --bottom 10");
+
+        Assert.assertEquals("records", 10L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * moreThanTheInput.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void moreThanTheInput() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add(row(3));
+        in.add(row(1));
+        in.add(row(2));
+        final List<String> out = new ArrayList<>();
+        out.add(row(3));
+        out.add(row(2));
+        out.add(row(1));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c desc) --top 100");
+
+        Assert.assertEquals("records", 3L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    /**
+     * <p>
+     * topAndBottom.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void topAndBottom() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        final List<String> in = new ArrayList<>();
+        in.add(row(1));
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        try
+        {
+            Funnel.sort(Helper.config(), file.getAbsolutePath() + " --top 1 --bottom 1");
+            Assert.fail("Exception expected");
+        } catch (final ParseException e)
+        {
+            Assert.assertEquals("--top and --bottom are mutually exclusive parameters", e.getMessage());
+        }
+        Assert.assertTrue(file.delete());
+    }
+
+    /**
+     * <p>
+     * topWithDuplicates.
+     * </p>
+     *
+     * @throws java.lang.Throwable if any.
+     */
+    @Test
+    public void topWithDuplicates() throws Throwable
+    {
+        final String testName = Helper.testName();
+        Helper.initializeFor(testName);
+
+        /*
+         * Each key is in the input twice and both rows of a key are kept, in
+         * the order they were read.
+         */
+        final List<String> in = new ArrayList<>();
+        for (int r = 0; r < 4000; r++)
+            in.add(row((r * 7919) % 2000) + (r < 2000
+                    ? " first"
+                    : " second"));
+        final List<String> out = new ArrayList<>();
+        for (int r = 0; r < 5; r++)
+        {
+            out.add(row(r) + " first");
+            out.add(row(r) + " second");
+        }
+
+        final File file = Helper.createUnsortedFile(testName, in);
+        final File output = Helper.outFile(testName);
+
+        final FunnelContext context = Funnel.sort(Helper.config(), file.getAbsolutePath()
+                + " -o " + output.getAbsolutePath()
+                + " --col(-nc Integer -o4 -l4) --orderby(c asc) --top 10 --power 4");
+
+        Assert.assertEquals("records", 10L, context.getWriteCount());
+        Helper.compare(output, out);
+
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(output.delete());
+    }
+
+    private String row(final int value)
+    {
+        return "row " + (value + 1000) + " of varying length" + (value % 3 == 0
+                ? ""
+                : " and then some");
+    }
+}